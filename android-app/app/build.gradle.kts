@@ -15,6 +15,25 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // speak cleartext HTTP/2 to a backend served by an h2c capable server, e.g. -Pfilewhisper.h2cPriorKnowledge=true
+        buildConfigField(
+            "boolean",
+            "H2C_PRIOR_KNOWLEDGE",
+            (project.findProperty("filewhisper.h2cPriorKnowledge") ?: "false").toString()
+        )
+
+        // ask the list endpoints in CBOR instead of JSON, e.g. -Pfilewhisper.binaryWireFormat=true,
+        // JSON stays the default until the decoding benchmark of CborStreamDecoderTest favors CBOR
+        buildConfigField(
+            "boolean",
+            "BINARY_WIRE_FORMAT",
+            (project.findProperty("filewhisper.binaryWireFormat") ?: "false").toString()
+        )
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
@@ -26,6 +45,12 @@ android {
             )
         }
     }
+    testOptions {
+        // model classes log parse errors through android.util.Log
+        unitTests.isReturnDefaultValues = true
+        // the database tests run on Robolectric, at the target SDK of the merged manifest
+        unitTests.isIncludeAndroidResources = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -38,9 +63,13 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     implementation(libs.okhttp3.okhttp)
+    implementation(libs.moshi)
     implementation(libs.material.v190)
     implementation(libs.androidx.viewpager2)
     testImplementation(libs.junit)
+    testImplementation(libs.okhttp3.mockwebserver)
+    testImplementation(libs.json)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -14,10 +14,9 @@ import android.util.Patterns;
 import android.widget.Toast;
 
 import com.example.ai_poweredtextanalyzer.Utils.ApiClient;
+import com.example.ai_poweredtextanalyzer.Utils.CallScope;
 import com.example.ai_poweredtextanalyzer.R;
 
-import java.util.List;
-
 public class AuthActivity extends AppCompatActivity {
     private SharedPreferences prefs;
     private Button authButton;
@@ -27,6 +26,8 @@ public class AuthActivity extends AppCompatActivity {
     private TextView toggleLink;
     private enum Mode { LOGIN, REGISTER }
     private Mode mode;
+    // the calls of this screen, cancelled when it is destroyed
+    private final CallScope callScope = new CallScope();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -73,6 +74,12 @@ public class AuthActivity extends AppCompatActivity {
         });
     }
 
+    @Override
+    protected void onDestroy() {
+        callScope.cancel();
+        super.onDestroy();
+    }
+
     /**
      * Find all views references
      */
@@ -96,25 +103,23 @@ public class AuthActivity extends AppCompatActivity {
             return;
         }
 
-        new Thread(() -> {
-            try {
-                // login to the backend server and get JWT access token
-                List<String> result = ApiClient.login(email, password);
-                String token = result.get(0);
-                String full_name = result.get(1);
-                prefs.edit().putString("jwt_token", token).apply();
-                prefs.edit().putString("full_name", full_name).apply();
-                Intent intent = new Intent(AuthActivity.this, MainActivity.class);
-                startActivity(intent);
-            } catch (RuntimeException e) {
+        // login to the backend server and get JWT access token
+        callScope.track(ApiClient.loginAsync(email, password)).whenComplete((result, e) -> {
+            if (e != null) {
                 if (e.getMessage() != null) {
-                    runOnUiThread(() -> {
-                        Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-                        Log.e("auth", e.getMessage());
-                    });
+                    Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
+                    Log.e("auth", e.getMessage());
                 }
+                return;
             }
-        }).start();
+
+            String token = result.get(0);
+            String full_name = result.get(1);
+            prefs.edit().putString("jwt_token", token).apply();
+            prefs.edit().putString("full_name", full_name).apply();
+            Intent intent = new Intent(AuthActivity.this, MainActivity.class);
+            startActivity(intent);
+        });
     }
 
     /**
@@ -134,22 +139,20 @@ public class AuthActivity extends AppCompatActivity {
             return;
         }
 
-        new Thread(() -> {
-            try {
-                // register as new user at the backend server and get JWT access token
-                String token = ApiClient.register(fullName, email, password);
-                prefs.edit().putString("jwt_token", token).apply();
-                Intent intent = new Intent(AuthActivity.this, MainActivity.class);
-                startActivity(intent);
-            } catch (RuntimeException e) {
+        // register as new user at the backend server and get JWT access token
+        callScope.track(ApiClient.registerAsync(fullName, email, password)).whenComplete((token, e) -> {
+            if (e != null) {
                 if (e.getMessage() != null) {
-                    runOnUiThread(() -> {
-                        Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-                        Log.e("auth", e.getMessage());
-                    });
+                    Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
+                    Log.e("auth", e.getMessage());
                 }
+                return;
             }
-        }).start();
+
+            prefs.edit().putString("jwt_token", token).apply();
+            Intent intent = new Intent(AuthActivity.this, MainActivity.class);
+            startActivity(intent);
+        });
     }
 
     private boolean validateInputs(String email, String password) {
@@ -2,6 +2,7 @@ package com.example.ai_poweredtextanalyzer.Activities;
 
 import android.annotation.SuppressLint;
 import android.app.AlertDialog;
+import android.content.ClipData;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.database.Cursor;
@@ -13,7 +14,6 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
-import android.widget.GridView;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.PopupWindow;
@@ -22,23 +22,89 @@ import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.ai_poweredtextanalyzer.Database.FileRepository;
 import com.example.ai_poweredtextanalyzer.Utils.ApiClient;
+import com.example.ai_poweredtextanalyzer.Utils.ApiExecutors;
+import com.example.ai_poweredtextanalyzer.Utils.CallScope;
 import com.example.ai_poweredtextanalyzer.Objects.File;
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+import com.example.ai_poweredtextanalyzer.Utils.PagedFileSource;
+import com.example.ai_poweredtextanalyzer.Utils.UploadQueue;
+import com.example.ai_poweredtextanalyzer.Utils.UriRequestBody;
 import com.example.ai_poweredtextanalyzer.Adapters.FileAdapter;
 import com.example.ai_poweredtextanalyzer.R;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class MainActivity extends AppCompatActivity {
     private SharedPreferences prefs;
     private ImageButton profileButton;
-    private GridView myFilesGrid;
+    private RecyclerView myFilesGrid;
+    private GridLayoutManager myFilesLayout;
     private FileAdapter adapter;
+    // placeholders of the files that are still being uploaded, by their upload id
+    private final Map<String, File> uploadPlaceholders = new LinkedHashMap<>();
+    private final UploadQueue.Listener uploadListener = new UploadQueue.Listener() {
+        @Override
+        public void onUploadFinished(UploadQueue.Upload upload, File uploaded) {
+            File placeholder = uploadPlaceholders.remove(upload.getId());
+            adapter.replaceFile(placeholder, uploaded);
+            if (uploaded == null) {
+                // the new file isn't known or the stored files are stale, sync all the files once the batch is done
+                syncAfterUploads = true;
+            }
+        }
+
+        @Override
+        public void onUploadFailed(UploadQueue.Upload upload, Exception e) {
+            File placeholder = uploadPlaceholders.remove(upload.getId());
+            if (e.getMessage() != null) {
+                Log.e("error", e.getMessage());
+            }
+            adapter.replaceFile(placeholder, null);
+            Toast.makeText(MainActivity.this, "Upload failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+
+        @Override
+        public void onProgress(UploadQueue.Progress progress) {
+            uploadProgress.setVisibility(View.VISIBLE);
+            uploadProgress.setProgressCompat(Math.round(progress.getFraction() * UPLOAD_PROGRESS_MAX), true);
+        }
+
+        @Override
+        public void onBatchFinished() {
+            uploadProgress.setVisibility(View.GONE);
+            if (syncAfterUploads) {
+                syncAfterUploads = false;
+                loadMyFiles();
+            }
+        }
+    };
+    // whether an uploaded file of the current batch wasn't described by the server
+    private boolean syncAfterUploads = false;
+    private LinearProgressIndicator uploadProgress;
+    private static final int UPLOAD_PROGRESS_MAX = 1000;
+    private FileRepository repository;
+    private PagedFileSource filesSource;
+    // the calls of this screen, cancelled when it is destroyed
+    private final CallScope callScope = new CallScope();
+    private boolean loadingPage = false;
     private FloatingActionButton uploadFileButton;
     private ActivityResultLauncher<Intent> filePickerLauncher;
+    // number of items from the end of the grid at which the next page starts loading
+    private static final int PREFETCH_DISTANCE = 9;
+    private static final int GRID_COLUMNS = 3;
 
 
     @Override
@@ -54,9 +120,30 @@ public class MainActivity extends AppCompatActivity {
         // find all views references
         findViews();
 
+        // set the files grid adapter
+        adapter = new FileAdapter(this);
+        myFilesLayout = new GridLayoutManager(this, GRID_COLUMNS);
+        myFilesGrid.setLayoutManager(myFilesLayout);
+        myFilesGrid.setAdapter(adapter);
+
+        // load the next page of files when the user scrolls near the end of the grid
+        myFilesGrid.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                int totalItemCount = adapter.getItemCount();
+                if (totalItemCount > 0
+                        && myFilesLayout.findLastVisibleItemPosition() >= totalItemCount - 1 - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
         // load my files from backend server
         loadMyFiles();
 
+        // show the uploads that are still queued, e.g. from before the app was restarted
+        showQueuedUploads();
+
         // initialize the file picker
         initFilePicker();
 
@@ -71,6 +158,16 @@ public class MainActivity extends AppCompatActivity {
                 .show());
     }
 
+    @Override
+    protected void onDestroy() {
+        // stop loading files for a screen that is gone, the queued uploads go on without it
+        callScope.cancel();
+        if (repository != null) {
+            repository.clearUploadListener();
+        }
+        super.onDestroy();
+    }
+
     private void openProfilePopup(View view) {
         // Inflate popup layout
         LayoutInflater inflater = (LayoutInflater) getSystemService(LAYOUT_INFLATER_SERVICE);
@@ -99,6 +196,8 @@ public class MainActivity extends AppCompatActivity {
         logoutButton.setOnClickListener(v -> {
             // remove access token from shared preferences
             prefs.edit().remove("jwt_token").apply();
+            // the queued uploads aren't sent for a user that logged out
+            FileRepository.logOut();
 
             // redirect to auth activity
             Intent intent = new Intent(MainActivity.this, AuthActivity.class);
@@ -125,25 +224,112 @@ public class MainActivity extends AppCompatActivity {
         profileButton = findViewById(R.id.profileButton);
         myFilesGrid = findViewById(R.id.myFilesGrid);
         uploadFileButton = findViewById(R.id.uploadFileButton);
+        uploadProgress = findViewById(R.id.uploadProgress);
+        uploadProgress.setMax(UPLOAD_PROGRESS_MAX);
     }
 
     /**
-     * Call the backend getMyFiles API to get all the user's uploaded files.
+     * Show the user's files stored on the device, then reconcile them with the backend server.
+     * On the first run nothing is stored yet, so the files are loaded from the server page by page.
      */
     private void loadMyFiles() {
-        new Thread(() -> {
-            try {
-                ArrayList<File> myFiles = ApiClient.getMyFiles(getApplicationContext());
-                adapter = new FileAdapter(this, myFiles);
+        try {
+            repository = FileRepository.getInstance(getApplicationContext());
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null) {
+                Log.e("error", e.getMessage());
+            }
+            return;
+        }
+
+        callScope.track(ApiExecutors.supplyAsync(repository::getLocalFiles)).whenComplete((localFiles, e) -> {
+            if (e != null) {
+                if (e.getMessage() != null) {
+                    Log.e("error", e.getMessage());
+                }
+                return;
+            }
+
+            if (localFiles.isEmpty()) {
+                loadFirstPage();
+                return;
+            }
+
+            showFiles(localFiles);
+            callScope.track(ApiExecutors.supplyAsync(repository::syncFiles)).whenComplete((syncedFiles, error) -> {
+                if (error != null) {
+                    if (error.getMessage() != null) {
+                        Log.e("error", error.getMessage());
+                    }
+                    return;
+                }
+                showFiles(syncedFiles);
+            });
+        });
+    }
+
+    /**
+     * Show a full list of the user's files at the grid, only the files that changed are rebound.
+     * @param files - the user's files.
+     */
+    private void showFiles(ArrayList<File> files) {
+        // all the files are known, stop loading pages
+        filesSource = null;
+        ArrayList<File> shownFiles = new ArrayList<>(files);
+        shownFiles.addAll(uploadPlaceholders.values());
+        adapter.submitFiles(shownFiles, null);
+    }
+
+    /**
+     * Call the backend getMyFiles API to get the user's uploaded files, starting from the first page.
+     */
+    private void loadFirstPage() {
+        try {
+            filesSource = ApiClient.getMyFilesPaged(getApplicationContext());
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null) {
+                Log.e("error", e.getMessage());
+            }
+            return;
+        }
 
-                runOnUiThread(() -> myFilesGrid.setAdapter(adapter));
+        loadingPage = false;
+        adapter.submitFiles(new ArrayList<>(uploadPlaceholders.values()), this::loadNextPage);
+    }
 
-            } catch (RuntimeException e) {
+    /**
+     * Load the next page of the user's uploaded files and append it to the grid.
+     */
+    private void loadNextPage() {
+        if (filesSource == null || loadingPage || !filesSource.hasMore()) {
+            return;
+        }
+        loadingPage = true;
+        PagedFileSource source = filesSource;
+
+        callScope.track(ApiExecutors.supplyAsync(() -> {
+            try {
+                FilePage page = source.loadNextPage();
+                repository.saveFiles(page.getFiles());
+                return page;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to load my files", e);
+            }
+        })).whenComplete((page, e) -> {
+            // ignore pages of a source that was replaced by a newer refresh
+            if (source != filesSource) {
+                return;
+            }
+            loadingPage = false;
+
+            if (e != null) {
                 if (e.getMessage() != null) {
                     Log.e("error", e.getMessage());
                 }
+                return;
             }
-        }).start();
+            adapter.appendFiles(page.getFiles());
+        });
     }
 
     /**
@@ -155,14 +341,37 @@ public class MainActivity extends AppCompatActivity {
                 result -> {
                     if (result.getResultCode() == RESULT_OK) {
                         Intent data = result.getData();
-                        if (data != null && data.getData() != null) {
-                            Uri fileUri = data.getData();
-                            String fileName = getFileName(fileUri);
-                            Toast.makeText(this, "Selected: " + fileName, Toast.LENGTH_SHORT).show();
+                        if (data == null) {
+                            return;
+                        }
+
+                        // several picked files come as clip data, a single one may come as the data uri only
+                        List<Uri> fileUris = new ArrayList<>();
+                        ClipData clipData = data.getClipData();
+                        if (clipData != null) {
+                            for (int i = 0; i < clipData.getItemCount(); i++) {
+                                fileUris.add(clipData.getItemAt(i).getUri());
+                            }
+                        } else if (data.getData() != null) {
+                            fileUris.add(data.getData());
+                        }
+                        if (fileUris.isEmpty()) {
+                            return;
+                        }
+
+                        Toast.makeText(this, fileUris.size() == 1
+                                ? "Selected: " + getFileName(fileUris.get(0))
+                                : "Selected " + fileUris.size() + " files", Toast.LENGTH_SHORT).show();
 
-                            // upload the file to the backend server
-                            uploadFile(fileUri, fileName);
+                        // upload the files to the backend server, the queue runs a few of them at a time
+                        List<File> placeholders = new ArrayList<>();
+                        for (Uri fileUri : fileUris) {
+                            File placeholder = uploadFile(fileUri, getFileName(fileUri), data.getFlags());
+                            if (placeholder != null) {
+                                placeholders.add(placeholder);
+                            }
                         }
+                        adapter.appendFiles(placeholders);
                     }
                 }
         );
@@ -172,10 +381,12 @@ public class MainActivity extends AppCompatActivity {
      * Opens the file picker to allow the user pick a file to upload.
      */
     private void openFilePicker() {
-        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        // a document uri can keep its read permission, so a queued upload can be sent after a restart
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
         intent.setType("*/*"); // any type, filter with MIME types
         String[] mimeTypes = {"text/plain", "application/pdf"};
         intent.putExtra(Intent.EXTRA_MIME_TYPES, mimeTypes);
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
 
         filePickerLauncher.launch(Intent.createChooser(intent, "Select File"));
@@ -203,23 +414,59 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Call the backend uploadFile API to upload a new file.
+     * Show placeholders of the uploads that are still queued and listen to their results.
+     */
+    private void showQueuedUploads() {
+        if (repository == null) {
+            return;
+        }
+
+        UploadQueue queue = repository.getUploadQueue();
+        List<File> placeholders = new ArrayList<>();
+        for (UploadQueue.Upload upload : queue.getUploads()) {
+            File placeholder = File.pending(upload.getFileName());
+            uploadPlaceholders.put(upload.getId(), placeholder);
+            placeholders.add(placeholder);
+        }
+        adapter.appendFiles(placeholders);
+        queue.setListener(uploadListener);
+    }
+
+    /**
+     * Queue a new file to upload to the backend server, the queue retries it until it is uploaded.
      * @param fileUri - uri of the file to upload.
      * @param fileName - name of the file to upload.
+     * @param grantFlags - flags of the picker result, they tell whether the uri permission can be kept.
+     * @return The placeholder to show until the file is uploaded, or null if it wasn't queued.
      */
-    private void uploadFile(Uri fileUri, String fileName) {
-        new Thread(() -> {
+    private File uploadFile(Uri fileUri, String fileName, int grantFlags) {
+        if (repository == null) {
+            return null;
+        }
+
+        // keep the permission to read the file, in case the upload is resumed after a restart
+        boolean persistedPermission = false;
+        if ((grantFlags & Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION) != 0) {
             try {
-                ApiClient.uploadFile(getApplicationContext(), fileUri, fileName);
-                runOnUiThread(this::loadMyFiles);
-            } catch (Exception e) {
-                if (e.getMessage() != null) {
-                    Log.e("error", e.getMessage());
-                }
-                runOnUiThread(() -> Toast.makeText(this, "Upload failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
+                getContentResolver().takePersistableUriPermission(fileUri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                persistedPermission = true;
+            } catch (SecurityException e) {
+                Log.e("error", "Failed to keep the read permission of " + fileUri);
             }
-        }).start();
-    }
+        }
+        String mimeType = getContentResolver().getType(fileUri);
+        if (mimeType == null) {
+            mimeType = "application/octet-stream";
+        }
 
+        long size = UriRequestBody.queryContentLength(getContentResolver(), fileUri);
 
-}
\ No newline at end of file
+        UploadQueue.Upload upload = repository.getUploadQueue()
+                .enqueue(fileUri.toString(), fileName, mimeType, size, persistedPermission);
+
+        // the file is shown right away, it is replaced by the uploaded file once the server describes it
+        File placeholder = File.pending(fileName);
+        uploadPlaceholders.put(upload.getId(), placeholder);
+        return placeholder;
+    }
+}
@@ -7,19 +7,24 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
+import com.example.ai_poweredtextanalyzer.Database.ChatWindow;
 import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
 import com.example.ai_poweredtextanalyzer.R;
+import com.example.ai_poweredtextanalyzer.Utils.MarkdownRenderer;
 
 import java.util.List;
 
 public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
-    private final List<ChatMessage> messages;
-    private final String USER_SENDER = "Me";
+    // only the messages near the shown ones are in memory, the others are loaded as they are shown
+    private final ChatWindow messages;
     private final int USER_SENDER_CODE = 0;
     private final int AI_SENDER_CODE = 1;
+    // marks an update of the message text only, so the item view is rebound in place without a change animation
+    private static final Object TEXT_PAYLOAD = new Object();
 
-    public ChatAdapter(List<ChatMessage> messages) {
+    public ChatAdapter(ChatWindow messages) {
         this.messages = messages;
+        messages.setListener(this::notifyItemRangeChanged);
     }
 
     public void addMessage(ChatMessage message) {
@@ -27,13 +32,66 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         notifyItemInserted(messages.size() - 1);
     }
 
+    /**
+     * Replace the stored messages from a position on, e.g. with the messages a sync brought up to date.
+     * Only the replaced range is rebound, the messages before and after it are kept as they are.
+     * @param start - position of the first replaced message.
+     * @param newMessages - the messages to show instead, they were already stored.
+     */
+    public void replaceStoredMessages(int start, List<ChatMessage> newMessages) {
+        int count = messages.getStoredCount() - start;
+        messages.replaceStored(start, newMessages);
+
+        int changed = Math.min(count, newMessages.size());
+        notifyItemRangeChanged(start, changed);
+        if (newMessages.size() > count) {
+            notifyItemRangeInserted(start + count, newMessages.size() - count);
+        } else if (count > newMessages.size()) {
+            notifyItemRangeRemoved(start + newMessages.size(), count - newMessages.size());
+        }
+    }
+
+    /**
+     * Append the next part of a message that is still being generated, only its item is rebound.
+     * @param message - the generated message, nothing happens if it isn't shown by this adapter.
+     * @param chunk - the next part of the message text.
+     */
+    public void appendToMessage(ChatMessage message, String chunk) {
+        // the generated message is the last one or close to it
+        int position = messages.lastIndexOf(message);
+        if (position >= 0) {
+            message.appendText(chunk);
+            notifyItemChanged(position, TEXT_PAYLOAD);
+        }
+    }
+
+    /**
+     * Show a message that finished being generated with its markdown rendered, while it was generated
+     * only its plain text was shown.
+     * @param message - the generated message, nothing happens if it isn't shown by this adapter.
+     */
+    public void finishMessage(ChatMessage message) {
+        int position = messages.lastIndexOf(message);
+        if (position >= 0) {
+            notifyItemChanged(position);
+        }
+    }
+
+    /**
+     * @param message - message added since the chat was opened to remove, e.g. an answer that failed to arrive.
+     */
+    public void removeMessage(ChatMessage message) {
+        int position = messages.lastIndexOf(message);
+        if (position >= messages.getStoredCount()) {
+            messages.remove(position);
+            notifyItemRemoved(position);
+        }
+    }
+
     @Override
     public int getItemViewType(int position) {
         ChatMessage message = messages.get(position);
-        if (message.getSender().equals(USER_SENDER)) {
-            return USER_SENDER_CODE;
-        }
-        return AI_SENDER_CODE;
+        return message != null && message.getSender() == ChatMessage.Sender.USER ? USER_SENDER_CODE : AI_SENDER_CODE;
     }
 
     @NonNull
@@ -60,6 +118,16 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (holder instanceof AIMessageHolder && payloads.contains(TEXT_PAYLOAD)) {
+            // the text of a message being generated changes with every chunk, it is rendered once it is done
+            ((AIMessageHolder) holder).bindPlainText(messages.get(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
     @Override
     public int getItemCount() {
         return messages.size();
@@ -77,7 +145,8 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
 
         void bind(ChatMessage message) {
-            messageText.setText(message.getText());
+            // a message that is still loading is shown empty
+            messageText.setText(message != null ? message.getText() : "");
         }
     }
 
@@ -86,6 +155,9 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         TextView messageText;
         ImageView profileImage;
 
+        // the markdown shown by the holder, a render that completes after it was rebound is dropped
+        String boundText;
+
         AIMessageHolder(View itemView) {
             super(itemView);
             messageText = itemView.findViewById(R.id.text_message_body);
@@ -93,7 +165,32 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
 
         void bind(ChatMessage message) {
-            messageText.setText(message.getText());
+            if (message == null) {
+                // a message that is still loading is shown empty
+                bindPlainText(null);
+                return;
+            }
+
+            String text = message.getText();
+            boundText = text;
+            CharSequence rendered = MarkdownRenderer.getCached(text);
+            if (rendered != null) {
+                messageText.setText(rendered);
+                return;
+            }
+
+            // show the plain text until the markdown is rendered on the background pool
+            messageText.setText(text);
+            MarkdownRenderer.renderAsync(text).thenAccept(result -> {
+                if (text.equals(boundText)) {
+                    messageText.setText(result);
+                }
+            });
+        }
+
+        void bindPlainText(ChatMessage message) {
+            boundText = null;
+            messageText.setText(message != null ? message.getText() : "");
         }
     }
 }
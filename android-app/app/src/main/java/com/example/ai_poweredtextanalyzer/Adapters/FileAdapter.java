@@ -5,61 +5,188 @@ import android.content.Intent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
 import com.example.ai_poweredtextanalyzer.Activities.FileActivity;
 import com.example.ai_poweredtextanalyzer.Objects.File;
 import com.example.ai_poweredtextanalyzer.R;
+import com.example.ai_poweredtextanalyzer.Utils.ApiExecutors;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-public class FileAdapter extends BaseAdapter {
+/**
+ * This class shows the user's files at the files grid.
+ * A new list of files is diffed against the shown one on a background thread, so an upload or a
+ * refresh rebinds only the files that changed.
+ */
+public class FileAdapter extends RecyclerView.Adapter<FileAdapter.FileHolder> {
+    private static final DiffUtil.ItemCallback<File> FILE_DIFF = new DiffUtil.ItemCallback<File>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull File oldFile, @NonNull File newFile) {
+            return oldFile.getId().equals(newFile.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull File oldFile, @NonNull File newFile) {
+            return oldFile.getFilename().equals(newFile.getFilename())
+                    && oldFile.getUploadedAt() == newFile.getUploadedAt()
+                    && oldFile.isPending() == newFile.isPending();
+        }
+    };
+
+    private static final float PENDING_ALPHA = 0.5f;
     private final Context context;
-    private final ArrayList<File> files;
+    private final AsyncListDiffer<File> differ;
+    // the last submitted files, the differ shows them once their diff is done
+    private List<File> latestFiles = Collections.emptyList();
+    // item ids of the file ids, they stay the same for as long as the adapter lives
+    private final Map<String, Long> itemIds = new HashMap<>();
 
-    public FileAdapter(Context context, ArrayList<File> files) {
+    public FileAdapter(Context context) {
         this.context = context;
-        this.files = files;
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(FILE_DIFF)
+                        .setBackgroundThreadExecutor(ApiExecutors.background())
+                        .build());
+        setHasStableIds(true);
     }
 
-    @Override
-    public int getCount() {
-        return files.size();
+    /**
+     * Show a new list of files, only the files that changed are rebound.
+     * @param files - the files to show, the list must not be changed after it is submitted.
+     * @param onShown - called on the main thread once the files are shown, may be null.
+     */
+    public void submitFiles(List<File> files, Runnable onShown) {
+        latestFiles = files;
+        differ.submitList(files, onShown);
+    }
+
+    /**
+     * Show the last submitted files followed by more files, e.g. the next page of files.
+     * @param moreFiles - the files to add at the end of the grid.
+     */
+    public void appendFiles(List<File> moreFiles) {
+        Set<String> shownIds = new HashSet<>();
+        for (File file : latestFiles) {
+            shownIds.add(file.getId());
+        }
+
+        List<File> files = new ArrayList<>(latestFiles);
+        for (File file : moreFiles) {
+            // a file uploaded while the pages were loading is already shown
+            if (!shownIds.contains(file.getId())) {
+                files.add(file);
+            }
+        }
+        submitFiles(files, null);
+    }
+
+    /**
+     * Replace a shown file, e.g. the placeholder of an upload with the uploaded file.
+     * @param oldFile - the shown file.
+     * @param newFile - the file to show at its position, or null to remove it. It is added at the end
+     *                if the old file isn't shown anymore.
+     */
+    public void replaceFile(File oldFile, File newFile) {
+        int position = latestFiles.indexOf(oldFile);
+        if (position < 0) {
+            if (newFile != null) {
+                appendFiles(Collections.singletonList(newFile));
+            }
+            return;
+        }
+
+        List<File> files = new ArrayList<>(latestFiles);
+        if (newFile != null && !containsId(files, newFile.getId())) {
+            files.set(position, newFile);
+        } else {
+            // a sync may have shown the new file already
+            files.remove(position);
+        }
+        submitFiles(files, null);
+    }
+
+    private static boolean containsId(List<File> files, String id) {
+        for (File file : files) {
+            if (file.getId().equals(id)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
-    public Object getItem(int i) {
-        return files.get(i);
+    public long getItemId(int position) {
+        String id = differ.getCurrentList().get(position).getId();
+        Long itemId = itemIds.get(id);
+        if (itemId == null) {
+            itemId = (long) itemIds.size();
+            itemIds.put(id, itemId);
+        }
+        return itemId;
     }
 
     @Override
-    public long getItemId(int i) {
-        return i;
+    public int getItemCount() {
+        return differ.getCurrentList().size();
     }
 
+    @NonNull
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        if (convertView == null) {
-            convertView = LayoutInflater.from(context)
-                    .inflate(R.layout.file_grid_item, parent, false);
-        }
+    public FileHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.file_grid_item, parent, false);
+        return new FileHolder(view);
+    }
 
-        File file = files.get(position);
+    @Override
+    public void onBindViewHolder(@NonNull FileHolder holder, int position) {
+        holder.bind(differ.getCurrentList().get(position));
+    }
 
-        TextView textFilename = convertView.findViewById(R.id.textFilename);
-        TextView textUploadedAt = convertView.findViewById(R.id.textUploadedAt);
+    // file view holder
+    class FileHolder extends RecyclerView.ViewHolder {
+        TextView textFilename;
+        TextView textUploadedAt;
+        File file;
 
-        textFilename.setText(file.getFilename());
-        textUploadedAt.setText(file.getUploadedAt());
+        FileHolder(View itemView) {
+            super(itemView);
+            textFilename = itemView.findViewById(R.id.textFilename);
+            textUploadedAt = itemView.findViewById(R.id.textUploadedAt);
 
-        // handle grid item click event
-        convertView.setOnClickListener(v -> {
-            Intent intent = new Intent(context, FileActivity.class);
-            intent.putExtra("file_id", file.getId());
-            intent.putExtra("filename", file.getFilename());
-            context.startActivity(intent);
-        });
+            // handle grid item click event
+            itemView.setOnClickListener(v -> {
+                Intent intent = new Intent(context, FileActivity.class);
+                intent.putExtra("file_id", file.getId());
+                intent.putExtra("filename", file.getFilename());
+                context.startActivity(intent);
+            });
+        }
 
-        return convertView;
+        void bind(File file) {
+            this.file = file;
+            textFilename.setText(file.getFilename());
+            if (file.isPending()) {
+                // the file can't be opened before the server assigns it an ID
+                textUploadedAt.setText(R.string.uploading);
+                itemView.setAlpha(PENDING_ALPHA);
+                itemView.setEnabled(false);
+            } else {
+                textUploadedAt.setText(file.getDisplayUploadedAt());
+                itemView.setAlpha(1f);
+                itemView.setEnabled(true);
+            }
+        }
     }
 }
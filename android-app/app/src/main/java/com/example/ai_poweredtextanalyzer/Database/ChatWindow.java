@@ -0,0 +1,225 @@
+package com.example.ai_poweredtextanalyzer.Database;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * This class holds the messages of a chat for the chat display, keeping only a window of the stored
+ * messages around the shown position in memory. The other stored messages stay on the device and are
+ * loaded again in the background when the user scrolls to them, so a long chat uses as much memory
+ * as a short one.
+ * Messages added since the chat was opened, e.g. a question and the answer being generated, follow
+ * the stored messages and are always kept in memory.
+ * All the methods but loadLast must be called from the main thread.
+ */
+public class ChatWindow {
+    public static final int DEFAULT_WINDOW_SIZE = 60;
+
+    /**
+     * The stored messages of the chat, in the order they were sent.
+     */
+    public interface Store {
+        /**
+         * @param start - position of the first message.
+         * @param count - maximum number of messages.
+         * @return The stored messages from the position on.
+         */
+        List<ChatMessage> getMessages(int start, int count);
+
+        /**
+         * @return The number of stored messages.
+         */
+        int getMessageCount();
+    }
+
+    /**
+     * Notified when stored messages that weren't in memory are loaded.
+     */
+    public interface Listener {
+        void onMessagesLoaded(int start, int count);
+    }
+
+    private final Store store;
+    private final int windowSize;
+    private final Executor loadExecutor;
+    private final Executor callbackExecutor;
+    private int storedCount = 0;
+    private int windowStart = 0;
+    private List<ChatMessage> window = new ArrayList<>();
+    private final ArrayList<ChatMessage> added = new ArrayList<>();
+    private Listener listener;
+    // the window that is being loaded, or null, a newer load or replace drops older results
+    private CompletableFuture<List<ChatMessage>> loading;
+    private int loadingStart = -1;
+    private int loadingCount = 0;
+
+    /**
+     * @param store - the stored messages of the chat.
+     * @param windowSize - maximum number of stored messages kept in memory.
+     * @param loadExecutor - runs the loads of the stored messages.
+     * @param callbackExecutor - the main thread executor, the loaded messages are applied on it.
+     */
+    public ChatWindow(Store store, int windowSize, Executor loadExecutor, Executor callbackExecutor) {
+        this.store = store;
+        this.windowSize = windowSize;
+        this.loadExecutor = loadExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Load the last stored messages, the chat opens at its end. Blocks, so it must be called from a
+     * worker thread before the window is shown.
+     */
+    public void loadLast() {
+        storedCount = store.getMessageCount();
+        windowStart = Math.max(0, storedCount - windowSize);
+        window = new ArrayList<>(store.getMessages(windowStart, storedCount - windowStart));
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The number of messages of the chat, stored and added.
+     */
+    public int size() {
+        return storedCount + added.size();
+    }
+
+    /**
+     * @return The number of stored messages, the messages added since the chat was opened follow them.
+     */
+    public int getStoredCount() {
+        return storedCount;
+    }
+
+    /**
+     * Get a message, a stored message that isn't in memory is loaded in the background and the
+     * listener is notified once it is available.
+     * @param position - position of the message.
+     * @return The message, or null if it isn't loaded yet.
+     */
+    public ChatMessage get(int position) {
+        if (position >= storedCount) {
+            return added.get(position - storedCount);
+        }
+
+        int offset = position - windowStart;
+        ChatMessage message = offset >= 0 && offset < window.size() ? window.get(offset) : null;
+        // move the window before the user reaches its edge, unless it already ends there
+        int prefetchDistance = windowSize / 4;
+        boolean nearStart = offset < prefetchDistance && windowStart > 0;
+        boolean nearEnd = offset >= window.size() - prefetchDistance && windowStart + window.size() < storedCount;
+        if (message == null || nearStart || nearEnd) {
+            loadAround(position);
+        }
+        return message;
+    }
+
+    /**
+     * @param message - a message of the chat.
+     * @return The last position of the message, or -1 if it isn't in memory.
+     */
+    public int lastIndexOf(ChatMessage message) {
+        int index = added.lastIndexOf(message);
+        if (index >= 0) {
+            return storedCount + index;
+        }
+        index = window.lastIndexOf(message);
+        return index >= 0 ? windowStart + index : -1;
+    }
+
+    /**
+     * @param message - a message to add after all the messages.
+     */
+    public void add(ChatMessage message) {
+        added.add(message);
+    }
+
+    /**
+     * @param position - position of a message added since the chat was opened.
+     */
+    public void remove(int position) {
+        added.remove(position - storedCount);
+    }
+
+    /**
+     * Replace the stored messages from a position on, e.g. with the messages of a sync that were
+     * already stored. The messages added since the chat was opened still follow them.
+     * @param start - position of the first replaced message.
+     * @param messages - the stored messages from the position on.
+     */
+    public void replaceStored(int start, List<ChatMessage> messages) {
+        cancelLoad();
+        int oldStart = windowStart;
+        List<ChatMessage> oldWindow = window;
+        storedCount = start + messages.size();
+
+        // keep the end of the chat in memory, where the new messages are
+        int keep = Math.min(windowSize, storedCount);
+        windowStart = storedCount - keep;
+        List<ChatMessage> newWindow = new ArrayList<>(keep);
+        for (int position = windowStart; position < start; position++) {
+            int offset = position - oldStart;
+            if (offset < 0 || offset >= oldWindow.size()) {
+                // the old window doesn't reach the new messages, the window starts at them instead
+                newWindow.clear();
+                windowStart = storedCount - Math.min(keep, messages.size());
+                break;
+            }
+            newWindow.add(oldWindow.get(offset));
+        }
+        newWindow.addAll(messages.subList(Math.max(0, windowStart - start), messages.size()));
+        window = newWindow;
+    }
+
+    /**
+     * @return The number of messages held in memory, stored and added.
+     */
+    int getMessagesInMemory() {
+        return window.size() + added.size();
+    }
+
+    private void loadAround(int position) {
+        if (loading != null && position >= loadingStart && position < loadingStart + loadingCount) {
+            // the window being loaded has the message, it is checked again once the window is shown
+            return;
+        }
+        cancelLoad();
+
+        int start = Math.max(0, Math.min(position - windowSize / 2, storedCount - windowSize));
+        int count = Math.min(windowSize, storedCount - start);
+        CompletableFuture<List<ChatMessage>> load = CompletableFuture.supplyAsync(
+                () -> store.getMessages(start, count), loadExecutor);
+        loading = load;
+        loadingStart = start;
+        loadingCount = count;
+        load.whenCompleteAsync((messages, e) -> {
+            if (loading != load) {
+                return;
+            }
+            loading = null;
+            if (e != null) {
+                return;
+            }
+
+            windowStart = start;
+            window = messages;
+            if (listener != null) {
+                listener.onMessagesLoaded(start, messages.size());
+            }
+        }, callbackExecutor);
+    }
+
+    private void cancelLoad() {
+        if (loading != null) {
+            loading.cancel(false);
+            loading = null;
+        }
+    }
+}
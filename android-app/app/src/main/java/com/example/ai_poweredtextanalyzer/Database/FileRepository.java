@@ -0,0 +1,309 @@
+package com.example.ai_poweredtextanalyzer.Database;
+
+import static android.content.Context.MODE_PRIVATE;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+import com.example.ai_poweredtextanalyzer.Objects.File;
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+import com.example.ai_poweredtextanalyzer.Utils.ApiClient;
+import com.example.ai_poweredtextanalyzer.Utils.ApiExecutors;
+import com.example.ai_poweredtextanalyzer.Utils.TokenUtils;
+import com.example.ai_poweredtextanalyzer.Utils.UploadQueue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * This class is the access point of the screens to the user's files, summaries and chat history.
+ * The data stored on the device is returned immediately, and the sync methods reconcile it
+ * with the backend server. All the methods block, so they must be called from a worker thread.
+ */
+public class FileRepository {
+    private static final String FILES_WATERMARK = "files";
+    private static FileRepository instance;
+    // the open databases by file path, a user's database stays open after logout since the background work
+    // started before it may still use it, and the user's next login uses it again
+    private static final Map<String, LocalDatabase> databases = new HashMap<>();
+    private final Context context;
+    private final String userKey;
+    // the latest token of the user, the user may log in again while uploads are queued
+    private volatile String token;
+    private final LocalDatabase database;
+    private final SummaryCache summaryCache;
+    private UploadQueue uploadQueue;
+
+    private FileRepository(Context context, String userKey, String token, LocalDatabase database) {
+        this.context = context;
+        this.userKey = userKey;
+        this.token = token;
+        this.database = database;
+        this.summaryCache = new SummaryCache(database, SummaryCache.MAX_MEMORY_CHARS, SummaryCache.MAX_DISK_SUMMARIES);
+    }
+
+    /**
+     * Get the repository of the logged in user.
+     * @param context - called activity context.
+     * @return The user's repository.
+     * @throws RuntimeException if the user isn't logged in.
+     */
+    public static synchronized FileRepository getInstance(Context context) throws RuntimeException {
+        String savedToken = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE).getString("jwt_token", null);
+        if (savedToken == null) {
+            throw new RuntimeException("Unauthorized");
+        }
+
+        String userKey = TokenUtils.userKey(savedToken);
+        if (instance == null || !instance.userKey.equals(userKey)) {
+            if (instance != null) {
+                instance.close();
+            }
+            Context appContext = context.getApplicationContext();
+            LocalDatabase database = databases.computeIfAbsent(
+                    appContext.getDatabasePath(LocalDatabase.fileName(userKey)).getPath(),
+                    path -> new LocalDatabase(appContext, userKey));
+            instance = new FileRepository(appContext, userKey, savedToken, database);
+        } else {
+            instance.token = savedToken;
+        }
+        return instance;
+    }
+
+    /**
+     * Release the repository of the user that logged out, the queued uploads stop and are resumed on
+     * the user's next login. The user's database isn't closed, the work that still runs finishes with it.
+     */
+    public static synchronized void logOut() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private synchronized void close() {
+        if (uploadQueue != null) {
+            uploadQueue.shutdown();
+        }
+    }
+
+    /**
+     * @return The user's files stored on the device.
+     */
+    public ArrayList<File> getLocalFiles() {
+        return database.getFiles();
+    }
+
+    /**
+     * Store files loaded from the server outside of a sync, e.g. a page of the files grid.
+     * @param files - the loaded files.
+     */
+    public void saveFiles(List<File> files) {
+        database.upsertFiles(files);
+    }
+
+    /**
+     * Store a file described by its upload response, instead of syncing all the files.
+     * @param file - the uploaded file.
+     * @return True if the stored files are stale and must be synced. The server doesn't allow two files
+     * with the same name, so another stored file with this name was deleted or replaced on the server.
+     */
+    public boolean addUploadedFile(File file) {
+        boolean stale = false;
+        for (String fileId : database.getFileIdsByName(file.getFilename())) {
+            if (!fileId.equals(file.getId())) {
+                stale = true;
+            }
+        }
+        database.upsertFiles(Collections.singletonList(file));
+        return stale;
+    }
+
+    /**
+     * Get the queue of the user's uploads, it is created and its saved uploads resumed on first use.
+     * The uploads are sent with the user's token, and the queue stops when another user logs in.
+     * The uploaded files are stored as they are uploaded, so only the result is left to the screen.
+     * @return The user's upload queue.
+     */
+    public synchronized UploadQueue getUploadQueue() {
+        if (uploadQueue == null) {
+            uploadQueue = new UploadQueue(
+                    new java.io.File(context.getFilesDir(), "upload_queue_" + userKey + ".properties"),
+                    new UploadQueue.Uploader() {
+                        @Override
+                        public File upload(UploadQueue.Upload upload, LongConsumer onBytesSent) throws IOException {
+                            File uploaded = ApiClient.uploadFile(context, token, Uri.parse(upload.getUri()),
+                                    upload.getFileName(), upload.getMimeType(), onBytesSent);
+                            // summaries of the previous content of a re-uploaded file are no longer valid
+                            invalidateSummaries(upload.getFileName());
+                            if (uploaded != null && addUploadedFile(uploaded)) {
+                                // the stored files are stale, let the sync bring them up to date instead
+                                return null;
+                            }
+                            return uploaded;
+                        }
+
+                        @Override
+                        public void onRemoved(UploadQueue.Upload upload) {
+                            if (!upload.hasPersistedPermission()) {
+                                return;
+                            }
+                            try {
+                                context.getContentResolver().releasePersistableUriPermission(
+                                        Uri.parse(upload.getUri()), Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                            } catch (SecurityException e) {
+                                // the permission was already revoked
+                            }
+                        }
+                    },
+                    // the uploads block on the network for long, they don't hold the threads of the http calls
+                    ApiExecutors.uploads(),
+                    ApiExecutors.scheduler(),
+                    ApiExecutors.mainThread(),
+                    UploadQueue.DEFAULT_MAX_CONCURRENT,
+                    UploadQueue.DEFAULT_MAX_ATTEMPTS,
+                    UploadQueue.DEFAULT_BASE_DELAY_MILLIS,
+                    UploadQueue.DEFAULT_MAX_DELAY_MILLIS
+            );
+        }
+        return uploadQueue;
+    }
+
+    /**
+     * Stop notifying a screen that is gone of the uploads, the queue isn't started for it.
+     */
+    public synchronized void clearUploadListener() {
+        if (uploadQueue != null) {
+            uploadQueue.setListener(null);
+        }
+    }
+
+    /**
+     * Reconcile the stored files with the server, requesting only the files that changed
+     * since the watermark of the last sync.
+     * @return The user's files after the sync.
+     * @throws RuntimeException if the sync failed, the stored files are left unchanged.
+     */
+    public ArrayList<File> syncFiles() throws RuntimeException {
+        Map<String, String> versions = database.getFileVersions();
+        String watermark = database.getWatermark(FILES_WATERMARK);
+        FilePage page = ApiClient.getMyFilesUpdatedSince(context, watermark);
+
+        if (watermark == null || page.getWatermark() == null) {
+            // a full list of the files, either a first sync or a server without delta support
+            database.replaceFiles(page.getFiles());
+        } else {
+            database.upsertFiles(page.getFiles());
+            database.deleteFiles(page.getDeletedIds());
+        }
+        database.setWatermark(FILES_WATERMARK, page.getWatermark());
+
+        // drop the cached summaries of files that were replaced or deleted on the server
+        Map<String, String> syncedVersions = database.getFileVersions();
+        for (Map.Entry<String, String> entry : versions.entrySet()) {
+            if (!entry.getValue().equals(syncedVersions.get(entry.getKey()))) {
+                summaryCache.invalidate(entry.getKey());
+            }
+        }
+
+        return database.getFiles();
+    }
+
+    /**
+     * @param fileId - ID of the summarized file.
+     * @return The last summary generated for the current content of the file, or null if there is none.
+     */
+    public String getLastSummary(String fileId) {
+        return database.getLastSummary(fileId, database.getFileVersion(fileId));
+    }
+
+    /**
+     * @param fileId - ID of the summarized file.
+     * @param style - summary style.
+     * @param length - summary length.
+     * @return The cached summary of the current content of the file, or null if it wasn't generated yet.
+     */
+    public String getSummary(String fileId, String style, String length) {
+        return summaryCache.get(fileId, database.getFileVersion(fileId), style, length);
+    }
+
+    /**
+     * Store a summary generated for the current content of a file.
+     * @param fileId - ID of the summarized file.
+     * @param style - summary style.
+     * @param length - summary length.
+     * @param summary - the summary.
+     */
+    public void saveSummary(String fileId, String style, String length, String summary) {
+        summaryCache.put(fileId, database.getFileVersion(fileId), style, length, summary);
+    }
+
+    /**
+     * Drop the cached summaries of the stored files with this name, e.g. after the file was re-uploaded.
+     * @param filename - name of the uploaded file.
+     */
+    public void invalidateSummaries(String filename) {
+        for (String fileId : database.getFileIdsByName(filename)) {
+            summaryCache.invalidate(fileId);
+        }
+    }
+
+    /**
+     * @return The summary cache, for its hit and miss counters.
+     */
+    public SummaryCache getSummaryCache() {
+        return summaryCache;
+    }
+
+    /**
+     * Open the chat history of the file stored on the device, only the last messages are loaded.
+     * @param fileId - ID of the chat context file.
+     * @return The chat window, the older messages are loaded as they are shown.
+     */
+    public ChatWindow openChatWindow(String fileId) {
+        ChatWindow window = new ChatWindow(new ChatWindow.Store() {
+            @Override
+            public List<ChatMessage> getMessages(int start, int count) {
+                return database.getChatMessages(fileId, start, count);
+            }
+
+            @Override
+            public int getMessageCount() {
+                return database.getChatMessageCount(fileId);
+            }
+        }, ChatWindow.DEFAULT_WINDOW_SIZE, ApiExecutors.background(), ApiExecutors.mainThread());
+        window.loadLast();
+        return window;
+    }
+
+    /**
+     * Reconcile the stored chat history of a file with the server, requesting only the messages
+     * newer than the cursor of the last sync.
+     * @param fileId - ID of the chat context file.
+     * @return The synced messages, they replace the stored messages from their start position on.
+     * @throws RuntimeException if the sync failed, the stored history is left unchanged.
+     */
+    public ChatHistoryPage syncChatHistory(String fileId) throws RuntimeException {
+        ChatHistoryPage page = ApiClient.getChatHistory(
+                context, fileId, database.getChatCursor(fileId), database.getSyncedChatCount(fileId));
+        database.storeChatHistoryPage(fileId, page);
+        return page;
+    }
+
+    /**
+     * Store new chat messages, e.g. a question and the AI Model answer.
+     * @param fileId - ID of the chat context file.
+     * @param messages - the new messages.
+     */
+    public void saveChatMessages(String fileId, ChatMessage... messages) {
+        database.appendChatMessages(fileId, Arrays.asList(messages));
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.ai_poweredtextanalyzer.Database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+import com.example.ai_poweredtextanalyzer.Objects.File;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class stores a single user's files, summaries and chat history on the device.
+ * The data is a copy of the backend server data, so an upgrade simply drops it and syncs again.
+ */
+public class LocalDatabase extends SQLiteOpenHelper {
+    private static final int VERSION = 3;
+    // sync_state names of the chat history cursor of a file and the number of messages it covers
+    private static final String CHAT_CURSOR = "chat_cursor:";
+    private static final String CHAT_SYNCED = "chat_synced:";
+
+    /**
+     * @param context - application context.
+     * @param userKey - key of the user, every user has a separate database file.
+     */
+    public LocalDatabase(Context context, String userKey) {
+        super(context, fileName(userKey), null, VERSION);
+    }
+
+    /**
+     * @param userKey - key of the user.
+     * @return Name of the user's database file.
+     */
+    public static String fileName(String userKey) {
+        return "file_whisper_" + userKey + ".db";
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE files ("
+                + "id TEXT PRIMARY KEY, "
+                + "filename TEXT NOT NULL, "
+                + "uploaded_at INTEGER NOT NULL, "
+                + "position INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE summaries ("
+                + "file_id TEXT NOT NULL, "
+                + "version TEXT NOT NULL, "
+                + "style TEXT NOT NULL, "
+                + "length TEXT NOT NULL, "
+                + "summary TEXT NOT NULL, "
+                + "created_at INTEGER NOT NULL, "
+                + "last_used INTEGER NOT NULL, "
+                + "PRIMARY KEY (file_id, version, style, length))");
+        db.execSQL("CREATE TABLE chat_messages ("
+                + "file_id TEXT NOT NULL, "
+                + "position INTEGER NOT NULL, "
+                + "sender TEXT NOT NULL, "
+                + "text TEXT NOT NULL, "
+                + "PRIMARY KEY (file_id, position))");
+        db.execSQL("CREATE TABLE sync_state ("
+                + "name TEXT PRIMARY KEY, "
+                + "watermark TEXT)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS files");
+        db.execSQL("DROP TABLE IF EXISTS summaries");
+        db.execSQL("DROP TABLE IF EXISTS chat_messages");
+        db.execSQL("DROP TABLE IF EXISTS sync_state");
+        onCreate(db);
+    }
+
+    /**
+     * @return All the stored files, in the order the server listed them.
+     */
+    public ArrayList<File> getFiles() {
+        ArrayList<File> files = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("files", new String[]{"id", "filename", "uploaded_at"},
+                null, null, null, null, "position")) {
+            while (cursor.moveToNext()) {
+                files.add(new File(cursor.getString(0), cursor.getString(1), cursor.getLong(2)));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Replace all the stored files with a full list from the server.
+     * @param files - all the user's files.
+     */
+    public void replaceFiles(List<File> files) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete("files", null, null);
+            for (int i = 0; i < files.size(); i++) {
+                db.insert("files", null, fileValues(files.get(i), i));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Update the stored files that changed, new files are added after the existing ones.
+     * @param files - new or changed files.
+     */
+    public void upsertFiles(List<File> files) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long position = nextPosition(db, "files", null, null);
+            for (File file : files) {
+                ContentValues values = new ContentValues();
+                values.put("filename", file.getFilename());
+                values.put("uploaded_at", file.getUploadedAt());
+                if (db.update("files", values, "id = ?", new String[]{file.getId()}) == 0) {
+                    db.insert("files", null, fileValues(file, position++));
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Delete stored files together with their summaries and chat history.
+     * @param ids - IDs of the deleted files.
+     */
+    public void deleteFiles(List<String> ids) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String id : ids) {
+                String[] args = new String[]{id};
+                db.delete("files", "id = ?", args);
+                db.delete("summaries", "file_id = ?", args);
+                db.delete("chat_messages", "file_id = ?", args);
+                db.delete("sync_state", "name = ? OR name = ?", new String[]{CHAT_CURSOR + id, CHAT_SYNCED + id});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * @param name - name of the synced data.
+     * @return The watermark of the last sync, or null if the data was never synced.
+     */
+    public String getWatermark(String name) {
+        try (Cursor cursor = getReadableDatabase().query("sync_state", new String[]{"watermark"},
+                "name = ?", new String[]{name}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * @param name - name of the synced data.
+     * @param watermark - watermark of the last sync.
+     */
+    public void setWatermark(String name, String watermark) {
+        ContentValues values = new ContentValues();
+        values.put("name", name);
+        values.put("watermark", watermark);
+        getWritableDatabase().insertWithOnConflict("sync_state", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * @param fileId - ID of the file.
+     * @return The version of the stored file content, the time it was uploaded, or an empty string
+     * if the file isn't stored.
+     */
+    public String getFileVersion(String fileId) {
+        try (Cursor cursor = getReadableDatabase().query("files", new String[]{"uploaded_at"},
+                "id = ?", new String[]{fileId}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : "";
+        }
+    }
+
+    /**
+     * @return The content version of every stored file, by file ID.
+     */
+    public Map<String, String> getFileVersions() {
+        Map<String, String> versions = new HashMap<>();
+        try (Cursor cursor = getReadableDatabase().query("files", new String[]{"id", "uploaded_at"},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                versions.put(cursor.getString(0), cursor.getString(1));
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * @param filename - name of the file.
+     * @return IDs of the stored files with this name.
+     */
+    public ArrayList<String> getFileIdsByName(String filename) {
+        ArrayList<String> ids = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("files", new String[]{"id"},
+                "filename = ?", new String[]{filename}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @param fileId - ID of the summarized file.
+     * @param version - version of the file content.
+     * @return The last summary generated for this version of the file, or null if there is none.
+     */
+    public String getLastSummary(String fileId, String version) {
+        try (Cursor cursor = getReadableDatabase().query("summaries", new String[]{"summary"},
+                "file_id = ? AND version = ?", new String[]{fileId, version}, null, null, "created_at DESC", "1")) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * Get a stored summary and mark it as recently used.
+     * @param fileId - ID of the summarized file.
+     * @param version - version of the file content.
+     * @param style - summary style.
+     * @param length - summary length.
+     * @return The summary, or null if it isn't stored.
+     */
+    public String getSummary(String fileId, String version, String style, String length) {
+        String[] args = new String[]{fileId, version, style, length};
+        String selection = "file_id = ? AND version = ? AND style = ? AND length = ?";
+        try (Cursor cursor = getReadableDatabase().query("summaries", new String[]{"summary"},
+                selection, args, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+
+            ContentValues values = new ContentValues();
+            values.put("last_used", System.currentTimeMillis());
+            getWritableDatabase().update("summaries", values, selection, args);
+            return cursor.getString(0);
+        }
+    }
+
+    /**
+     * Store a summary generated for a file, evicting the least recently used summaries
+     * above the maximum number of stored summaries.
+     * @param fileId - ID of the summarized file.
+     * @param version - version of the file content.
+     * @param style - summary style.
+     * @param length - summary length.
+     * @param summary - the summary.
+     * @param maxSummaries - maximum number of stored summaries.
+     */
+    public void putSummary(String fileId, String version, String style, String length, String summary, int maxSummaries) {
+        long now = System.currentTimeMillis();
+        ContentValues values = new ContentValues();
+        values.put("file_id", fileId);
+        values.put("version", version);
+        values.put("style", style);
+        values.put("length", length);
+        values.put("summary", summary);
+        values.put("created_at", now);
+        values.put("last_used", now);
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict("summaries", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.execSQL("DELETE FROM summaries WHERE rowid NOT IN "
+                    + "(SELECT rowid FROM summaries ORDER BY last_used DESC LIMIT " + maxSummaries + ")");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Delete all the stored summaries of a file.
+     * @param fileId - ID of the summarized file.
+     */
+    public void deleteSummaries(String fileId) {
+        getWritableDatabase().delete("summaries", "file_id = ?", new String[]{fileId});
+    }
+
+    /**
+     * @param fileId - ID of the chat context file.
+     * @return The number of stored chat messages of the file.
+     */
+    public int getChatMessageCount(String fileId) {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), "chat_messages",
+                "file_id = ?", new String[]{fileId});
+    }
+
+    /**
+     * @param fileId - ID of the chat context file.
+     * @param start - position of the first message.
+     * @param count - maximum number of messages.
+     * @return The stored chat messages of the file from the position on.
+     */
+    public ArrayList<ChatMessage> getChatMessages(String fileId, int start, int count) {
+        ArrayList<ChatMessage> messages = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("chat_messages", new String[]{"sender", "text"},
+                "file_id = ? AND position >= ? AND position < ?",
+                new String[]{fileId, String.valueOf(start), String.valueOf(start + count)},
+                null, null, "position")) {
+            while (cursor.moveToNext()) {
+                messages.add(new ChatMessage(ChatMessage.Sender.fromName(cursor.getString(0)), cursor.getString(1)));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @param fileId - ID of the chat context file.
+     * @return The cursor of the last chat history sync of the file, or null if it was never synced.
+     */
+    public String getChatCursor(String fileId) {
+        return getWatermark(CHAT_CURSOR + fileId);
+    }
+
+    /**
+     * @param fileId - ID of the chat context file.
+     * @return The number of stored messages the last sync covers, the messages after them were
+     * stored on this device since.
+     */
+    public int getSyncedChatCount(String fileId) {
+        String count = getWatermark(CHAT_SYNCED + fileId);
+        return count != null ? Integer.parseInt(count) : 0;
+    }
+
+    /**
+     * Store the messages of a chat history sync together with its cursor. The stored messages from the
+     * position of the first synced message on are replaced, including the messages stored on this device
+     * since the last sync, which the server returns as well.
+     * @param fileId - ID of the chat context file.
+     * @param page - the synced messages.
+     */
+    public void storeChatHistoryPage(String fileId, ChatHistoryPage page) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete("chat_messages", "file_id = ? AND position >= ?",
+                    new String[]{fileId, String.valueOf(page.getStart())});
+            insertChatMessages(db, fileId, page.getMessages(), page.getStart());
+            setWatermark(CHAT_CURSOR + fileId, page.getCursor());
+            setWatermark(CHAT_SYNCED + fileId, String.valueOf(page.getStart() + page.getMessages().size()));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Add messages to the end of the stored chat history of a file.
+     * @param fileId - ID of the chat context file.
+     * @param messages - the new messages.
+     */
+    public void appendChatMessages(String fileId, List<ChatMessage> messages) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long position = nextPosition(db, "chat_messages", "file_id = ?", new String[]{fileId});
+            insertChatMessages(db, fileId, messages, position);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void insertChatMessages(SQLiteDatabase db, String fileId, List<ChatMessage> messages, long position) {
+        for (ChatMessage message : messages) {
+            ContentValues values = new ContentValues();
+            values.put("file_id", fileId);
+            values.put("position", position++);
+            values.put("sender", message.getSender().getName());
+            values.put("text", message.getText());
+            db.insert("chat_messages", null, values);
+        }
+    }
+
+    private static ContentValues fileValues(File file, long position) {
+        ContentValues values = new ContentValues();
+        values.put("id", file.getId());
+        values.put("filename", file.getFilename());
+        values.put("uploaded_at", file.getUploadedAt());
+        values.put("position", position);
+        return values;
+    }
+
+    private static long nextPosition(SQLiteDatabase db, String table, String selection, String[] args) {
+        try (Cursor cursor = db.query(table, new String[]{"MAX(position)"}, selection, args, null, null, null)) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) + 1 : 0;
+        }
+    }
+}
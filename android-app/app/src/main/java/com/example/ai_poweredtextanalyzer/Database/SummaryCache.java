@@ -0,0 +1,140 @@
+package com.example.ai_poweredtextanalyzer.Database;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class caches the generated summaries in two tiers, a small in-memory LRU in front of the
+ * summaries stored in the local database.
+ * A summary is keyed by the file ID, the summary style and length, and the version of the file
+ * content, so a re-uploaded file never gets the summary of its previous content.
+ */
+public class SummaryCache {
+    public static final int MAX_MEMORY_CHARS = 256 * 1024;
+    public static final int MAX_DISK_SUMMARIES = 200;
+    private final LocalDatabase database;
+    private final int maxMemoryChars;
+    private final int maxDiskSummaries;
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private int memoryChars = 0;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param database - the local database, the disk tier of the cache.
+     * @param maxMemoryChars - maximum total length of the summaries held in memory.
+     * @param maxDiskSummaries - maximum number of summaries stored in the database.
+     */
+    public SummaryCache(LocalDatabase database, int maxMemoryChars, int maxDiskSummaries) {
+        this.database = database;
+        this.maxMemoryChars = maxMemoryChars;
+        this.maxDiskSummaries = maxDiskSummaries;
+    }
+
+    /**
+     * @param fileId - ID of the summarized file.
+     * @param version - version of the file content.
+     * @param style - summary style.
+     * @param length - summary length.
+     * @return The cached summary, or null if it isn't cached in either tier.
+     */
+    public String get(String fileId, String version, String style, String length) {
+        String key = key(fileId, version, style, length);
+        synchronized (this) {
+            String summary = memory.get(key);
+            if (summary != null) {
+                memoryHits.incrementAndGet();
+                return summary;
+            }
+        }
+
+        String summary = database.getSummary(fileId, version, style, length);
+        if (summary == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        diskHits.incrementAndGet();
+        putInMemory(key, summary);
+        return summary;
+    }
+
+    /**
+     * Cache a generated summary in both tiers.
+     * @param fileId - ID of the summarized file.
+     * @param version - version of the file content.
+     * @param style - summary style.
+     * @param length - summary length.
+     * @param summary - the summary.
+     */
+    public void put(String fileId, String version, String style, String length, String summary) {
+        database.putSummary(fileId, version, style, length, summary, maxDiskSummaries);
+        putInMemory(key(fileId, version, style, length), summary);
+    }
+
+    /**
+     * Remove all the cached summaries of a file, of every version.
+     * @param fileId - ID of the summarized file.
+     */
+    public void invalidate(String fileId) {
+        synchronized (this) {
+            String prefix = fileId + "\n";
+            Iterator<Map.Entry<String, String>> entries = memory.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, String> entry = entries.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    memoryChars -= entry.getValue().length();
+                    entries.remove();
+                }
+            }
+        }
+        database.deleteSummaries(fileId);
+    }
+
+    /**
+     * @return Number of summaries found in memory.
+     */
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    /**
+     * @return Number of summaries found in the database.
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * @return Number of summaries that weren't cached.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private synchronized void putInMemory(String key, String summary) {
+        if (summary.length() > maxMemoryChars) {
+            return;
+        }
+
+        String previous = memory.put(key, summary);
+        if (previous != null) {
+            memoryChars -= previous.length();
+        }
+        memoryChars += summary.length();
+
+        // evict the least recently used summaries, the iteration order of an access ordered map
+        Iterator<String> values = memory.values().iterator();
+        while (memoryChars > maxMemoryChars && values.hasNext()) {
+            memoryChars -= values.next().length();
+            values.remove();
+        }
+    }
+
+    private static String key(String fileId, String version, String style, String length) {
+        return fileId + "\n" + version + "\n" + style + "\n" + length;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.ai_poweredtextanalyzer.Exceptions;
+
+import java.io.IOException;
+
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.ai_poweredtextanalyzer.Exceptions;
+
+public class UnsupportedEndpointException extends RuntimeException {
+    public UnsupportedEndpointException(String message) {
+        super(message);
+    }
+}
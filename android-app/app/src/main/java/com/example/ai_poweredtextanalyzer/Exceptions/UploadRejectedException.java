@@ -0,0 +1,7 @@
+package com.example.ai_poweredtextanalyzer.Exceptions;
+
+public class UploadRejectedException extends RuntimeException {
+    public UploadRejectedException(String message) {
+        super(message);
+    }
+}
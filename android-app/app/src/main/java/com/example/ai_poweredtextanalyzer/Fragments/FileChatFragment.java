@@ -16,11 +16,14 @@ import androidx.fragment.app.FragmentActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.ai_poweredtextanalyzer.Adapters.ChatAdapter;
+import com.example.ai_poweredtextanalyzer.Database.ChatWindow;
+import com.example.ai_poweredtextanalyzer.Database.FileRepository;
 import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
 import com.example.ai_poweredtextanalyzer.R;
 import com.example.ai_poweredtextanalyzer.Utils.ApiClient;
+import com.example.ai_poweredtextanalyzer.Utils.ApiExecutors;
+import com.example.ai_poweredtextanalyzer.Utils.CallScope;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
-import java.util.ArrayList;
 
 public class FileChatFragment extends Fragment {
     FragmentActivity activity;
@@ -31,6 +34,8 @@ public class FileChatFragment extends Fragment {
     CircularProgressIndicator chatLoading;
     RecyclerView chatRecycler;
     ChatAdapter adapter;
+    // the calls of the current view, cancelled when the view is destroyed
+    CallScope callScope;
 
     public FileChatFragment(FragmentActivity activity, Context context, String fileID) {
         this.activity = activity;
@@ -43,10 +48,14 @@ public class FileChatFragment extends Fragment {
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.file_chat_fragment_page, container, false);
+        callScope = new CallScope();
 
         // find all views references
         findViews(view);
 
+        // questions are added to the shown chat history, so they wait for it
+        sendButton.setEnabled(false);
+
         // load chat history
         loadChatHistory();
 
@@ -56,6 +65,13 @@ public class FileChatFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        // stop the running calls, nobody will see their results
+        callScope.cancel();
+        super.onDestroyView();
+    }
+
     /**
      * Find all views references
      */
@@ -71,7 +87,7 @@ public class FileChatFragment extends Fragment {
      * @param sender - message's sender
      * @param message - message's content
      */
-    private void appendMessage(String sender, String message) {
+    private void appendMessage(ChatMessage.Sender sender, String message) {
         ChatMessage newMessage = new ChatMessage(sender, message);
         adapter.addMessage(newMessage);
 
@@ -80,49 +96,87 @@ public class FileChatFragment extends Fragment {
     }
 
     /**
-     * Call the backend getChatHistory API to get the chat history.
+     * Show the chat history stored on the device, then sync it with the backend server.
+     * Only the messages newer than the last sync are requested and merged into the shown history.
      */
     private void loadChatHistory() {
-        new Thread(() -> {
-            try {
-                ArrayList<ChatMessage> chatMessages = ApiClient.getChatHistory(context, fileID);
-                activity.runOnUiThread(() -> {
-                    // set chat recycler adapter
-                    adapter = new ChatAdapter(chatMessages);
-                    chatRecycler.setLayoutManager(new LinearLayoutManager(context));
-                    chatRecycler.setAdapter(adapter);
+        callScope.track(ApiExecutors.supplyAsync(() -> FileRepository.getInstance(context).openChatWindow(fileID)))
+                .thenCompose(chatWindow -> {
+                    showChatHistory(chatWindow);
+                    return callScope.track(ApiExecutors.supplyAsync(() -> FileRepository.getInstance(context).syncChatHistory(fileID)))
+                            .thenApply(page -> {
+                                // the synced messages replace the stored ones from their start on,
+                                // messages added since the history was shown stay after them
+                                int start = Math.min(page.getStart(), chatWindow.getStoredCount());
+                                adapter.replaceStoredMessages(start, page.getMessages());
+                                return page;
+                            });
+                })
+                .whenComplete((page, error) -> {
+                    if (error != null) {
+                        Throwable e = ApiExecutors.unwrap(error);
+                        if (e.getMessage() != null) {
+                            Log.e("error", e.getMessage());
+                        }
+                        Toast.makeText(context, "Loading chat failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    }
                 });
-            } catch (Exception e) {
-                if (e.getMessage() != null) {
-                    Log.e("error", e.getMessage());
-                }
-                activity.runOnUiThread(() -> Toast.makeText(context, "Summary failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
-            }
-        }).start();
+    }
+
+    /**
+     * Show the chat history at the chat display, scrolled to its end.
+     * @param chatWindow - the chat history messages.
+     */
+    private void showChatHistory(ChatWindow chatWindow) {
+        // set chat recycler adapter
+        adapter = new ChatAdapter(chatWindow);
+        chatRecycler.setLayoutManager(new LinearLayoutManager(context));
+        chatRecycler.setAdapter(adapter);
+        if (adapter.getItemCount() > 0) {
+            chatRecycler.scrollToPosition(adapter.getItemCount() - 1);
+        }
+        sendButton.setEnabled(true);
     }
 
     /**
      * Call the backend askModel API to ask the AI Model a question about the file.
+     * The answer is shown while it is generated, in a message that grows with every chunk.
      */
     private void askModel() {
         String question = chatQuestionInput.getText().toString();
-        appendMessage("Me", question);
+        appendMessage(ChatMessage.Sender.USER, question);
         chatQuestionInput.setText("");
 
         chatLoading.setVisibility(View.VISIBLE);
 
-        new Thread(() -> {
-            try {
-                String answer = ApiClient.askModel(context, fileID, question);
-                activity.runOnUiThread(() -> appendMessage("AI Model", answer));
-            } catch (Exception e) {
+        ChatMessage answerMessage = new ChatMessage(ChatMessage.Sender.AI_MODEL, "");
+        ChatAdapter answerAdapter = adapter;
+        answerAdapter.addMessage(answerMessage);
+
+        callScope.track(ApiClient.askModelStreaming(context, fileID, question, token -> {
+            if (callScope.isCancelled()) {
+                return;
+            }
+            chatLoading.setVisibility(View.GONE);
+            answerAdapter.appendToMessage(answerMessage, token);
+            chatRecycler.scrollToPosition(answerAdapter.getItemCount() - 1);
+        })).whenComplete((answer, e) -> {
+            chatLoading.setVisibility(View.GONE);
+            if (e != null) {
                 if (e.getMessage() != null) {
                     Log.e("error", e.getMessage());
                 }
-                activity.runOnUiThread(() -> Toast.makeText(context, "Summary failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
-            } finally {
-                activity.runOnUiThread(() -> chatLoading.setVisibility(View.GONE));
+                answerAdapter.removeMessage(answerMessage);
+                Toast.makeText(context, "Chat failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                return;
             }
-        }).start();
+
+            answerAdapter.finishMessage(answerMessage);
+            ApiExecutors.runAsync(() -> FileRepository.getInstance(context).saveChatMessages(
+                    fileID,
+                    new ChatMessage(ChatMessage.Sender.USER, question),
+                    new ChatMessage(ChatMessage.Sender.AI_MODEL, answer)
+            ));
+        });
     }
 }
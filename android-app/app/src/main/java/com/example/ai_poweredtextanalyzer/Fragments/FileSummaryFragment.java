@@ -15,9 +15,14 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
+import com.example.ai_poweredtextanalyzer.Database.FileRepository;
 import com.example.ai_poweredtextanalyzer.R;
 import com.example.ai_poweredtextanalyzer.Utils.ApiClient;
+import com.example.ai_poweredtextanalyzer.Utils.ApiExecutors;
+import com.example.ai_poweredtextanalyzer.Utils.CallScope;
+import com.example.ai_poweredtextanalyzer.Utils.MarkdownRenderer;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
+import java.util.concurrent.CompletableFuture;
 
 public class FileSummaryFragment  extends Fragment {
     FragmentActivity activity;
@@ -28,6 +33,8 @@ public class FileSummaryFragment  extends Fragment {
     Button summaryButton;
     TextView summaryText;
     CircularProgressIndicator summaryLoading;
+    // the calls of the current view, cancelled when the view is destroyed
+    CallScope callScope;
 
     public FileSummaryFragment(FragmentActivity activity, Context context, String fileID) {
         this.activity = activity;
@@ -40,17 +47,28 @@ public class FileSummaryFragment  extends Fragment {
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.file_summary_fragment_page, container, false);
+        callScope = new CallScope();
 
         findViews(view);
 
         loadSpinnersData();
 
+        // show the last summary stored on the device
+        loadLastSummary();
+
         // handle summary button click event
         summaryButton.setOnClickListener(v -> summary());
 
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        // stop the running calls, nobody will see their results
+        callScope.cancel();
+        super.onDestroyView();
+    }
+
     /**
      * Find all views references
      */
@@ -86,29 +104,60 @@ public class FileSummaryFragment  extends Fragment {
     }
 
     /**
-     * Call the backend summarizeFile API to get a summary for the file content.
+     * Show the last summary generated for the file, if it is stored on the device.
+     */
+    private void loadLastSummary() {
+        callScope.track(ApiExecutors.supplyAsync(() -> FileRepository.getInstance(context).getLastSummary(fileID)))
+                // the render finishes after the view is gone if it is slow, so it is a call of the view too
+                .thenCompose(summary -> summary != null
+                        ? callScope.track(MarkdownRenderer.renderAsync(summary))
+                        : CompletableFuture.completedFuture(null))
+                .whenComplete((summary, e) -> {
+                    if (e != null) {
+                        if (e.getMessage() != null) {
+                            Log.e("error", e.getMessage());
+                        }
+                        return;
+                    }
+
+                    if (summary != null) {
+                        summaryText.setText(summary);
+                        summaryText.setVisibility(View.VISIBLE);
+                    }
+                });
+    }
+
+    /**
+     * Show the summary of the file content, the backend summarizeFile API is called only
+     * if this style and length weren't generated yet for the current content of the file.
      */
     private void summary() {
         summaryText.setVisibility(View.GONE);
         summaryLoading.setVisibility(View.VISIBLE);
         String style = spinnerStyle.getSelectedItem().toString().toLowerCase();
         String length = spinnerLength.getSelectedItem().toString().toLowerCase();
-        new Thread(() -> {
-            try {
-                String summary = ApiClient.summarizeFile(context, fileID, style, length);
-                activity.runOnUiThread(() -> {
+        callScope.track(ApiExecutors.supplyAsync(() -> FileRepository.getInstance(context).getSummary(fileID, style, length)))
+                .thenCompose(cached -> cached != null
+                        ? CompletableFuture.completedFuture(cached)
+                        : callScope.track(ApiClient.summarizeFileAsync(context, fileID, style, length)).thenApply(summary -> {
+                            ApiExecutors.runAsync(() -> FileRepository.getInstance(context).saveSummary(fileID, style, length, summary));
+                            return summary;
+                        }))
+                // the summary markdown is rendered on the background pool, as a call of the view
+                .thenCompose(summary -> callScope.track(MarkdownRenderer.renderAsync(summary)))
+                .whenComplete((summary, error) -> {
                     summaryLoading.setVisibility(View.GONE);
+                    if (error != null) {
+                        Throwable e = ApiExecutors.unwrap(error);
+                        if (e.getMessage() != null) {
+                            Log.e("error", e.getMessage());
+                        }
+                        Toast.makeText(context, "Summary failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                        return;
+                    }
+
                     summaryText.setText(summary);
                     summaryText.setVisibility(View.VISIBLE);
                 });
-            } catch (Exception e) {
-                if (e.getMessage() != null) {
-                    Log.e("error", e.getMessage());
-                }
-                activity.runOnUiThread(() -> Toast.makeText(context, "Summary failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
-            } finally {
-                activity.runOnUiThread(() -> summaryLoading.setVisibility(View.GONE));
-            }
-        }).start();
     }
 }
@@ -0,0 +1,27 @@
+package com.example.ai_poweredtextanalyzer.Objects;
+
+import java.util.ArrayList;
+
+/**
+ * This class represent the chat messages of a file returned by a chat history sync.
+ * When the history was requested after a cursor it holds only the newer messages, starting at
+ * the position of the first message the cursor didn't cover, otherwise it holds the full history.
+ */
+public class ChatHistoryPage {
+    private final ArrayList<ChatMessage> messages;
+    private final String cursor;
+    private final int start;
+
+    public ChatHistoryPage(ArrayList<ChatMessage> messages, String cursor, int start) {
+        this.messages = messages;
+        this.cursor = cursor;
+        this.start = start;
+    }
+
+    public ArrayList<ChatMessage> getMessages() { return messages; }
+    // cursor of the last message, or null if the server doesn't support cursors
+    public String getCursor() { return cursor; }
+    // position of the first message at the full history, 0 for a full history
+    public int getStart() { return start; }
+    public boolean isDelta() { return start > 0; }
+}
@@ -4,28 +4,56 @@ package com.example.ai_poweredtextanalyzer.Objects;
  * This class represent a single message of the chat between the user and the AI Model.
  */
 public class ChatMessage {
-    private final String sender;
-    private final String text;
 
+    /**
+     * The sender of a chat message, with the name the backend uses for it.
+     */
+    public enum Sender {
+        USER("user"),
+        AI_MODEL("assistant");
 
-    public ChatMessage(String sender, String text) {
-        if (sender.equals("user")) {
-            this.sender = "Me";
-        } else if (sender.equals("assistant")) {
-            this.sender = "AI Model";
-        } else {
-            this.sender = sender;
+        private final String name;
+
+        Sender(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @param name - a backend sender name, or a display name stored by an older app version.
+         * @return The sender, messages of any sender but the user are from the AI Model.
+         */
+        public static Sender fromName(String name) {
+            return "user".equals(name) || "Me".equals(name) ? USER : AI_MODEL;
         }
+    }
+
+    private final Sender sender;
+    private String text;
+
 
+    public ChatMessage(Sender sender, String text) {
+        this.sender = sender;
         this.text = text;
     }
 
 
-    public String getSender() {
+    public Sender getSender() {
         return sender;
     }
 
     public String getText() {
         return text;
     }
+
+    /**
+     * Add the next part of a message that is still being generated.
+     * @param chunk - the next part of the message text.
+     */
+    public void appendText(String chunk) {
+        text = text + chunk;
+    }
 }
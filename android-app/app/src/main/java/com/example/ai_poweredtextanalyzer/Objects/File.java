@@ -1,11 +1,6 @@
 package com.example.ai_poweredtextanalyzer.Objects;
 
-import android.util.Log;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
+import java.util.UUID;
 
 /**
  * This class represent a file uploaded by the user.
@@ -13,35 +8,45 @@ import java.util.TimeZone;
 public class File {
     private final String id;
     private final String filename;
-    private final String uploadedAt;
+    // epoch millis, or Timestamps.UNKNOWN
+    private final long uploadedAt;
+    // a placeholder of a file that is still being uploaded
+    private final boolean pending;
+    // formatted on first display, most files of a long list are never shown
+    private String displayUploadedAt;
+
+    public File(String id, String filename, long uploadedAt) {
+        this(id, filename, uploadedAt, false);
+    }
 
     public File(String id, String filename, String uploadedAt) {
+        this(id, filename, Timestamps.parse(uploadedAt), false);
+    }
+
+    private File(String id, String filename, long uploadedAt, boolean pending) {
         this.id = id;
         this.filename = filename;
-        this.uploadedAt = parseUploadDate(uploadedAt);
+        this.uploadedAt = uploadedAt;
+        this.pending = pending;
+    }
+
+    /**
+     * @param filename - name of the file being uploaded.
+     * @return A placeholder shown until the server assigns the file its ID.
+     */
+    public static File pending(String filename) {
+        return new File("pending:" + UUID.randomUUID(), filename, Timestamps.UNKNOWN, true);
     }
 
     public String getId() { return id; }
     public String getFilename() { return filename; }
-    public String getUploadedAt() { return uploadedAt; }
-
-    private String parseUploadDate(String rawUploadedAt) {
-        String formattedDate = rawUploadedAt; // fallback in case parsing fails
-        try {
-            SimpleDateFormat parser = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.ENGLISH);
-            parser.setTimeZone(TimeZone.getTimeZone("GMT"));
-            Date date = parser.parse(rawUploadedAt);
-
-            if (date != null) {
-                SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.ENGLISH);
-                formattedDate = formatter.format(date);
-            }
-        } catch (ParseException e) {
-            if (e.getMessage() != null) {
-                Log.e("error", e.getMessage());
-            }
-        }
+    public long getUploadedAt() { return uploadedAt; }
+    public boolean isPending() { return pending; }
 
-        return formattedDate;
+    public String getDisplayUploadedAt() {
+        if (displayUploadedAt == null) {
+            displayUploadedAt = Timestamps.formatForDisplay(uploadedAt);
+        }
+        return displayUploadedAt;
     }
 }
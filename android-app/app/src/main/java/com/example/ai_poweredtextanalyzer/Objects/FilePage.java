@@ -0,0 +1,32 @@
+package com.example.ai_poweredtextanalyzer.Objects;
+
+import java.util.ArrayList;
+
+/**
+ * This class represent a single page of the files uploaded by the user.
+ * When the page was requested with an updated-since watermark it holds only the changed files,
+ * the IDs of the deleted files and the watermark to use for the next sync.
+ */
+public class FilePage {
+    private final ArrayList<File> files;
+    private final String nextCursor;
+    private final ArrayList<String> deletedIds;
+    private final String watermark;
+
+    public FilePage(ArrayList<File> files, String nextCursor) {
+        this(files, nextCursor, new ArrayList<>(), null);
+    }
+
+    public FilePage(ArrayList<File> files, String nextCursor, ArrayList<String> deletedIds, String watermark) {
+        this.files = files;
+        this.nextCursor = nextCursor;
+        this.deletedIds = deletedIds;
+        this.watermark = watermark;
+    }
+
+    public ArrayList<File> getFiles() { return files; }
+    public String getNextCursor() { return nextCursor; }
+    public ArrayList<String> getDeletedIds() { return deletedIds; }
+    public String getWatermark() { return watermark; }
+    public boolean hasNext() { return nextCursor != null; }
+}
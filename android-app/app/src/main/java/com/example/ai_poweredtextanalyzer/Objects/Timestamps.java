@@ -0,0 +1,151 @@
+package com.example.ai_poweredtextanalyzer.Objects;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * This class converts the backend timestamps to epoch millis and formats them for display.
+ * The formatters aren't thread-safe, so every thread reuses its own instance instead of
+ * creating new ones for every file.
+ */
+public class Timestamps {
+    public static final long UNKNOWN = Long.MIN_VALUE;
+    private static final ThreadLocal<SimpleDateFormat> httpDateParser = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat parser = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.ENGLISH);
+            parser.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return parser;
+        }
+    };
+    private static final ThreadLocal<SimpleDateFormat> displayFormatter = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.ENGLISH);
+        }
+    };
+
+    /**
+     * Parse a backend timestamp, either ISO-8601 ("2025-01-06T10:00:00.123456", UTC unless it
+     * has an offset) or an http date ("Mon, 06 Jan 2025 10:00:00 GMT").
+     * @param timestamp - the backend timestamp.
+     * @return The timestamp in epoch millis, or UNKNOWN if it isn't valid.
+     */
+    public static long parse(String timestamp) {
+        if (timestamp == null || timestamp.isEmpty()) {
+            return UNKNOWN;
+        }
+
+        long millis = parseIso(timestamp);
+        if (millis != UNKNOWN) {
+            return millis;
+        }
+
+        try {
+            Date date = httpDateParser.get().parse(timestamp);
+            return date != null ? date.getTime() : UNKNOWN;
+        } catch (ParseException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * @param millis - a timestamp in epoch millis.
+     * @return The timestamp in the device time zone, e.g. "06/01/2025 12:00", or an empty string if it is UNKNOWN.
+     */
+    public static String formatForDisplay(long millis) {
+        if (millis == UNKNOWN) {
+            return "";
+        }
+        return displayFormatter.get().format(new Date(millis));
+    }
+
+    /**
+     * Parse an ISO-8601 date-time without allocating, the fraction is truncated to millis.
+     */
+    static long parseIso(String s) {
+        int length = s.length();
+        if (length < 19 || s.charAt(4) != '-' || s.charAt(7) != '-'
+                || (s.charAt(10) != 'T' && s.charAt(10) != ' ') || s.charAt(13) != ':' || s.charAt(16) != ':') {
+            return UNKNOWN;
+        }
+
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 7);
+        int day = digits(s, 8, 10);
+        int hour = digits(s, 11, 13);
+        int minute = digits(s, 14, 16);
+        int second = digits(s, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return UNKNOWN;
+        }
+
+        int i = 19;
+        int millis = 0;
+        if (i < length && s.charAt(i) == '.') {
+            i++;
+            int scale = 100;
+            int start = i;
+            while (i < length && Character.isDigit(s.charAt(i))) {
+                millis += (s.charAt(i) - '0') * scale;
+                scale /= 10;
+                i++;
+            }
+            if (i == start) {
+                return UNKNOWN;
+            }
+        }
+
+        long offsetMillis = 0;
+        if (i < length) {
+            char zone = s.charAt(i);
+            if (zone == 'Z' && i + 1 == length) {
+                offsetMillis = 0;
+            } else if ((zone == '+' || zone == '-') && (i + 6 == length || i + 5 == length)) {
+                int offsetHours = digits(s, i + 1, i + 3);
+                int minutesStart = s.charAt(i + 3) == ':' ? i + 4 : i + 3;
+                int offsetMinutes = digits(s, minutesStart, minutesStart + 2);
+                if (offsetHours < 0 || offsetMinutes < 0 || minutesStart + 2 != length) {
+                    return UNKNOWN;
+                }
+                offsetMillis = (offsetHours * 60L + offsetMinutes) * 60_000L * (zone == '+' ? 1 : -1);
+            } else {
+                return UNKNOWN;
+            }
+        }
+
+        long days = daysFromCivil(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis - offsetMillis;
+    }
+
+    /**
+     * @return The number the characters in [start, end) spell, or -1 if they aren't all digits.
+     */
+    private static int digits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return Number of days from 1970-01-01 to the date, in the proleptic Gregorian calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -5,29 +5,119 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.net.Uri;
 import android.util.Log;
-import androidx.annotation.NonNull;
 
+import com.example.ai_poweredtextanalyzer.BuildConfig;
 import com.example.ai_poweredtextanalyzer.Exceptions.InvalidCredentialsException;
-import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
 import com.example.ai_poweredtextanalyzer.Objects.File;
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+import com.example.ai_poweredtextanalyzer.Exceptions.UnsupportedEndpointException;
+import com.example.ai_poweredtextanalyzer.Exceptions.UploadRejectedException;
 import com.example.ai_poweredtextanalyzer.Exceptions.UserAlreadyExistsException;
+import com.squareup.moshi.JsonDataException;
 
 import okhttp3.*;
+import okio.Buffer;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 
 /**
  * This class provide utility methods for backend API calls.
  */
 public class ApiClient {
-    private static final OkHttpClient client = new OkHttpClient();
+    // the list endpoints are asked in CBOR when the build flag is set, servers that don't encode it answer with JSON
+    private static final boolean BINARY_WIRE_FORMAT = BuildConfig.BINARY_WIRE_FORMAT;
+    // the list reads are retried and hedged, every endpoint fails fast while the backend is unhealthy
+    private static final ResilienceInterceptor resilience = new ResilienceInterceptor(
+            ApiExecutors.hedges(), ApiExecutors.scheduler(), "GET /files/", "GET /chat/history");
+    private static final CompressionInterceptor compression =
+            new CompressionInterceptor(CompressionInterceptor.DEFAULT_MIN_REQUEST_SIZE);
+    // the uvicorn backend only speaks HTTP/1.1 over cleartext, the build flag is set for an h2c capable server
+    private static final OkHttpClient client = createClient(BuildConfig.H2C_PRIOR_KNOWLEDGE);
+    // clients for the long running calls, they share the connection pool and dispatcher of the main client
+    private static final OkHttpClient uploadClient = client.newBuilder()
+            .readTimeout(60, TimeUnit.SECONDS)
+            .writeTimeout(120, TimeUnit.SECONDS)
+            .build();
+    private static final OkHttpClient modelClient = client.newBuilder()
+            .readTimeout(120, TimeUnit.SECONDS)
+            .callTimeout(150, TimeUnit.SECONDS)
+            .build();
     private static final String BASE_URL = "http://10.0.2.2:5000/";
+    private static UploadCheckpointStore uploadCheckpoints;
+    // shared by all the uploads, a server without upload sessions is asked for one only once
+    private static ChunkedUploader chunkedUploader;
+    private static final UploadDeduplicator uploadDeduplicator = new UploadDeduplicator(client, HttpUrl.get(BASE_URL));
+    private static final DeltaUploader deltaUploader = new DeltaUploader(uploadClient, HttpUrl.get(BASE_URL));
+    private static UserHttpCache httpCache;
+    // identical calls that run at the same time, e.g. after a double tap, share a single request
+    private static final SingleFlight<ArrayList<File>> filesCalls = new SingleFlight<>();
+    private static final SingleFlight<FilePage> filesSyncCalls = new SingleFlight<>();
+    private static final SingleFlight<String> summaryCalls = new SingleFlight<>();
+    private static final SingleFlight<ChatHistoryPage> chatHistoryCalls = new SingleFlight<>();
+
+    /**
+     * Create the http client shared by all the API calls, so every request reuses
+     * the warm connections of a single pool instead of paying for a new handshake.
+     * The dispatcher limits only bound the enqueued calls, a call that is executed runs on the thread
+     * that executes it, so the blocking calls are bounded by the pool they are run on instead.
+     * @param h2cPriorKnowledge - whether to speak HTTP/2 over cleartext without an upgrade.
+     * @return The configured http client, with the timeouts of the quick calls.
+     */
+    static OkHttpClient createClient(boolean h2cPriorKnowledge) {
+        // enqueued calls run on the bounded network pool instead of an unbounded one
+        Dispatcher dispatcher = new Dispatcher(ApiExecutors.network());
+        dispatcher.setMaxRequests(ApiExecutors.NETWORK_THREADS);
+        // all the calls go to a single backend host
+        dispatcher.setMaxRequestsPerHost(8);
+
+        List<Protocol> protocols = h2cPriorKnowledge
+                ? Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE)
+                : Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(8, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .protocols(protocols)
+                // cancelling a background work cancels the calls it executes
+                .addInterceptor(ApiExecutors.cancellation())
+                // its retries and duplicate requests go through the whole chain again
+                .addInterceptor(resilience)
+                // a canceled call cancels them at once
+                .eventListenerFactory(resilience.eventListenerFactory())
+                // text bodies are sent gzipped and responses asked gzipped, the derived clients share it
+                .addInterceptor(compression)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(15, TimeUnit.SECONDS)
+                .writeTimeout(15, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @return The wire and decoded byte counters of every endpoint that was called.
+     */
+    public static Map<String, CompressionInterceptor.EndpointStats> getCompressionStats() {
+        return compression.getStats();
+    }
+
+    /**
+     * @return The retry, duplicate request and fail fast counters of every endpoint that was called.
+     */
+    public static Map<String, ResilienceInterceptor.EndpointStats> getResilienceStats() {
+        return resilience.getStats();
+    }
 
     /**
      * Login to the backend server.
@@ -38,42 +128,60 @@ public class ApiClient {
      * @throws InvalidCredentialsException if the login credentials are invalid.
      */
     public static List<String> login(String email, String password) throws InvalidCredentialsException, RuntimeException {
+        try (Response response = client.newCall(loginRequest(email, password)).execute()) {
+            return parseLogin(response);
+        } catch (IOException | JSONException e) {
+            throw new RuntimeException("Failed to login", e);
+        }
+    }
+
+    /**
+     * Login to the backend server without blocking the calling thread.
+     * @param email - user's email address.
+     * @param password - user's password.
+     * @return A future completed on the main thread with the JWT access token and the user's full name,
+     * or with the exception login throws.
+     */
+    public static CompletableFuture<List<String>> loginAsync(String email, String password) {
+        return AsyncCall.enqueue(client, loginRequest(email, password), ApiClient::parseLogin,
+                ApiExecutors.mainThread(), "Failed to login");
+    }
+
+    private static Request loginRequest(String email, String password) {
         MediaType JSON = MediaType.get("application/json; charset=utf-8");
         String json = "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
         RequestBody body = RequestBody.create(json, JSON);
 
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(BASE_URL + "auth/login")
                 .post(body)
                 .build();
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            int statusCode = response.code();
+    private static List<String> parseLogin(Response response) throws IOException, JSONException {
+        int statusCode = response.code();
 
-            if (statusCode == 200) { // Success
-                if (response.body() != null) {
-                    String jsonResponse = response.body().string();
-                    JSONObject obj = new JSONObject(jsonResponse);
-                    String token = obj.getString("token");
-                    String full_name = obj.getString("full_name");
-                    Log.d("auth", "JWT Token: " + token);
+        if (statusCode == 200) { // Success
+            if (response.body() != null) {
+                String jsonResponse = response.body().string();
+                JSONObject obj = new JSONObject(jsonResponse);
+                String token = obj.getString("token");
+                String full_name = obj.getString("full_name");
+                Log.d("auth", "JWT Token: " + token);
 
-                    ArrayList<String> result = new ArrayList<>();
-                    result.add(token);
-                    result.add(full_name);
+                ArrayList<String> result = new ArrayList<>();
+                result.add(token);
+                result.add(full_name);
 
-                    return result;
-                } else {
-                    throw new RuntimeException("Login succeeded but response body is empty!");
-                }
-            } else if (statusCode == 401) { // Invalid credentials
-                throw new InvalidCredentialsException("Invalid email or password");
-            } else { // Other errors
-                String errorBody = response.body() != null ? response.body().string() : "No details";
-                throw new RuntimeException("Login failed with status " + statusCode + ": " + errorBody);
+                return result;
+            } else {
+                throw new RuntimeException("Login succeeded but response body is empty!");
             }
-        } catch (IOException | JSONException e) {
-            throw new RuntimeException("Failed to login", e);
+        } else if (statusCode == 401) { // Invalid credentials
+            throw new InvalidCredentialsException("Invalid email or password");
+        } else { // Other errors
+            String errorBody = response.body() != null ? response.body().string() : "No details";
+            throw new RuntimeException("Login failed with status " + statusCode + ": " + errorBody);
         }
     }
 
@@ -87,38 +195,57 @@ public class ApiClient {
      * @throws UserAlreadyExistsException if the user is already exists in the database.
      */
     public static String register(String fullName, String email, String password) throws UserAlreadyExistsException, RuntimeException {
+        try (Response response = client.newCall(registerRequest(fullName, email, password)).execute()) {
+            return parseRegister(response);
+        } catch (IOException | JSONException e) {
+            throw new RuntimeException("Failed to register", e);
+        }
+    }
+
+    /**
+     * Register as a new user to the backend server without blocking the calling thread.
+     * @param fullName - user's full name.
+     * @param email - user's email address.
+     * @param password - user's password.
+     * @return A future completed on the main thread with the JWT access token,
+     * or with the exception register throws.
+     */
+    public static CompletableFuture<String> registerAsync(String fullName, String email, String password) {
+        return AsyncCall.enqueue(client, registerRequest(fullName, email, password), ApiClient::parseRegister,
+                ApiExecutors.mainThread(), "Failed to register");
+    }
+
+    private static Request registerRequest(String fullName, String email, String password) {
         MediaType JSON = MediaType.get("application/json; charset=utf-8");
         String json = "{\"full_name\":\"" + fullName + "\","
                 + "\"email\":\"" + email + "\","
                 + "\"password\":\"" + password + "\"}";
         RequestBody body = RequestBody.create(json, JSON);
 
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(BASE_URL + "auth/register")
                 .post(body)
                 .build();
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            int statusCode = response.code();
+    private static String parseRegister(Response response) throws IOException, JSONException {
+        int statusCode = response.code();
 
-            if (statusCode == 201) { // Success
-                if (response.body() != null) {
-                    String jsonResponse = response.body().string();
-                    JSONObject obj = new JSONObject(jsonResponse);
-                    String token = obj.getString("token");
-                    Log.d("API", "JWT Token: " + token);
-                    return token;
-                } else {
-                    throw new RuntimeException("Registration succeeded but response body is empty!");
-                }
-            } else if (statusCode == 400) { // User already exists
-                throw new UserAlreadyExistsException("User with this email already exists");
-            } else { // Other errors
-                String errorBody = response.body() != null ? response.body().string() : "No details";
-                throw new RuntimeException("Registration failed with status " + statusCode + ": " + errorBody);
+        if (statusCode == 201) { // Success
+            if (response.body() != null) {
+                String jsonResponse = response.body().string();
+                JSONObject obj = new JSONObject(jsonResponse);
+                String token = obj.getString("token");
+                Log.d("API", "JWT Token: " + token);
+                return token;
+            } else {
+                throw new RuntimeException("Registration succeeded but response body is empty!");
             }
-        } catch (IOException | JSONException e) {
-            throw new RuntimeException("Failed to register", e);
+        } else if (statusCode == 400) { // User already exists
+            throw new UserAlreadyExistsException("User with this email already exists");
+        } else { // Other errors
+            String errorBody = response.body() != null ? response.body().string() : "No details";
+            throw new RuntimeException("Registration failed with status " + statusCode + ": " + errorBody);
         }
     }
 
@@ -136,100 +263,187 @@ public class ApiClient {
             throw new RuntimeException("Unauthorized");
         }
 
-        Request request = new Request.Builder()
+        Request request = WireFormat.accept(new Request.Builder(), BINARY_WIRE_FORMAT)
                 .url(BASE_URL + "files/")
                 .addHeader("Authorization", "Bearer " + savedToken)
                 .build();
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.body() != null) {
-                String jsonResponse = response.body().string();
-
-                // parse the json
-                return parseFilesJsonArray(jsonResponse);
-            } else {
-                throw new RuntimeException("Failed to get my files");
+        // every caller gets its own copy of the shared result
+        return new ArrayList<>(filesCalls.execute(savedToken, () -> {
+            try (Response response = getCachedClient(context, savedToken).newCall(request).execute()) {
+                if (response.isSuccessful()) {
+                    // decode the response straight from its stream
+                    return WireFormat.decodeFilePage(response.body()).getFiles();
+                } else {
+                    throw new RuntimeException("Failed to get my files, status " + response.code());
+                }
+            } catch (IOException | JsonDataException e) {
+                throw new RuntimeException("Failed to get my files", e);
             }
-        } catch (IOException | JSONException e) {
-            throw new RuntimeException("Failed to get my files", e);
-        }
+        }));
     }
 
     /**
-     * Parse a JSONArray into ArrayList of File objects.
-     * @param jsonResponse - the JSONArray from the http response.
-     * @return A list of File objects.
-     * @throws JSONException if parse attempt failed.
+     * Get the user's files that changed since the last sync from the backend server.
+     * @param context - called activity context.
+     * @param watermark - watermark returned by the last sync, or null for a full sync.
+     * @return The changed and deleted files. A page without a watermark holds all the user's files.
+     * @throws RuntimeException if failed while trying getting the files.
      */
-    @NonNull
-    private static ArrayList<File> parseFilesJsonArray(String jsonResponse) throws JSONException {
-        JSONObject jsonObj = new JSONObject(jsonResponse);
-        JSONArray filesArray = jsonObj.getJSONArray("files");
-
-        // convert json array into ArrayList<File>
-        ArrayList<File> myFiles = new ArrayList<>();
-        for (int i = 0; i < filesArray.length(); i++) {
-            JSONObject obj = filesArray.getJSONObject(i);
-            File file = new File(
-                    obj.getString("id"),
-                    obj.getString("filename"),
-                    obj.getString("uploaded_at")
-            );
-            myFiles.add(file);
+    public static FilePage getMyFilesUpdatedSince(Context context, String watermark) throws RuntimeException {
+        SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
+        String savedToken = prefs.getString("jwt_token", null);
+
+        if (savedToken == null) {
+            throw new RuntimeException("Unauthorized");
         }
-        return myFiles;
+
+        HttpUrl.Builder url = Objects.requireNonNull(HttpUrl.parse(BASE_URL + "files/")).newBuilder();
+        if (watermark != null) {
+            url.addQueryParameter("updated_since", watermark);
+        }
+
+        Request request = WireFormat.accept(new Request.Builder(), BINARY_WIRE_FORMAT)
+                .url(url.build())
+                .addHeader("Authorization", "Bearer " + savedToken)
+                .build();
+
+        return filesSyncCalls.execute(savedToken + "\n" + watermark, () -> {
+            try (Response response = getCachedClient(context, savedToken).newCall(request).execute()) {
+                if (response.isSuccessful()) {
+                    return WireFormat.decodeFilePage(response.body());
+                } else {
+                    throw new RuntimeException("Failed to sync my files, status " + response.code());
+                }
+            } catch (IOException | JsonDataException e) {
+                throw new RuntimeException("Failed to sync my files", e);
+            }
+        });
     }
 
     /**
-     * Parse a JSONArray into ArrayList of ChatMessage objects.
-     * @param jsonResponse - the JSONArray from the http response.
-     * @return A list of ChatMessage objects.
-     * @throws JSONException if parse attempt failed.
+     * Create a source that loads the user's uploaded files from the backend server page by page.
+     * @param context - called activity context.
+     * @return A paged source positioned at the first page.
+     * @throws RuntimeException if the user isn't logged in.
      */
-    private static ArrayList<ChatMessage> parseChatJsonArray(String jsonResponse) throws JSONException {
-        // parse the json
-        JSONObject jsonObj = new JSONObject(jsonResponse);
-        JSONArray chatMessageArray = jsonObj.getJSONArray("chat_history");
-
-        // convert json array into ArrayList<ChatMessage>
-        ArrayList<ChatMessage> chatMessages = new ArrayList<>();
-        for (int i = 0; i < chatMessageArray.length(); i++) {
-            JSONObject obj = chatMessageArray.getJSONObject(i);
-            ChatMessage message = new ChatMessage(
-                    obj.getString("sender"),
-                    obj.getString("text")
-            );
-            chatMessages.add(message);
+    public static PagedFileSource getMyFilesPaged(Context context) throws RuntimeException {
+        SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
+        String savedToken = prefs.getString("jwt_token", null);
+
+        if (savedToken == null) {
+            throw new RuntimeException("Unauthorized");
         }
-        return chatMessages;
+
+        return new PagedFileSource(
+                getCachedClient(context, savedToken),
+                HttpUrl.get(BASE_URL),
+                savedToken,
+                PagedFileSource.DEFAULT_PAGE_SIZE,
+                BINARY_WIRE_FORMAT
+        );
     }
 
     /**
      * Upload a file to the backend server.
+     * The server is first asked whether it already stores the content of the file, in which case
+     * no byte of it is sent. A new version of a file the server stores under the same name is sent as
+     * the differences from the stored version. Otherwise the file is sent in chunks that can be resumed after a failure,
+     * servers that don't support chunked uploads get a single streamed multipart request instead.
      * @param context - called activity context.
      * @param fileUri - uri of the file to upload.
      * @param fileName - name of the file to upload.
-     * @throws RuntimeException if upload attempt failed.
+     * @param mimeType - MIME type of the file.
+     * @param onBytesSent - called with the number of bytes the server stored so far, the multipart
+     *                    fallback doesn't report its progress.
+     * @return The uploaded file, or null if the server didn't describe it and the files must be synced.
+     * @throws IOException if the upload failed and can be retried.
+     * @throws UploadRejectedException if the server refused the file.
+     * @throws RuntimeException if the server response is invalid.
      */
-    public static void uploadFile(Context context, Uri fileUri, String fileName) throws RuntimeException {
+    public static File uploadFile(Context context, Uri fileUri, String fileName, String mimeType,
+                                  LongConsumer onBytesSent) throws IOException {
         SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
         String savedToken = prefs.getString("jwt_token", null);
 
-        try {
-            // Open InputStream from Uri
-            InputStream inputStream = context.getContentResolver().openInputStream(fileUri);
-            if (inputStream == null) return;
+        if (savedToken == null) {
+            throw new RuntimeException("Unauthorized");
+        }
+
+        return uploadFile(context, savedToken, fileUri, fileName, mimeType, onBytesSent);
+    }
 
-            byte[] fileBytes = new byte[inputStream.available()];
-            inputStream.read(fileBytes);
-            inputStream.close();
+    /**
+     * Upload a file to the backend server as a specific user, see {@link #uploadFile(Context, Uri, String, String, LongConsumer)}.
+     * A queued upload is sent as the user that queued it, even if another user logged in since.
+     * @param context - called activity context.
+     * @param savedToken - JWT access token of the user.
+     * @param fileUri - uri of the file to upload.
+     * @param fileName - name of the file to upload.
+     * @param mimeType - MIME type of the file.
+     * @param onBytesSent - called with the number of bytes the server stored so far.
+     * @return The uploaded file, or null if the server didn't describe it and the files must be synced.
+     * @throws IOException if the upload failed and can be retried.
+     * @throws UploadRejectedException if the server refused the file.
+     * @throws RuntimeException if the server response is invalid.
+     */
+    public static File uploadFile(Context context, String savedToken, Uri fileUri, String fileName, String mimeType,
+                                  LongConsumer onBytesSent) throws IOException {
+        MediaType mediaType = MediaType.parse(mimeType);
+        UploadSource source = new UriUploadSource(context.getContentResolver(), fileUri);
 
-            OkHttpClient client = new OkHttpClient();
+        try {
+            // the content is read for its hash only by a server that probes it, the delta upload hashes it
+            // itself once the server has a version to diff against
+            String sha256 = null;
+            if (uploadDeduplicator.isSupported()) {
+                sha256 = UploadDeduplicator.sha256(source);
+                File existing = uploadDeduplicator.findExisting(savedToken, source, fileName, sha256);
+                if (existing != null) {
+                    Log.i("upload", fileName + " is already stored by the server");
+                    return existing;
+                }
+            }
+
+            // an edited file is sent as the differences from the version stored under its name
+            String deltaResponse = deltaUploader.upload(savedToken, source, fileName, sha256, onBytesSent);
+            if (deltaResponse != null) {
+                Log.i("responseBody", deltaResponse);
+                return JsonStreamDecoder.decodeUploadedFile(new Buffer().writeUtf8(deltaResponse));
+            }
 
-            RequestBody fileBody = RequestBody.create(
-                    fileBytes,
-                    MediaType.parse(Objects.requireNonNull(context.getContentResolver().getType(fileUri)))
+            String responseBody = getChunkedUploader(context).upload(
+                    savedToken,
+                    source,
+                    fileName,
+                    mediaType,
+                    onBytesSent
             );
+            Log.i("responseBody", responseBody);
+            return JsonStreamDecoder.decodeUploadedFile(new Buffer().writeUtf8(responseBody));
+        } catch (UnsupportedEndpointException e) {
+            return uploadFileMultipart(context, fileUri, fileName, mediaType, savedToken);
+        } catch (JsonDataException e) {
+            throw new RuntimeException("Failed to upload the file");
+        }
+    }
+
+    /**
+     * Upload a file to the backend server in a single multipart request.
+     * @param context - called activity context.
+     * @param fileUri - uri of the file to upload.
+     * @param fileName - name of the file to upload.
+     * @param mediaType - MIME type of the file.
+     * @param savedToken - JWT access token.
+     * @return The uploaded file, or null if the server didn't describe it.
+     * @throws IOException if the upload failed and can be retried.
+     * @throws UploadRejectedException if the server refused the file.
+     */
+    private static File uploadFileMultipart(Context context, Uri fileUri, String fileName,
+                                            MediaType mediaType, String savedToken) throws IOException {
+        try {
+            // stream the file content instead of loading it into memory
+            RequestBody fileBody = new UriRequestBody(context.getContentResolver(), fileUri, mediaType);
 
             MultipartBody requestBody = new MultipartBody.Builder()
                     .setType(MultipartBody.FORM)
@@ -239,17 +453,75 @@ public class ApiClient {
             Request request = new Request.Builder()
                     .url(BASE_URL + "upload/") // your endpoint
                     .addHeader("Authorization", "Bearer " + savedToken)
+                    // the type of the file, so a text file is compressed
+                    .tag(MediaType.class, mediaType)
                     .post(requestBody)
                     .build();
 
-            Response response = client.newCall(request).execute();
-            String responseBody = response.body() != null ? response.body().string() : "";
-            Log.i("responseBody", responseBody);
-        } catch (IOException e) {
+            try (Response response = uploadClient.newCall(request).execute()) {
+                String responseBody = response.body().string();
+                Log.i("responseBody", responseBody);
+                // a 409 means a file of this name is already stored
+                if (ChunkedUploader.isRejected(response.code()) || response.code() == 409) {
+                    throw new UploadRejectedException("Failed to upload the file, status " + response.code());
+                } else if (!response.isSuccessful()) {
+                    throw new IOException("Failed to upload the file, status " + response.code());
+                }
+                return JsonStreamDecoder.decodeUploadedFile(new Buffer().writeUtf8(responseBody));
+            }
+        } catch (JsonDataException e) {
             throw new RuntimeException("Failed to upload the file");
         }
     }
 
+    /**
+     * Get the uploader of the chunked uploads, it resumes the unfinished uploads from their checkpoints.
+     * @param context - called activity context.
+     * @return The chunked uploader.
+     */
+    private static synchronized ChunkedUploader getChunkedUploader(Context context) {
+        if (chunkedUploader == null) {
+            chunkedUploader = new ChunkedUploader(
+                    uploadClient,
+                    HttpUrl.get(BASE_URL),
+                    getUploadCheckpoints(context),
+                    ChunkedUploader.DEFAULT_CHUNK_SIZE,
+                    ChunkedUploader.DEFAULT_MAX_ATTEMPTS
+            );
+        }
+        return chunkedUploader;
+    }
+
+    /**
+     * Get the store of the unfinished chunked uploads, kept in the app's private files directory.
+     * @param context - called activity context.
+     * @return The upload checkpoint store.
+     */
+    private static synchronized UploadCheckpointStore getUploadCheckpoints(Context context) {
+        if (uploadCheckpoints == null) {
+            uploadCheckpoints = new UploadCheckpointStore(
+                    new java.io.File(context.getFilesDir(), "upload_checkpoints.properties"));
+        }
+        return uploadCheckpoints;
+    }
+
+    /**
+     * Get the http client of the read endpoints, which caches the responses of the logged in user on disk.
+     * @param context - called activity context.
+     * @param savedToken - JWT access token.
+     * @return The caching http client.
+     */
+    private static synchronized OkHttpClient getCachedClient(Context context, String savedToken) {
+        if (httpCache == null) {
+            httpCache = new UserHttpCache(
+                    client,
+                    new java.io.File(context.getCacheDir(), "http"),
+                    UserHttpCache.MAX_CACHE_SIZE
+            );
+        }
+        return httpCache.clientFor(savedToken);
+    }
+
     /**
      * Summarize a file content using the backend AI Model.
      * @param context - called activity context.
@@ -263,6 +535,39 @@ public class ApiClient {
         SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
         String savedToken = prefs.getString("jwt_token", null);
 
+        String key = savedToken + "\n" + fileId + "\n" + style + "\n" + length;
+        return summaryCalls.execute(key, () -> {
+            try (Response response = modelClient.newCall(summaryRequest(savedToken, fileId, style, length)).execute()) {
+                return parseSummary(response);
+            } catch (IOException | JSONException e) {
+                throw new RuntimeException("Failed to summarize", e);
+            }
+        });
+    }
+
+    /**
+     * Summarize a file content using the backend AI Model without blocking the calling thread.
+     * @param context - called activity context.
+     * @param fileId - ID of the file to summarize.
+     * @param style - summary style (Bullets, Paragraph)
+     * @param length - summary length (Short, Medium, Long)
+     * @return A future completed on the main thread with the AI-Powered file summary,
+     * or with the exception summarizeFile throws.
+     */
+    public static CompletableFuture<String> summarizeFileAsync(Context context, String fileId, String style, String length) {
+        SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
+        String savedToken = prefs.getString("jwt_token", null);
+
+        String key = savedToken + "\n" + fileId + "\n" + style + "\n" + length;
+        return summaryCalls.executeAsync(
+                key,
+                () -> AsyncCall.enqueue(modelClient, summaryRequest(savedToken, fileId, style, length),
+                        ApiClient::parseSummary, Runnable::run, "Failed to summarize"),
+                ApiExecutors.mainThread()
+        );
+    }
+
+    private static Request summaryRequest(String savedToken, String fileId, String style, String length) throws RuntimeException {
         try {
             // Build JSON body
             JSONObject jsonBody = new JSONObject();
@@ -276,44 +581,47 @@ public class ApiClient {
             );
 
             // Build request
-            Request request = new Request.Builder()
+            return new Request.Builder()
                     .url(BASE_URL + "summarize/file/")
                     .addHeader("Authorization", "Bearer " + savedToken)
                     .post(body)
                     .build();
+        } catch (JSONException e) {
+            throw new RuntimeException("Failed to summarize", e);
+        }
+    }
 
-            Response response = client.newCall(request).execute();
-            String responseBody = response.body() != null ? response.body().string() : "";
-            JSONObject jsonResponse = new JSONObject(responseBody);
+    private static String parseSummary(Response response) throws IOException, JSONException {
+        String responseBody = response.body() != null ? response.body().string() : "";
+        JSONObject jsonResponse = new JSONObject(responseBody);
 
 
-            Object summaryObj = jsonResponse.get("summary");
-            if (summaryObj instanceof JSONArray) {
-                JSONArray summaryArray = (JSONArray) summaryObj;
-                StringBuilder sb = new StringBuilder();
-                for (int i = 0; i < summaryArray.length(); i++) {
-                    sb.append("• ").append(summaryArray.getString(i)).append("\n");
-                }
-                return sb.toString();
-            } else if (summaryObj instanceof String) {
-                return (String) summaryObj;
-            } else {
-                throw new RuntimeException("Unexpected summary format");
+        Object summaryObj = jsonResponse.get("summary");
+        if (summaryObj instanceof JSONArray) {
+            JSONArray summaryArray = (JSONArray) summaryObj;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < summaryArray.length(); i++) {
+                sb.append("• ").append(summaryArray.getString(i)).append("\n");
             }
-
-        } catch (IOException | JSONException e) {
-            throw new RuntimeException("Failed to summarize", e);
+            return sb.toString();
+        } else if (summaryObj instanceof String) {
+            return (String) summaryObj;
+        } else {
+            throw new RuntimeException("Unexpected summary format");
         }
     }
 
     /**
-     * Gets the chat history with the AI Model for a specific file.
+     * Gets the chat messages with the AI Model for a specific file that are newer than the last sync.
      * @param context - called activity context.
      * @param fileId - ID of the chat context file.
-     * @return A list of ChatMessage represent the history char conversation.
+     * @param cursor - cursor returned by the last sync, or null for the full history.
+     * @param start - number of messages the cursor covers.
+     * @return The newer messages, or the full history if the server can't continue from the cursor.
      * @throws RuntimeException if getting the chat history attempt failed.
      */
-    public static ArrayList<ChatMessage> getChatHistory(Context context, String fileId) throws RuntimeException {
+    public static ChatHistoryPage getChatHistory(Context context, String fileId, String cursor, int start)
+            throws RuntimeException {
         SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
         String savedToken = prefs.getString("jwt_token", null);
 
@@ -321,26 +629,15 @@ public class ApiClient {
             throw new RuntimeException("Unauthorized");
         }
 
-        HttpUrl url = Objects.requireNonNull(HttpUrl.parse(BASE_URL + "chat/history"))
-                .newBuilder()
-                .addQueryParameter("context_file_id", fileId)
-                .build();
-
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("Authorization", "Bearer " + savedToken)
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (response.body() != null) {
-                String jsonResponse = response.body().string();
-                return parseChatJsonArray(jsonResponse);
-            } else {
-                throw new RuntimeException("Failed to get chat history");
+        ChatHistorySource source = new ChatHistorySource(
+                getCachedClient(context, savedToken), HttpUrl.get(BASE_URL), savedToken, BINARY_WIRE_FORMAT);
+        return chatHistoryCalls.execute(savedToken + "\n" + fileId + "\n" + cursor, () -> {
+            try {
+                return source.load(fileId, cursor, start);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to get chat history", e);
             }
-        } catch (IOException | JSONException e) {
-            throw new RuntimeException("Failed to get chat history", e);
-        }
+        });
     }
 
     /**
@@ -355,30 +652,94 @@ public class ApiClient {
         SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
         String savedToken = prefs.getString("jwt_token", null);
 
+        try (Response response = modelClient.newCall(askModelRequest(savedToken, fileId, question)).execute()) {
+            return parseAnswer(response);
+        } catch (IOException | JSONException e) {
+            throw new RuntimeException("Failed to ask model", e);
+        }
+    }
+
+    /**
+     * Ask the backend AI Model a question about the file without blocking the calling thread.
+     * @param context - called activity context.
+     * @param fileId - ID of the chat context file.
+     * @param question - the question to ask.
+     * @return A future completed on the main thread with the AI Model answer,
+     * or with the exception askModel throws.
+     */
+    public static CompletableFuture<String> askModelAsync(Context context, String fileId, String question) {
+        SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
+        String savedToken = prefs.getString("jwt_token", null);
+
+        return AsyncCall.enqueue(modelClient, askModelRequest(savedToken, fileId, question), ApiClient::parseAnswer,
+                ApiExecutors.mainThread(), "Failed to ask model");
+    }
+
+    /**
+     * Ask the backend AI Model a question about the file, and receive the answer while it is generated.
+     * A server without streaming support sends the whole answer as a single chunk.
+     * @param context - called activity context.
+     * @param fileId - ID of the chat context file.
+     * @param question - the question to ask.
+     * @param listener - receives the answer chunks on the main thread.
+     * @return A future completed on the main thread with the full answer,
+     * or with the exception askModel throws.
+     */
+    public static CompletableFuture<String> askModelStreaming(Context context, String fileId, String question,
+                                                              ChatStream.TokenListener listener) {
+        SharedPreferences prefs = context.getSharedPreferences("MyAppPrefs", MODE_PRIVATE);
+        String savedToken = prefs.getString("jwt_token", null);
+        Executor mainThread = ApiExecutors.mainThread();
+
+        try {
+            JSONObject json = new JSONObject();
+            json.put("context_file_id", fileId);
+            json.put("question", question);
+            json.put("stream", true);
+
+            Request request = new Request.Builder()
+                    .url(BASE_URL + "chat/")
+                    .addHeader("Authorization", "Bearer " + savedToken)
+                    .addHeader("Accept", ChatStream.EVENT_STREAM + ", application/json")
+                    .post(RequestBody.create(json.toString(), MediaType.get("application/json; charset=utf-8")))
+                    .build();
+
+            return AsyncCall.enqueue(
+                    modelClient,
+                    request,
+                    response -> ChatStream.read(response, token -> mainThread.execute(() -> listener.onToken(token))),
+                    mainThread,
+                    "Failed to ask model"
+            );
+        } catch (JSONException e) {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new RuntimeException("Failed to ask model", e));
+            return failed;
+        }
+    }
+
+    private static Request askModelRequest(String savedToken, String fileId, String question) {
         MediaType JSON = MediaType.get("application/json; charset=utf-8");
         String json = "{\"context_file_id\":\"" + fileId + "\",\"question\":\"" + question + "\"}";
         RequestBody body = RequestBody.create(json, JSON);
 
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(BASE_URL + "chat/")
                 .addHeader("Authorization", "Bearer " + savedToken)
                 .post(body)
                 .build();
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            Log.i("test", "hello");
-            if (response.body() != null) {
-                String jsonResponse = response.body().string();
+    private static String parseAnswer(Response response) throws IOException, JSONException {
+        if (response.body() != null) {
+            String jsonResponse = response.body().string();
 
-                // Parse the JSON
-                JSONObject obj = new JSONObject(jsonResponse);
+            // Parse the JSON
+            JSONObject obj = new JSONObject(jsonResponse);
 
-                return obj.getString("answer");
-            } else {
-                throw new RuntimeException("Failed to ask model");
-            }
-        } catch (IOException | JSONException e) {
-            throw new RuntimeException("Failed to ask model", e);
+            return obj.getString("answer");
+        } else {
+            throw new RuntimeException("Failed to ask model");
         }
     }
 }
@@ -0,0 +1,250 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * This class holds the bounded thread pools that run all the app's background work,
+ * so the number of threads stays flat however many actions the user starts.
+ * The network pool runs the enqueued http calls, the upload pool runs the queued uploads, the hedge pool runs
+ * the duplicate requests of slow reads, the background pool runs the blocking work (the local database and syncs),
+ * and the results are delivered on the main thread.
+ */
+public class ApiExecutors {
+    // matches the maximum number of concurrent requests of the http dispatcher
+    public static final int NETWORK_THREADS = 16;
+    public static final int BACKGROUND_THREADS = 4;
+    // matches the maximum number of concurrent uploads of the upload queue
+    public static final int UPLOAD_THREADS = UploadQueue.DEFAULT_MAX_CONCURRENT;
+    // the files list and the chat history are hedged, each with its own budget of duplicate requests
+    public static final int HEDGE_THREADS = 2 * ResilienceInterceptor.DEFAULT_MAX_HEDGES;
+    private static final ExecutorService network = newPool("api-network", NETWORK_THREADS);
+    private static final ExecutorService uploads = newPool("api-upload", UPLOAD_THREADS);
+    private static final ExecutorService hedges = newPool("api-hedge", HEDGE_THREADS);
+    private static final ExecutorService background = newPool("api-background", BACKGROUND_THREADS);
+    private static final ScheduledExecutorService scheduler = newScheduler("api-scheduler");
+    private static Executor mainThread;
+    // the work of supplyAsync running on the current background thread
+    private static final ThreadLocal<BackgroundWork> currentWork = new ThreadLocal<>();
+
+    /**
+     * @return The pool of the http dispatcher, which runs the enqueued calls.
+     */
+    public static ExecutorService network() {
+        return network;
+    }
+
+    /**
+     * @return The pool of the queued uploads, a long upload doesn't hold a thread of the enqueued calls.
+     */
+    public static ExecutorService uploads() {
+        return uploads;
+    }
+
+    /**
+     * @return The pool of the duplicate requests, a slow backend doesn't take the threads of the enqueued calls.
+     */
+    public static ExecutorService hedges() {
+        return hedges;
+    }
+
+    /**
+     * @return The pool of the blocking background work.
+     */
+    public static ExecutorService background() {
+        return background;
+    }
+
+    /**
+     * @return A single thread that runs the delayed tasks, e.g. retry timers. Its tasks must be short,
+     * longer work is handed over to the other pools.
+     */
+    public static ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return An executor that runs its tasks on the main thread.
+     */
+    public static synchronized Executor mainThread() {
+        if (mainThread == null) {
+            Handler handler = new Handler(Looper.getMainLooper());
+            mainThread = handler::post;
+        }
+        return mainThread;
+    }
+
+    /**
+     * Run blocking work on the background pool.
+     * @param task - the work, it reports a failure by throwing.
+     * @return A future that is completed on the main thread with the work result or exception,
+     * cancelling it cancels the http calls the work executes and interrupts the work.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Executor callbackExecutor = mainThread();
+        BackgroundWork backgroundWork = new BackgroundWork();
+        Future<?> work = background.submit(() -> {
+            currentWork.set(backgroundWork);
+            try {
+                T result = task.get();
+                callbackExecutor.execute(() -> future.complete(result));
+            } catch (RuntimeException | Error e) {
+                callbackExecutor.execute(() -> future.completeExceptionally(e));
+            } finally {
+                currentWork.remove();
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                // an interrupt doesn't unblock an executed http call, only cancelling the call does
+                backgroundWork.cancel();
+                work.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Run blocking work without a result on the background pool.
+     * @param task - the work, it reports a failure by throwing.
+     * @return A future that is completed on the main thread when the work finished.
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task) {
+        return supplyAsync(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Get the exception a chained future failed with, it is wrapped by the stages that follow it.
+     * @param error - the exception a future completed with.
+     * @return The original exception.
+     */
+    public static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * @return An interceptor that ties the calls executed by the work of {@link #supplyAsync} to it,
+     * so they are cancelled when the work is. It must be the first interceptor of the client.
+     */
+    static Interceptor cancellation() {
+        return new CancellationInterceptor();
+    }
+
+    /**
+     * Create a fixed size pool, its threads exit after a minute without work.
+     */
+    private static ExecutorService newPool(String name, int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(name)
+        );
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Create a single thread scheduler, its thread exits after a minute without tasks.
+     */
+    private static ScheduledExecutorService newScheduler(String name) {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory(name));
+        scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        return scheduler;
+    }
+
+    /**
+     * The http calls executed by a single background work, the calls are kept until the work ends
+     * since their response bodies are read after the interceptors returned.
+     */
+    static class BackgroundWork {
+        private final List<Call> calls = new ArrayList<>();
+        private boolean cancelled = false;
+
+        /**
+         * @return False if the work was already cancelled.
+         */
+        synchronized boolean add(Call call) {
+            if (cancelled) {
+                return false;
+            }
+            calls.add(call);
+            return true;
+        }
+
+        void cancel() {
+            List<Call> running;
+            synchronized (this) {
+                cancelled = true;
+                running = new ArrayList<>(calls);
+                calls.clear();
+            }
+            for (Call call : running) {
+                call.cancel();
+            }
+        }
+    }
+
+    /**
+     * This interceptor adds every call executed on a background work thread to its work.
+     * An enqueued call runs on a dispatcher thread, which has no work, and is cancelled by its own future.
+     */
+    static class CancellationInterceptor implements Interceptor {
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            BackgroundWork work = currentWork.get();
+            if (work != null && !work.add(chain.call())) {
+                chain.call().cancel();
+                throw new IOException("Canceled");
+            }
+            return chain.proceed(chain.request());
+        }
+    }
+
+    /**
+     * This factory names the pool threads, so they can be told apart in traces and thread dumps.
+     */
+    static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
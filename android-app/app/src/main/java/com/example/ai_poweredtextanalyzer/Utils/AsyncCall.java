@@ -0,0 +1,75 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.json.JSONException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * This class runs a single http call asynchronously with the OkHttp dispatcher,
+ * instead of blocking a thread until the response arrives.
+ */
+public class AsyncCall {
+
+    /**
+     * Parses the response of a call into its result.
+     * @param <T> - type of the call result.
+     */
+    public interface ResponseParser<T> {
+        /**
+         * @param response - the call response, it is closed after the parser returns.
+         * @return The call result.
+         * @throws RuntimeException if the response is an error response.
+         */
+        T parse(Response response) throws IOException, JSONException;
+    }
+
+    /**
+     * Enqueue a call. Cancelling the returned future cancels the call.
+     * @param client - http client that runs the call.
+     * @param request - the request to send.
+     * @param parser - parses the response, runs on a dispatcher thread.
+     * @param callbackExecutor - executor the future is completed on, e.g. the main thread.
+     * @param errorMessage - message of the exception the future fails with when the call failed.
+     * @return A future of the call result.
+     */
+    public static <T> CompletableFuture<T> enqueue(OkHttpClient client, Request request, ResponseParser<T> parser,
+                                                   Executor callbackExecutor, String errorMessage) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                RuntimeException error = new RuntimeException(errorMessage, e);
+                callbackExecutor.execute(() -> future.completeExceptionally(error));
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                try (response) {
+                    T result = parser.parse(response);
+                    callbackExecutor.execute(() -> future.complete(result));
+                } catch (IOException | JSONException e) {
+                    RuntimeException error = new RuntimeException(errorMessage, e);
+                    callbackExecutor.execute(() -> future.completeExceptionally(error));
+                } catch (RuntimeException e) {
+                    callbackExecutor.execute(() -> future.completeExceptionally(e));
+                }
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import java.io.InterruptedIOException;
+import java.util.Random;
+
+/**
+ * This class computes the delays of an exponential backoff with jitter. The delay doubles with every
+ * failed attempt up to a maximum, and a random part of it is dropped, so the requests that failed
+ * together don't retry together.
+ */
+public class Backoff {
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random = new Random();
+
+    /**
+     * @param baseDelayMillis - delay after the first failed attempt, it doubles with every attempt.
+     * @param maxDelayMillis - maximum delay.
+     */
+    public Backoff(long baseDelayMillis, long maxDelayMillis) {
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * @param attempt - number of failed attempts, from 1.
+     * @return The delay before the next attempt, between half and all of the exponential delay.
+     */
+    public long delay(int attempt) {
+        long delay = baseDelayMillis << Math.min(Math.max(attempt - 1, 0), 20);
+        delay = Math.min(delay, maxDelayMillis);
+        return delay / 2 + (long) (random.nextDouble() * (delay - delay / 2));
+    }
+
+    /**
+     * Block the calling thread for the delay of an attempt, only on threads that are allowed to wait.
+     * @param attempt - number of failed attempts, from 1.
+     * @throws InterruptedIOException if the thread was interrupted while waiting.
+     */
+    public void sleep(int attempt) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+}
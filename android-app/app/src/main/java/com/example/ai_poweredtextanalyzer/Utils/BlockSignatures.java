@@ -0,0 +1,193 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import okio.Buffer;
+import okio.ByteString;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * This class represent the block signatures of a stored version of a file, which let a new version be
+ * sent as the differences from it, see {@link DeltaEncoder}.
+ * The file is split into blocks of a fixed size, the last one may be shorter. Every block has a weak
+ * checksum that can be rolled over the new version a byte at a time, and a strong hash that confirms
+ * a weak match. A false match is caught by the hash of the whole file the server checks, so the strong
+ * hash is kept short to keep the signatures small.
+ */
+public class BlockSignatures {
+    public static final int MIN_BLOCK_SIZE = 512;
+    public static final int MAX_BLOCK_SIZE = 64 * 1024;
+    // bytes of the SHA-256 of a block that are kept as its strong hash
+    static final int STRONG_HASH_LENGTH = 8;
+    private final int blockSize;
+    private final long fileSize;
+    private final int[] weakChecksums;
+    private final byte[][] strongHashes;
+
+    public BlockSignatures(int blockSize, long fileSize, int[] weakChecksums, byte[][] strongHashes) {
+        this.blockSize = blockSize;
+        this.fileSize = fileSize;
+        this.weakChecksums = weakChecksums;
+        this.strongHashes = strongHashes;
+    }
+
+    /**
+     * @param blockSize - size of the blocks of the new version.
+     * @return Signatures of an empty file, a delta against them sends the whole file.
+     */
+    public static BlockSignatures empty(int blockSize) {
+        return new BlockSignatures(blockSize, 0, new int[0], new byte[0][]);
+    }
+
+    /**
+     * @param fileSize - size of the file in bytes, or -1 if it is unknown.
+     * @return A block size that keeps both the signatures and the matched blocks small, about the
+     * square root of the file size like rsync.
+     */
+    public static int blockSizeFor(long fileSize) {
+        int blockSize = fileSize > 0 ? (int) Math.min(Math.sqrt(fileSize), MAX_BLOCK_SIZE) : MIN_BLOCK_SIZE;
+        return Math.max(MIN_BLOCK_SIZE, blockSize);
+    }
+
+    public int getBlockSize() { return blockSize; }
+    public long getFileSize() { return fileSize; }
+    public int getBlockCount() { return weakChecksums.length; }
+    public int getWeakChecksum(int block) { return weakChecksums[block]; }
+    public byte[] getStrongHash(int block) { return strongHashes[block]; }
+
+    /**
+     * @param block - index of a block.
+     * @return The length of the block, only the last block may be shorter than the block size.
+     */
+    public int getBlockLength(int block) {
+        return (int) Math.min(blockSize, fileSize - (long) block * blockSize);
+    }
+
+    /**
+     * Compute the signatures of a file, reading it a block at a time.
+     * @param inputStream - content of the file.
+     * @param blockSize - size of the blocks.
+     * @return The signatures of the file.
+     * @throws IOException if the file couldn't be read.
+     */
+    public static BlockSignatures compute(InputStream inputStream, int blockSize) throws IOException {
+        int[] weak = new int[16];
+        byte[][] strong = new byte[16][];
+        byte[] block = new byte[blockSize];
+        MessageDigest digest = newDigest();
+        int count = 0;
+        long fileSize = 0;
+
+        int length;
+        while ((length = readBlock(inputStream, block)) > 0) {
+            if (count == weak.length) {
+                weak = Arrays.copyOf(weak, count * 2);
+                strong = Arrays.copyOf(strong, count * 2);
+            }
+            weak[count] = weakChecksum(block, 0, length);
+            strong[count] = strongHash(digest, block, 0, length);
+            count++;
+            fileSize += length;
+        }
+        return new BlockSignatures(blockSize, fileSize, Arrays.copyOf(weak, count), Arrays.copyOf(strong, count));
+    }
+
+    /**
+     * Decode a {"block_size", "size", "blocks"} signatures response, the blocks are the base64 of the
+     * weak checksum and strong hash of every block, big endian.
+     * @param json - the response body.
+     * @return The decoded signatures.
+     * @throws JSONException if the JSON doesn't match the expected structure.
+     */
+    public static BlockSignatures fromJson(JSONObject json) throws JSONException {
+        ByteString blocks = ByteString.decodeBase64(json.getString("blocks"));
+        if (blocks == null || blocks.size() % (4 + STRONG_HASH_LENGTH) != 0) {
+            throw new JSONException("Invalid block signatures");
+        }
+
+        int count = blocks.size() / (4 + STRONG_HASH_LENGTH);
+        int[] weak = new int[count];
+        byte[][] strong = new byte[count][];
+        ByteBuffer buffer = blocks.asByteBuffer();
+        for (int i = 0; i < count; i++) {
+            weak[i] = buffer.getInt();
+            strong[i] = new byte[STRONG_HASH_LENGTH];
+            buffer.get(strong[i]);
+        }
+        return new BlockSignatures(json.getInt("block_size"), json.getLong("size"), weak, strong);
+    }
+
+    /**
+     * @return The signatures as a {"block_size", "size", "blocks"} JSON object.
+     */
+    public JSONObject toJson() throws JSONException {
+        Buffer blocks = new Buffer();
+        for (int i = 0; i < weakChecksums.length; i++) {
+            blocks.writeInt(weakChecksums[i]).write(strongHashes[i]);
+        }
+        return new JSONObject()
+                .put("block_size", blockSize)
+                .put("size", fileSize)
+                .put("blocks", blocks.readByteString().base64());
+    }
+
+    /**
+     * The rsync weak checksum of a block, its two 16 bit sums can be rolled a byte at a time.
+     */
+    static int weakChecksum(byte[] data, int offset, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            int value = data[offset + i] & 0xff;
+            a += value;
+            b += (length - i) * value;
+        }
+        return ((b & 0xffff) << 16) | (a & 0xffff);
+    }
+
+    /**
+     * Move the weak checksum of a window one byte forward.
+     * @param checksum - checksum of the window.
+     * @param length - length of the window.
+     * @param out - the byte that leaves the window.
+     * @param in - the byte that enters the window.
+     * @return The checksum of the moved window.
+     */
+    static int roll(int checksum, int length, byte out, byte in) {
+        int a = checksum & 0xffff;
+        int b = checksum >>> 16;
+        a = (a - (out & 0xff) + (in & 0xff)) & 0xffff;
+        b = (b - length * (out & 0xff) + a) & 0xffff;
+        return (b << 16) | a;
+    }
+
+    static byte[] strongHash(MessageDigest digest, byte[] data, int offset, int length) {
+        digest.update(data, offset, length);
+        return Arrays.copyOf(digest.digest(), STRONG_HASH_LENGTH);
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static int readBlock(InputStream inputStream, byte[] block) throws IOException {
+        int total = 0;
+        while (total < block.length) {
+            int read = inputStream.read(block, total, block.length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class ties the async calls of a screen to its lifecycle.
+ * The screen tracks every call it starts, and cancels the scope when it is destroyed, which cancels
+ * the running http calls and releases their connections. The results of calls that finish after
+ * the scope was cancelled are dropped, so no callback touches the destroyed screen.
+ */
+public class CallScope {
+    private final Set<CompletableFuture<?>> calls = new HashSet<>();
+    private boolean cancelled = false;
+
+    /**
+     * Track a call of the scope owner.
+     * @param call - future of the call, cancelling it must cancel the call.
+     * @return A future completed with the call result or exception, as long as the scope wasn't cancelled.
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> call) {
+        CompletableFuture<T> scoped = new CompletableFuture<>();
+        synchronized (this) {
+            if (cancelled) {
+                call.cancel(true);
+                return scoped;
+            }
+            calls.add(call);
+        }
+
+        call.whenComplete((result, error) -> {
+            synchronized (this) {
+                calls.remove(call);
+                if (cancelled) {
+                    return;
+                }
+            }
+
+            if (error == null) {
+                scoped.complete(result);
+            } else {
+                scoped.completeExceptionally(error);
+            }
+        });
+        return scoped;
+    }
+
+    /**
+     * Cancel all the running calls of the scope, and every call tracked from now on.
+     */
+    public void cancel() {
+        List<CompletableFuture<?>> running;
+        synchronized (this) {
+            cancelled = true;
+            running = new ArrayList<>(calls);
+            calls.clear();
+        }
+
+        for (CompletableFuture<?> call : running) {
+            call.cancel(true);
+        }
+    }
+
+    /**
+     * @return True if the scope was cancelled.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return Number of calls that are running.
+     */
+    public synchronized int running() {
+        return calls.size();
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class reads a CBOR (RFC 8949) document value by value straight from a stream, the way
+ * {@link com.squareup.moshi.JsonReader} reads JSON. Containers of a definite and an indefinite
+ * length are both supported, a value read at the top of a container counts as one of its items.
+ */
+public class CborReader implements Closeable {
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int BREAK = 0xff;
+    private static final int INDEFINITE = 31;
+    private final BufferedSource source;
+    // items left in every open container, -1 for a container of an indefinite length
+    private long[] remaining = new long[8];
+    private int depth = 0;
+
+    public enum Token { NUMBER, BYTES, TEXT, ARRAY, MAP, TAG, BOOLEAN, NULL, FLOAT, END }
+
+    /**
+     * The map keys the decoder looks for, matched against the stream without decoding them.
+     */
+    public static class Options {
+        private final String[] names;
+        private final okio.Options encoded;
+
+        private Options(String[] names, okio.Options encoded) {
+            this.names = names;
+            this.encoded = encoded;
+        }
+
+        public static Options of(String... names) {
+            ByteString[] encoded = new ByteString[names.length];
+            for (int i = 0; i < names.length; i++) {
+                ByteString utf8 = ByteString.encodeUtf8(names[i]);
+                Buffer buffer = new Buffer();
+                writeHead(buffer, MAJOR_TEXT, utf8.size());
+                encoded[i] = buffer.write(utf8).readByteString();
+            }
+            return new Options(names.clone(), okio.Options.of(encoded));
+        }
+    }
+
+    public CborReader(BufferedSource source) {
+        this.source = source;
+    }
+
+    /**
+     * @return The type of the next value, or END if the current container has no more items.
+     */
+    public Token peek() throws IOException {
+        if (!hasNext()) {
+            return Token.END;
+        }
+        int initial = peekByte() & 0xff;
+        switch (initial >>> 5) {
+            case MAJOR_UNSIGNED:
+            case MAJOR_NEGATIVE:
+                return Token.NUMBER;
+            case MAJOR_BYTES:
+                return Token.BYTES;
+            case MAJOR_TEXT:
+                return Token.TEXT;
+            case MAJOR_ARRAY:
+                return Token.ARRAY;
+            case MAJOR_MAP:
+                return Token.MAP;
+            case MAJOR_TAG:
+                return Token.TAG;
+            default:
+                int info = initial & 0x1f;
+                if (info == 20 || info == 21) {
+                    return Token.BOOLEAN;
+                } else if (info == 22 || info == 23) {
+                    return Token.NULL;
+                } else if (info >= 25 && info <= 27) {
+                    return Token.FLOAT;
+                }
+                throw new IOException("Unsupported CBOR simple value " + info);
+        }
+    }
+
+    /**
+     * @return Whether the current container has more items, true at the top level.
+     */
+    public boolean hasNext() throws IOException {
+        if (depth == 0) {
+            return true;
+        }
+        long left = remaining[depth - 1];
+        if (left != -1) {
+            return left > 0;
+        }
+        return !(source.request(1) && (source.getBuffer().getByte(0) & 0xff) == BREAK);
+    }
+
+    public void beginArray() throws IOException {
+        begin(MAJOR_ARRAY, 1);
+    }
+
+    public void endArray() throws IOException {
+        end();
+    }
+
+    public void beginMap() throws IOException {
+        // every entry is a key and a value
+        begin(MAJOR_MAP, 2);
+    }
+
+    public void endMap() throws IOException {
+        end();
+    }
+
+    /**
+     * Read the next map key and find it in the options.
+     * @return The index of the key in the options, or -1 if it isn't one of them, the key is read
+     * either way and only its value is left to be skipped.
+     */
+    public int selectName(Options options) throws IOException {
+        int index = source.select(options.encoded);
+        if (index != -1) {
+            consumed();
+            return index;
+        }
+        // an unknown key, or a key the encoder wrote in another form, e.g. in chunks
+        return Arrays.asList(options.names).indexOf(nextString());
+    }
+
+    public String nextString() throws IOException {
+        int initial = source.readByte() & 0xff;
+        if (initial >>> 5 != MAJOR_TEXT) {
+            throw new IOException("Expected a CBOR text string but was major type " + (initial >>> 5));
+        }
+        String value;
+        if ((initial & 0x1f) == INDEFINITE) {
+            // the chunks are definite text strings up to a break
+            StringBuilder text = new StringBuilder();
+            while ((peekByte() & 0xff) != BREAK) {
+                int chunk = source.readByte() & 0xff;
+                if (chunk >>> 5 != MAJOR_TEXT || (chunk & 0x1f) == INDEFINITE) {
+                    throw new IOException("Invalid CBOR text string chunk");
+                }
+                text.append(source.readUtf8(readArgument(chunk)));
+            }
+            source.skip(1);
+            value = text.toString();
+        } else {
+            value = source.readUtf8(readArgument(initial));
+        }
+        consumed();
+        return value;
+    }
+
+    /**
+     * @return The next integer.
+     */
+    public long nextLong() throws IOException {
+        int initial = source.readByte() & 0xff;
+        int major = initial >>> 5;
+        if (major != MAJOR_UNSIGNED && major != MAJOR_NEGATIVE) {
+            throw new IOException("Expected a CBOR integer but was major type " + major);
+        }
+        long argument = readArgument(initial);
+        if (argument < 0) {
+            throw new IOException("CBOR integer out of range");
+        }
+        consumed();
+        return major == MAJOR_UNSIGNED ? argument : -1 - argument;
+    }
+
+    /**
+     * @return The next number, an integer or a floating point number.
+     */
+    public double nextDouble() throws IOException {
+        if (peek() == Token.NUMBER) {
+            return nextLong();
+        }
+        int initial = source.readByte() & 0xff;
+        double value;
+        switch (initial) {
+            case 0xf9:
+                value = halfToDouble(source.readShort());
+                break;
+            case 0xfa:
+                value = Float.intBitsToFloat(source.readInt());
+                break;
+            case 0xfb:
+                value = Double.longBitsToDouble(source.readLong());
+                break;
+            default:
+                throw new IOException("Expected a CBOR number");
+        }
+        consumed();
+        return value;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        int initial = source.readByte() & 0xff;
+        if (initial != 0xf4 && initial != 0xf5) {
+            throw new IOException("Expected a CBOR boolean");
+        }
+        consumed();
+        return initial == 0xf5;
+    }
+
+    /**
+     * Read a null or undefined value.
+     */
+    public void nextNull() throws IOException {
+        int initial = source.readByte() & 0xff;
+        if (initial != 0xf6 && initial != 0xf7) {
+            throw new IOException("Expected a CBOR null");
+        }
+        consumed();
+    }
+
+    /**
+     * Read a tag, the tagged value is read next and counts as the item of its container.
+     * @return The tag number, e.g. 1 for a timestamp in epoch seconds.
+     */
+    public long nextTag() throws IOException {
+        int initial = source.readByte() & 0xff;
+        if (initial >>> 5 != MAJOR_TAG) {
+            throw new IOException("Expected a CBOR tag");
+        }
+        return readArgument(initial);
+    }
+
+    /**
+     * Skip the next value, with everything it contains.
+     */
+    public void skipValue() throws IOException {
+        switch (peek()) {
+            case ARRAY:
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case MAP:
+                beginMap();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endMap();
+                break;
+            case TAG:
+                nextTag();
+                skipValue();
+                break;
+            case TEXT:
+            case BYTES:
+                skipString();
+                break;
+            case END:
+                throw new IOException("No CBOR value to skip");
+            default:
+                int initial = source.readByte() & 0xff;
+                readArgument(initial);
+                consumed();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private void skipString() throws IOException {
+        int initial = source.readByte() & 0xff;
+        if ((initial & 0x1f) == INDEFINITE) {
+            while ((peekByte() & 0xff) != BREAK) {
+                source.skip(readArgument(source.readByte() & 0xff));
+            }
+            source.skip(1);
+        } else {
+            source.skip(readArgument(initial));
+        }
+        consumed();
+    }
+
+    private void begin(int major, int itemsPerEntry) throws IOException {
+        int initial = source.readByte() & 0xff;
+        if (initial >>> 5 != major) {
+            throw new IOException("Expected a CBOR " + (major == MAJOR_MAP ? "map" : "array")
+                    + " but was major type " + (initial >>> 5));
+        }
+        long items = -1;
+        if ((initial & 0x1f) != INDEFINITE) {
+            long count = readArgument(initial);
+            if (count < 0 || count > Long.MAX_VALUE / itemsPerEntry) {
+                throw new IOException("CBOR container too large");
+            }
+            items = count * itemsPerEntry;
+        }
+        // the container itself is an item of its parent
+        consumed();
+        if (depth == remaining.length) {
+            remaining = Arrays.copyOf(remaining, depth * 2);
+        }
+        remaining[depth++] = items;
+    }
+
+    private void end() throws IOException {
+        if (depth == 0) {
+            throw new IOException("No CBOR container to end");
+        }
+        long left = remaining[depth - 1];
+        if (left == -1) {
+            if ((source.readByte() & 0xff) != BREAK) {
+                throw new IOException("Expected the end of a CBOR container");
+            }
+        } else if (left != 0) {
+            throw new IOException("CBOR container has " + left + " items left");
+        }
+        depth--;
+    }
+
+    private void consumed() {
+        if (depth > 0 && remaining[depth - 1] > 0) {
+            remaining[depth - 1]--;
+        }
+    }
+
+    private byte peekByte() throws IOException {
+        source.require(1);
+        return source.getBuffer().getByte(0);
+    }
+
+    /**
+     * Read the argument of a head, the length of a string or container or the value of an integer.
+     * @return The argument, negative if it doesn't fit a signed long.
+     */
+    private long readArgument(int initial) throws IOException {
+        int info = initial & 0x1f;
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24:
+                return source.readByte() & 0xff;
+            case 25:
+                return source.readShort() & 0xffff;
+            case 26:
+                return source.readInt() & 0xffffffffL;
+            case 27:
+                return source.readLong();
+            default:
+                throw new IOException("Invalid CBOR head " + initial);
+        }
+    }
+
+    private static void writeHead(Buffer buffer, int major, long argument) {
+        int type = major << 5;
+        if (argument < 24) {
+            buffer.writeByte(type | (int) argument);
+        } else if (argument < 0x100) {
+            buffer.writeByte(type | 24).writeByte((int) argument);
+        } else if (argument < 0x10000) {
+            buffer.writeByte(type | 25).writeShort((int) argument);
+        } else {
+            buffer.writeByte(type | 26).writeInt((int) argument);
+        }
+    }
+
+    private static double halfToDouble(short bits) {
+        int exponent = (bits >> 10) & 0x1f;
+        int mantissa = bits & 0x3ff;
+        double value;
+        if (exponent == 0) {
+            value = mantissa * Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        }
+        return (bits & 0x8000) != 0 ? -value : value;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+import com.example.ai_poweredtextanalyzer.Objects.File;
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+import com.example.ai_poweredtextanalyzer.Objects.Timestamps;
+
+import okio.BufferedSource;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * This class decodes the CBOR form of the backend list responses straight from the response stream,
+ * into the same models as {@link JsonStreamDecoder}. The documents have the structure of the JSON
+ * responses, only a timestamp may be sent as a number of epoch seconds, with or without tag 1.
+ */
+public class CborStreamDecoder {
+    private static final long TAG_EPOCH_TIME = 1;
+    private static final CborReader.Options FILES_RESPONSE = CborReader.Options.of("files", "next_cursor", "deleted_ids", "watermark");
+    private static final CborReader.Options FILE_FIELDS = CborReader.Options.of("id", "filename", "uploaded_at");
+    private static final CborReader.Options CHAT_RESPONSE = CborReader.Options.of("chat_history", "cursor");
+    private static final CborReader.Options CHAT_FIELDS = CborReader.Options.of("sender", "text");
+
+    /**
+     * Decode a {"files", "next_cursor", "deleted_ids", "watermark"} response into a page of File objects.
+     * A response without "next_cursor" is treated as the last page, and a response without
+     * "watermark" as a full list of the files.
+     * @param source - the response body source.
+     * @return The page of File objects.
+     * @throws IOException if the stream failed or the document doesn't match the expected structure.
+     */
+    public static FilePage decodeFilePage(BufferedSource source) throws IOException {
+        ArrayList<File> files = new ArrayList<>();
+        String nextCursor = null;
+        ArrayList<String> deletedIds = new ArrayList<>();
+        String watermark = null;
+        try (CborReader reader = new CborReader(source)) {
+            reader.beginMap();
+            while (reader.hasNext()) {
+                switch (reader.selectName(FILES_RESPONSE)) {
+                    case 0:
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            files.add(readFile(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case 1:
+                        nextCursor = nextStringOrNull(reader);
+                        break;
+                    case 2:
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            deletedIds.add(reader.nextString());
+                        }
+                        reader.endArray();
+                        break;
+                    case 3:
+                        watermark = nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endMap();
+        }
+        return new FilePage(files, nextCursor, deletedIds, watermark);
+    }
+
+    /**
+     * Decode a {"chat_history", "cursor"} response into a page of ChatMessage objects.
+     * A response without "cursor" is treated as the full history.
+     * @param source - the response body source.
+     * @param start - position of the first message at the full history, if the response has a cursor.
+     * @return The page of ChatMessage objects.
+     * @throws IOException if the stream failed or the document doesn't match the expected structure.
+     */
+    public static ChatHistoryPage decodeChatHistoryPage(BufferedSource source, int start) throws IOException {
+        ArrayList<ChatMessage> messages = new ArrayList<>();
+        String cursor = null;
+        try (CborReader reader = new CborReader(source)) {
+            reader.beginMap();
+            while (reader.hasNext()) {
+                switch (reader.selectName(CHAT_RESPONSE)) {
+                    case 0:
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            messages.add(readChatMessage(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case 1:
+                        cursor = nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endMap();
+        }
+        return new ChatHistoryPage(messages, cursor, cursor != null ? start : 0);
+    }
+
+    private static File readFile(CborReader reader) throws IOException {
+        String id = null;
+        String filename = null;
+        long uploadedAt = Timestamps.UNKNOWN;
+
+        reader.beginMap();
+        while (reader.hasNext()) {
+            switch (reader.selectName(FILE_FIELDS)) {
+                case 0:
+                    id = nextStringOrNull(reader);
+                    break;
+                case 1:
+                    filename = nextStringOrNull(reader);
+                    break;
+                case 2:
+                    uploadedAt = readTimestamp(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endMap();
+
+        return new File(id, filename, uploadedAt);
+    }
+
+    private static ChatMessage readChatMessage(CborReader reader) throws IOException {
+        String sender = null;
+        String text = null;
+
+        reader.beginMap();
+        while (reader.hasNext()) {
+            switch (reader.selectName(CHAT_FIELDS)) {
+                case 0:
+                    sender = nextStringOrNull(reader);
+                    break;
+                case 1:
+                    text = nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endMap();
+
+        return new ChatMessage(ChatMessage.Sender.fromName(sender), text != null ? text : "");
+    }
+
+    /**
+     * Read a timestamp, either a backend timestamp string or a number of epoch seconds.
+     * @return The timestamp in epoch millis, or UNKNOWN if it isn't valid.
+     */
+    private static long readTimestamp(CborReader reader) throws IOException {
+        while (reader.peek() == CborReader.Token.TAG) {
+            long tag = reader.nextTag();
+            if (tag != TAG_EPOCH_TIME && tag != 0) {
+                reader.skipValue();
+                return Timestamps.UNKNOWN;
+            }
+        }
+        switch (reader.peek()) {
+            case NUMBER:
+            case FLOAT:
+                return Math.round(reader.nextDouble() * 1000);
+            case TEXT:
+                return Timestamps.parse(reader.nextString());
+            default:
+                reader.skipValue();
+                return Timestamps.UNKNOWN;
+        }
+    }
+
+    private static String nextStringOrNull(CborReader reader) throws IOException {
+        if (reader.peek() == CborReader.Token.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
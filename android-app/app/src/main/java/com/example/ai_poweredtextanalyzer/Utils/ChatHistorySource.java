@@ -0,0 +1,95 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.squareup.moshi.JsonDataException;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import java.io.IOException;
+
+/**
+ * This class loads the chat history of a file, requesting only the messages newer than the
+ * cursor of the last sync with the "after" query parameter of the chat history endpoint.
+ * The server answers with the newer messages and the cursor of its last message. A server that
+ * doesn't know the cursor anymore answers 410 and the full history is requested instead, and a
+ * server that ignores the parameter returns the full history without a cursor.
+ */
+public class ChatHistorySource {
+    private final OkHttpClient client;
+    private final HttpUrl baseUrl;
+    private final String token;
+    private final boolean binaryWireFormat;
+
+    /**
+     * @param client - http client used for the history requests.
+     * @param baseUrl - the backend server base url.
+     * @param token - JWT access token.
+     */
+    public ChatHistorySource(OkHttpClient client, HttpUrl baseUrl, String token) {
+        this(client, baseUrl, token, false);
+    }
+
+    /**
+     * @param client - http client used for the history requests.
+     * @param baseUrl - the backend server base url.
+     * @param token - JWT access token.
+     * @param binaryWireFormat - whether the history is asked in CBOR, see {@link WireFormat}.
+     */
+    public ChatHistorySource(OkHttpClient client, HttpUrl baseUrl, String token, boolean binaryWireFormat) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.token = token;
+        this.binaryWireFormat = binaryWireFormat;
+    }
+
+    /**
+     * Load the messages of a file that are newer than a cursor.
+     * @param fileId - ID of the chat context file.
+     * @param cursor - cursor returned by the last sync, or null for the full history.
+     * @param start - number of messages the cursor covers, the position of the first newer message.
+     * @return The newer messages, or the full history if the cursor can't be used.
+     * @throws IOException if the history request failed.
+     */
+    public ChatHistoryPage load(String fileId, String cursor, int start) throws IOException {
+        if (cursor != null) {
+            try (Response response = client.newCall(request(fileId, cursor)).execute()) {
+                if (response.code() != 410) {
+                    return decode(response, start);
+                }
+                // the history was reset on the server, the cursor doesn't point into it anymore
+            }
+        }
+
+        try (Response response = client.newCall(request(fileId, null)).execute()) {
+            return decode(response, 0);
+        }
+    }
+
+    private Request request(String fileId, String cursor) {
+        HttpUrl.Builder url = baseUrl.newBuilder()
+                .addPathSegments("chat/history")
+                .addQueryParameter("context_file_id", fileId);
+        if (cursor != null) {
+            url.addQueryParameter("after", cursor);
+        }
+
+        return WireFormat.accept(new Request.Builder(), binaryWireFormat)
+                .url(url.build())
+                .addHeader("Authorization", "Bearer " + token)
+                .build();
+    }
+
+    private static ChatHistoryPage decode(Response response, int start) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Failed to get chat history, status " + response.code());
+        }
+
+        try {
+            return WireFormat.decodeChatHistoryPage(response.body(), start);
+        } catch (JsonDataException e) {
+            throw new IOException("Invalid chat history response", e);
+        }
+    }
+}
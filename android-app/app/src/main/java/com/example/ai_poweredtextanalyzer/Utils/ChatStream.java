@@ -0,0 +1,131 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSource;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+
+/**
+ * This class reads a streamed AI Model answer token by token, as the model generates it.
+ * A streaming server answers with server-sent events, every event holds the next tokens either as
+ * {"token": "..."} or as plain text, and a "[DONE]" event ends the answer.
+ * A server without streaming support answers with the usual {"answer": "..."}, which is delivered
+ * as a single chunk.
+ */
+public class ChatStream {
+    public static final String EVENT_STREAM = "text/event-stream";
+    private static final String DONE = "[DONE]";
+    private static final JsonReader.Options TOKEN_FIELDS = JsonReader.Options.of("token");
+
+    /**
+     * Receives the answer chunks in the order they arrive.
+     */
+    public interface TokenListener {
+        /**
+         * @param token - the next part of the answer.
+         */
+        void onToken(String token);
+    }
+
+    /**
+     * Read the answer from a chat response, the listener is called for every chunk as soon as it arrives.
+     * @param response - the chat response.
+     * @param listener - receives the answer chunks, it is called on the reading thread.
+     * @return The full answer.
+     * @throws IOException if the stream failed.
+     * @throws JSONException if a response without streaming isn't valid.
+     * @throws RuntimeException if the server answered with an error.
+     */
+    public static String read(Response response, TokenListener listener) throws IOException, JSONException {
+        if (!response.isSuccessful()) {
+            throw new RuntimeException("Failed to ask model, status " + response.code());
+        }
+
+        MediaType contentType = response.body().contentType();
+        boolean streaming = contentType != null
+                && EVENT_STREAM.equals(contentType.type() + "/" + contentType.subtype());
+        if (!streaming) {
+            String answer = new JSONObject(response.body().string()).getString("answer");
+            listener.onToken(answer);
+            return answer;
+        }
+
+        return readEvents(response.body().source(), listener);
+    }
+
+    /**
+     * Read server-sent events until the "[DONE]" event or the end of the stream.
+     * @param source - the event stream.
+     * @param listener - receives the data of every event.
+     * @return All the event data joined together.
+     * @throws IOException if the stream failed.
+     */
+    static String readEvents(BufferedSource source, TokenListener listener) throws IOException {
+        StringBuilder answer = new StringBuilder();
+        StringBuilder data = new StringBuilder();
+        boolean hasData = false;
+
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                // a blank line dispatches the event
+                if (hasData) {
+                    String event = data.toString();
+                    if (DONE.equals(event)) {
+                        return answer.toString();
+                    }
+                    String token = decodeToken(event);
+                    answer.append(token);
+                    listener.onToken(token);
+                }
+                data.setLength(0);
+                hasData = false;
+            } else if (line.startsWith("data:")) {
+                String value = line.substring(5);
+                if (value.startsWith(" ")) {
+                    value = value.substring(1);
+                }
+                if (hasData) {
+                    data.append('\n');
+                }
+                data.append(value);
+                hasData = true;
+            }
+            // comments (":") and the other fields aren't used
+        }
+        return answer.toString();
+    }
+
+    /**
+     * @param event - data of a single event.
+     * @return The tokens the event holds.
+     */
+    private static String decodeToken(String event) throws IOException {
+        if (!event.startsWith("{")) {
+            return event;
+        }
+
+        try (JsonReader reader = JsonReader.of(new Buffer().writeUtf8(event))) {
+            String token = "";
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.selectName(TOKEN_FIELDS) == 0) {
+                    token = reader.nextString();
+                } else {
+                    reader.skipName();
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return token;
+        } catch (JsonDataException e) {
+            throw new IOException("Invalid chat stream event", e);
+        }
+    }
+}
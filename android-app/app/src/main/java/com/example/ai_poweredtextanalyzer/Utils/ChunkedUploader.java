@@ -0,0 +1,336 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.example.ai_poweredtextanalyzer.Exceptions.UnsupportedEndpointException;
+import com.example.ai_poweredtextanalyzer.Exceptions.UploadRejectedException;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * This class uploads a file to the backend server in fixed-size chunks, so a dropped connection
+ * only costs the chunk that was in flight instead of the whole file.
+ * <p>
+ * Upload sessions protocol:
+ * <ul>
+ *     <li>POST upload/sessions/ with {"filename", "mime_type", "size"} creates a session
+ *     and returns {"upload_id", "offset"}.</li>
+ *     <li>GET upload/sessions/{upload_id} returns {"offset"}, the number of bytes the server stored.</li>
+ *     <li>PUT upload/sessions/{upload_id} with an "Upload-Offset" header and the chunk bytes returns
+ *     the new {"offset"}. The last chunk is sent with "Upload-Complete: 1" and its response
+ *     describes the uploaded file. A 409 response means the offset doesn't match the server's.
+ *     The chunks of a text file may be sent gzipped, the offsets count the decoded bytes.</li>
+ * </ul>
+ * The last acknowledged offset is saved to an {@link UploadCheckpointStore} after every chunk,
+ * so an upload resumes from that offset after a failure or after the process was killed.
+ * A server that answers 404 or 405 to the session request doesn't support chunked uploads, it isn't
+ * asked again.
+ */
+public class ChunkedUploader {
+    public static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 4000;
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final MediaType CHUNK = MediaType.get("application/offset+octet-stream");
+    private final OkHttpClient client;
+    private final HttpUrl baseUrl;
+    private final UploadCheckpointStore checkpoints;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final Backoff backoff;
+    private volatile boolean supported = true;
+
+    /**
+     * @param client - http client used for all the upload requests.
+     * @param baseUrl - the backend server base url.
+     * @param checkpoints - store of the acknowledged offsets.
+     * @param chunkSize - size of a single chunk in bytes.
+     * @param maxAttempts - number of times the chunks are resent before the upload fails.
+     */
+    public ChunkedUploader(OkHttpClient client, HttpUrl baseUrl, UploadCheckpointStore checkpoints,
+                           int chunkSize, int maxAttempts) {
+        this(client, baseUrl, checkpoints, chunkSize, maxAttempts, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * @param client - http client used for all the upload requests.
+     * @param baseUrl - the backend server base url.
+     * @param checkpoints - store of the acknowledged offsets.
+     * @param chunkSize - size of a single chunk in bytes.
+     * @param maxAttempts - number of times the chunks are resent before the upload fails.
+     * @param baseDelayMillis - delay before the chunks are resent after the first failure, it doubles with every attempt.
+     * @param maxDelayMillis - maximum delay before the chunks are resent.
+     */
+    public ChunkedUploader(OkHttpClient client, HttpUrl baseUrl, UploadCheckpointStore checkpoints,
+                           int chunkSize, int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.checkpoints = checkpoints;
+        this.chunkSize = chunkSize;
+        this.maxAttempts = maxAttempts;
+        this.backoff = new Backoff(baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Upload a file, resuming an unfinished upload of the same file if there is one.
+     * @param token - JWT access token.
+     * @param source - content of the file to upload.
+     * @param fileName - name of the file to upload.
+     * @param mediaType - MIME type of the file.
+     * @return The response body of the last chunk, describing the uploaded file.
+     * @throws UnsupportedEndpointException if the server doesn't support chunked uploads.
+     * @throws UploadRejectedException if the server refused the file, sending it again won't help.
+     * @throws IOException if the upload failed, its checkpoint is kept so it can be resumed later.
+     */
+    public String upload(String token, UploadSource source, String fileName, MediaType mediaType) throws IOException {
+        return upload(token, source, fileName, mediaType, bytes -> {});
+    }
+
+    /**
+     * Upload a file, resuming an unfinished upload of the same file if there is one.
+     * @param token - JWT access token.
+     * @param source - content of the file to upload.
+     * @param fileName - name of the file to upload.
+     * @param mediaType - MIME type of the file.
+     * @param onBytesSent - called with the offset the server acknowledged, after every chunk.
+     * @return The response body of the last chunk, describing the uploaded file.
+     * @throws UnsupportedEndpointException if the server doesn't support chunked uploads.
+     * @throws UploadRejectedException if the server refused the file, sending it again won't help.
+     * @throws IOException if the upload failed, its checkpoint is kept so it can be resumed later.
+     */
+    public String upload(String token, UploadSource source, String fileName, MediaType mediaType,
+                         LongConsumer onBytesSent) throws IOException {
+        if (!supported) {
+            throw new UnsupportedEndpointException("Chunked uploads are not supported by the server");
+        }
+
+        String key = source.key();
+        String uploadId = null;
+        long offset = 0;
+
+        // resume from the offset the server acknowledged, the session may have expired meanwhile
+        UploadCheckpointStore.Checkpoint checkpoint = checkpoints.get(key);
+        if (checkpoint != null) {
+            long serverOffset = queryOffset(token, checkpoint.getUploadId());
+            if (serverOffset != -1) {
+                uploadId = checkpoint.getUploadId();
+                offset = serverOffset;
+            } else {
+                checkpoints.remove(key);
+            }
+        }
+
+        if (uploadId == null) {
+            JSONObject session = createSession(token, fileName, mediaType, source.length());
+            uploadId = session.optString("upload_id");
+            offset = session.optLong("offset", 0);
+            checkpoints.put(key, uploadId, offset);
+        }
+
+        IOException failure = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            try {
+                onBytesSent.accept(offset);
+                String result = sendChunks(token, source, mediaType, key, uploadId, offset, onBytesSent);
+                checkpoints.remove(key);
+                return result;
+            } catch (IOException e) {
+                failure = e;
+                if (attempt + 1 < maxAttempts) {
+                    // a server that just failed isn't sent the chunks again right away
+                    backoff.sleep(attempt + 1);
+                }
+                offset = resumeOffset(token, key, uploadId);
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Send the file content from the given offset up to the end of the file.
+     * @return The response body of the last chunk.
+     */
+    private String sendChunks(String token, UploadSource source, MediaType mediaType, String key, String uploadId,
+                              long offset, LongConsumer onBytesSent) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(source.open())) {
+            skipFully(inputStream, offset);
+
+            byte[] chunk = new byte[chunkSize];
+            while (true) {
+                int length = readFully(inputStream, chunk);
+                boolean last = isAtEnd(inputStream);
+
+                Request request = new Request.Builder()
+                        .url(sessionUrl(uploadId))
+                        .addHeader("Authorization", "Bearer " + token)
+                        .addHeader("Upload-Offset", String.valueOf(offset))
+                        .addHeader("Upload-Complete", last ? "1" : "0")
+                        // the type of the file, so the chunks of a text file are compressed
+                        .tag(MediaType.class, mediaType)
+                        .put(RequestBody.create(chunk, CHUNK, 0, length))
+                        .build();
+
+                try (Response response = client.newCall(request).execute()) {
+                    String responseBody = response.body().string();
+                    if (response.code() == 409) {
+                        throw new IOException("Upload offset " + offset + " was rejected by the server");
+                    } else if (isRejected(response.code())) {
+                        throw new UploadRejectedException("Chunk upload was rejected with status " + response.code());
+                    } else if (!response.isSuccessful()) {
+                        throw new IOException("Chunk upload failed with status " + response.code());
+                    }
+
+                    long acknowledged = new JSONObject(responseBody).getLong("offset");
+                    checkpoints.put(key, uploadId, acknowledged);
+                    if (acknowledged != offset + length) {
+                        throw new IOException("Server acknowledged " + acknowledged + " bytes instead of " + (offset + length));
+                    }
+                    offset = acknowledged;
+                    onBytesSent.accept(offset);
+
+                    if (last) {
+                        return responseBody;
+                    }
+                } catch (JSONException e) {
+                    throw new IOException("Invalid chunk upload response", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a new upload session.
+     * @return The session JSON object.
+     * @throws UnsupportedEndpointException if the server doesn't support chunked uploads.
+     */
+    private JSONObject createSession(String token, String fileName, MediaType mediaType, long size) throws IOException {
+        try {
+            JSONObject jsonBody = new JSONObject();
+            jsonBody.put("filename", fileName);
+            jsonBody.put("mime_type", mediaType.toString());
+            if (size != -1) {
+                jsonBody.put("size", size);
+            }
+
+            Request request = new Request.Builder()
+                    .url(baseUrl.resolve("upload/sessions/"))
+                    .addHeader("Authorization", "Bearer " + token)
+                    .post(RequestBody.create(jsonBody.toString(), JSON))
+                    .build();
+
+            try (Response response = client.newCall(request).execute()) {
+                if (response.code() == 404 || response.code() == 405) {
+                    supported = false;
+                    throw new UnsupportedEndpointException("Chunked uploads are not supported by the server");
+                } else if (isRejected(response.code())) {
+                    throw new UploadRejectedException("Upload session was rejected with status " + response.code());
+                } else if (!response.isSuccessful()) {
+                    throw new IOException("Failed to create upload session, status " + response.code());
+                }
+                return new JSONObject(response.body().string());
+            }
+        } catch (JSONException e) {
+            throw new IOException("Invalid upload session response", e);
+        }
+    }
+
+    /**
+     * Get the number of bytes the server stored for an upload session.
+     * @return The server offset, or -1 if the session doesn't exist anymore.
+     */
+    private long queryOffset(String token, String uploadId) throws IOException {
+        Request request = new Request.Builder()
+                .url(sessionUrl(uploadId))
+                .addHeader("Authorization", "Bearer " + token)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 404) {
+                return -1;
+            } else if (!response.isSuccessful()) {
+                throw new IOException("Failed to get upload offset, status " + response.code());
+            }
+            return new JSONObject(response.body().string()).getLong("offset");
+        } catch (JSONException e) {
+            throw new IOException("Invalid upload offset response", e);
+        }
+    }
+
+    /**
+     * Find the offset to resume from after a failed attempt, asking the server first
+     * and falling back to the last saved checkpoint if the server can't be reached.
+     */
+    private long resumeOffset(String token, String key, String uploadId) {
+        try {
+            long serverOffset = queryOffset(token, uploadId);
+            if (serverOffset != -1) {
+                checkpoints.put(key, uploadId, serverOffset);
+                return serverOffset;
+            }
+        } catch (IOException e) {
+            // the server is unreachable, trust the last acknowledged offset
+        }
+
+        UploadCheckpointStore.Checkpoint checkpoint = checkpoints.get(key);
+        return checkpoint != null ? checkpoint.getOffset() : 0;
+    }
+
+    /**
+     * @param code - status code of a response.
+     * @return Whether the server refused the request itself, e.g. a file that is too large or an expired
+     * token, rather than failing to handle it. A missing session or a mismatched offset can be recovered from.
+     */
+    static boolean isRejected(int code) {
+        return code >= 400 && code < 500 && code != 404 && code != 408 && code != 409 && code != 429;
+    }
+
+    private HttpUrl sessionUrl(String uploadId) {
+        return baseUrl.newBuilder()
+                .addPathSegments("upload/sessions")
+                .addPathSegment(uploadId)
+                .build();
+    }
+
+    private static void skipFully(InputStream inputStream, long count) throws IOException {
+        while (count > 0) {
+            long skipped = inputStream.skip(count);
+            if (skipped <= 0) {
+                // skip() may give up early, reading tells whether the stream really ended
+                if (inputStream.read() == -1) {
+                    throw new IOException("File is shorter than the upload offset");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private static int readFully(InputStream inputStream, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = inputStream.read(buffer, total, buffer.length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static boolean isAtEnd(InputStream inputStream) throws IOException {
+        inputStream.mark(1);
+        boolean atEnd = inputStream.read() == -1;
+        inputStream.reset();
+        return atEnd;
+    }
+}
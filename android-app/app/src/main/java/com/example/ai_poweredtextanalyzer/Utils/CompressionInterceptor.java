@@ -0,0 +1,303 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class negotiates gzip compression of the API traffic in both directions and measures it.
+ * <ul>
+ *     <li>Request bodies of text content at least the minimum size are gzipped as they are written.
+ *     The content type is taken from a {@link MediaType} request tag when the body's own type only
+ *     describes the transfer, like an upload chunk or a multipart form. A server that answers 415 gets
+ *     the request again uncompressed, and the endpoint isn't sent compressed bodies anymore.</li>
+ *     <li>Responses are requested gzipped and decoded as they are read, the callers see the plain body.
+ *     A cached response is stored as it was received, so the disk cache keeps the compressed bytes.</li>
+ * </ul>
+ * Every endpoint, the method and the path with its IDs replaced by "{id}", counts the bytes that went
+ * over the wire and the bytes they decode to. Responses served from the cache add no wire bytes.
+ */
+public class CompressionInterceptor implements Interceptor {
+    // below this size the gzip header and the CPU cost more than compression saves
+    public static final long DEFAULT_MIN_REQUEST_SIZE = 1024;
+    private final long minRequestSize;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final Set<String> uncompressedEndpoints = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * Byte counters of an endpoint.
+     */
+    public static class EndpointStats {
+        private final AtomicLong requestWireBytes = new AtomicLong();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseWireBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+
+        public long getRequestWireBytes() { return requestWireBytes.get(); }
+        public long getRequestBytes() { return requestBytes.get(); }
+        public long getResponseWireBytes() { return responseWireBytes.get(); }
+        public long getResponseBytes() { return responseBytes.get(); }
+    }
+
+    /**
+     * @param minRequestSize - smallest request body that is compressed, bodies of an unknown size always are.
+     */
+    public CompressionInterceptor(long minRequestSize) {
+        this.minRequestSize = minRequestSize;
+    }
+
+    /**
+     * @return The counters of every endpoint that was called, they keep counting.
+     */
+    public Map<String, EndpointStats> getStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        String endpoint = endpointOf(request.method(), request.url());
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, key -> new EndpointStats());
+
+        // the caller that asks for an encoding itself decodes the response too
+        boolean decodeResponse = request.header("Accept-Encoding") == null;
+        Request.Builder builder = request.newBuilder();
+        if (decodeResponse) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+
+        RequestBody body = request.body();
+        Response response;
+        if (body != null && request.header("Content-Encoding") == null && shouldCompress(request, endpoint)) {
+            Request compressed = builder.build().newBuilder()
+                    .header("Content-Encoding", "gzip")
+                    .method(request.method(), new GzipRequestBody(body, endpointStats))
+                    .build();
+            response = chain.proceed(compressed);
+            if (response.code() != 415 || body.isOneShot()) {
+                return decode(response, decodeResponse, endpointStats);
+            }
+            // the server can't read compressed bodies, send it as it is
+            response.close();
+            uncompressedEndpoints.add(endpoint);
+        }
+
+        if (body != null) {
+            builder.method(request.method(), new CountingRequestBody(body, endpointStats));
+        }
+        response = chain.proceed(builder.build());
+        return decode(response, decodeResponse, endpointStats);
+    }
+
+    private boolean shouldCompress(Request request, String endpoint) throws IOException {
+        if (uncompressedEndpoints.contains(endpoint)) {
+            return false;
+        }
+        long length = request.body().contentLength();
+        if (length != -1 && length < minRequestSize) {
+            return false;
+        }
+        MediaType contentType = request.tag(MediaType.class);
+        return isCompressible(contentType != null ? contentType : request.body().contentType());
+    }
+
+    /**
+     * @param mediaType - MIME type of the content.
+     * @return Whether the content is text, which compresses well unlike PDFs or images.
+     */
+    static boolean isCompressible(@Nullable MediaType mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        String type = mediaType.type();
+        String subtype = mediaType.subtype();
+        return type.equals("text")
+                || (type.equals("application") && (subtype.equals("json") || subtype.equals("xml")
+                        || subtype.equals("x-www-form-urlencoded") || subtype.endsWith("+json")
+                        || subtype.endsWith("+xml")));
+    }
+
+    /**
+     * @return The endpoint of a request, the method and the path with the segments that contain
+     * a digit, the IDs, replaced by "{id}".
+     */
+    static String endpointOf(String method, HttpUrl url) {
+        StringBuilder endpoint = new StringBuilder(method).append(' ');
+        for (String segment : url.pathSegments()) {
+            endpoint.append('/');
+            endpoint.append(containsDigit(segment) ? "{id}" : segment);
+        }
+        return endpoint.toString();
+    }
+
+    private static boolean containsDigit(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (Character.isDigit(segment.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the response bytes as they are read, decoding a gzipped body.
+     */
+    private static Response decode(Response response, boolean decodeResponse, EndpointStats endpointStats) {
+        // a body read from the cache didn't cross the network, a revalidated one only sent its headers
+        boolean fromNetwork = response.networkResponse() != null && response.cacheResponse() == null;
+        ResponseBody body = response.body();
+        Source source = body.source();
+        if (fromNetwork) {
+            source = new CountingSource(source, endpointStats.responseWireBytes);
+        }
+
+        Response.Builder builder = response.newBuilder();
+        long contentLength = body.contentLength();
+        if (decodeResponse && contentLength != 0 && "gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+            source = new GzipSource(source);
+            contentLength = -1;
+            builder.removeHeader("Content-Encoding").removeHeader("Content-Length");
+        }
+        source = new CountingSource(source, endpointStats.responseBytes);
+
+        BufferedSource decoded = Okio.buffer(source);
+        return builder
+                .body(ResponseBody.create(decoded, body.contentType(), contentLength))
+                .build();
+    }
+
+    /**
+     * A request body that is gzipped as it is written.
+     */
+    private static class GzipRequestBody extends RequestBody {
+        private final RequestBody body;
+        private final EndpointStats endpointStats;
+
+        GzipRequestBody(RequestBody body, EndpointStats endpointStats) {
+            this.body = body;
+            this.endpointStats = endpointStats;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            // not known before the body is compressed
+            return -1;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return body.isOneShot();
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            Sink wire = new CountingSink(sink, endpointStats.requestWireBytes);
+            BufferedSink gzipSink = Okio.buffer(new CountingSink(new GzipSink(wire), endpointStats.requestBytes));
+            body.writeTo(gzipSink);
+            // writes the gzip trailer
+            gzipSink.close();
+        }
+    }
+
+    /**
+     * A request body that counts its bytes as they are written.
+     */
+    private static class CountingRequestBody extends RequestBody {
+        private final RequestBody body;
+        private final EndpointStats endpointStats;
+
+        CountingRequestBody(RequestBody body, EndpointStats endpointStats) {
+            this.body = body;
+            this.endpointStats = endpointStats;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return body.contentLength();
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return body.isOneShot();
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            BufferedSink counting = Okio.buffer(
+                    new CountingSink(sink, endpointStats.requestBytes, endpointStats.requestWireBytes));
+            body.writeTo(counting);
+            counting.emit();
+        }
+    }
+
+    private static class CountingSink extends ForwardingSink {
+        private final AtomicLong[] counters;
+
+        CountingSink(Sink delegate, AtomicLong... counters) {
+            super(delegate);
+            this.counters = counters;
+        }
+
+        @Override
+        public void write(@NonNull Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            for (AtomicLong counter : counters) {
+                counter.addAndGet(byteCount);
+            }
+        }
+    }
+
+    private static class CountingSource extends ForwardingSource {
+        private final AtomicLong counter;
+
+        CountingSource(Source delegate, AtomicLong counter) {
+            super(delegate);
+            this.counter = counter;
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read != -1) {
+                counter.addAndGet(read);
+            }
+            return read;
+        }
+    }
+}
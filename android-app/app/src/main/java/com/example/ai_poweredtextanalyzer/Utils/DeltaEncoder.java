@@ -0,0 +1,256 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class encode a new version of a file as the differences from the stored version, rsync style.
+ * A window of a block size is rolled over the new content a byte at a time, a window whose weak
+ * checksum and strong hash match a block of the stored version is sent as a reference to the block,
+ * the bytes in between are sent as they are.
+ * <p>
+ * Delta format, big endian:
+ * <ul>
+ *     <li>'C', int first block, int count - copy blocks of the stored version.</li>
+ *     <li>'L', int length, bytes - literal bytes of the new version.</li>
+ *     <li>'E' - end of the delta.</li>
+ * </ul>
+ * {@link DeltaReconstructor} applies a delta to the stored version.
+ */
+public class DeltaEncoder {
+    static final byte COPY = 'C';
+    static final byte LITERAL = 'L';
+    static final byte END = 'E';
+    // literal bytes are sent in instructions of at most this size, and buffered until then
+    private static final int MAX_LITERAL = 64 * 1024;
+    private final BlockSignatures signatures;
+    private final int blockSize;
+    // weak checksum -> the blocks that have it, in order
+    private final Map<Integer, int[]> blocksByChecksum = new HashMap<>();
+    private final MessageDigest digest = BlockSignatures.newDigest();
+
+    private DataOutputStream out;
+    private byte[] buffer;
+    private int start;
+    private int end;
+    private int literalStart;
+    private boolean endOfInput;
+    private int copyBlock = -1;
+    private int copyCount;
+    private long literalBytes;
+
+    /**
+     * @param signatures - signatures of the stored version.
+     */
+    public DeltaEncoder(BlockSignatures signatures) {
+        this.signatures = signatures;
+        this.blockSize = signatures.getBlockSize();
+        // only full blocks are matched by the rolling window, the short last block is matched at the end
+        for (int block = 0; block < signatures.getBlockCount(); block++) {
+            if (signatures.getBlockLength(block) == blockSize) {
+                int checksum = signatures.getWeakChecksum(block);
+                int[] blocks = blocksByChecksum.get(checksum);
+                if (blocks == null) {
+                    blocks = new int[] { block };
+                } else {
+                    blocks = Arrays.copyOf(blocks, blocks.length + 1);
+                    blocks[blocks.length - 1] = block;
+                }
+                blocksByChecksum.put(checksum, blocks);
+            }
+        }
+    }
+
+    /**
+     * Encode the new version, reading it as a stream and writing the delta as it goes.
+     * An encoder encodes a single delta at a time.
+     * @param inputStream - content of the new version.
+     * @param outputStream - where the delta is written to.
+     * @return The number of literal bytes in the delta.
+     * @throws IOException if the content couldn't be read or the delta couldn't be written.
+     */
+    public synchronized long encode(InputStream inputStream, OutputStream outputStream) throws IOException {
+        out = new DataOutputStream(outputStream);
+        buffer = new byte[Math.max(4 * blockSize, 2 * MAX_LITERAL)];
+        start = 0;
+        end = 0;
+        literalStart = 0;
+        endOfInput = false;
+        copyBlock = -1;
+        copyCount = 0;
+        literalBytes = 0;
+
+        try {
+            encodeBlocks(inputStream);
+            encodeTail();
+            flushCopy();
+            out.writeByte(END);
+            out.flush();
+            return literalBytes;
+        } finally {
+            out = null;
+            buffer = null;
+        }
+    }
+
+    /**
+     * Roll the window over the content while a full block is left.
+     */
+    private void encodeBlocks(InputStream inputStream) throws IOException {
+        if (blocksByChecksum.isEmpty()) {
+            // nothing can match, send everything as literals
+            while (fill(inputStream, 1)) {
+                start = end;
+                flushLiteral();
+            }
+            return;
+        }
+        if (!fill(inputStream, blockSize)) {
+            return;
+        }
+
+        int checksum = BlockSignatures.weakChecksum(buffer, start, blockSize);
+        while (true) {
+            int block = findBlock(checksum);
+            if (block != -1) {
+                flushLiteral();
+                addCopy(block);
+                start += blockSize;
+                literalStart = start;
+                if (!fill(inputStream, blockSize)) {
+                    return;
+                }
+                checksum = BlockSignatures.weakChecksum(buffer, start, blockSize);
+            } else {
+                if (!fill(inputStream, blockSize + 1)) {
+                    return;
+                }
+                checksum = BlockSignatures.roll(checksum, blockSize, buffer[start], buffer[start + blockSize]);
+                start++;
+                if (start - literalStart >= MAX_LITERAL) {
+                    flushLiteral();
+                }
+            }
+        }
+    }
+
+    /**
+     * Send the content that is shorter than a block, as the last block of the stored version if it matches.
+     */
+    private void encodeTail() throws IOException {
+        int length = end - start;
+        int lastBlock = signatures.getBlockCount() - 1;
+        if (length > 0 && lastBlock >= 0 && signatures.getBlockLength(lastBlock) == length
+                && BlockSignatures.weakChecksum(buffer, start, length) == signatures.getWeakChecksum(lastBlock)
+                && strongHashMatches(lastBlock, length)) {
+            flushLiteral();
+            addCopy(lastBlock);
+            literalStart = end;
+        }
+        start = end;
+        flushLiteral();
+    }
+
+    /**
+     * @return The block of the stored version that matches the window, or -1 if there isn't one.
+     */
+    private int findBlock(int checksum) {
+        int[] blocks = blocksByChecksum.get(checksum);
+        if (blocks == null) {
+            return -1;
+        }
+        // prefer the block that continues the current copy, to keep copies long
+        if (copyBlock != -1 && literalStart == start) {
+            int next = copyBlock + copyCount;
+            for (int block : blocks) {
+                if (block == next && strongHashMatches(block, blockSize)) {
+                    return block;
+                }
+            }
+        }
+        byte[] hash = null;
+        for (int block : blocks) {
+            if (hash == null) {
+                hash = BlockSignatures.strongHash(digest, buffer, start, blockSize);
+            }
+            if (Arrays.equals(hash, signatures.getStrongHash(block))) {
+                return block;
+            }
+        }
+        return -1;
+    }
+
+    private boolean strongHashMatches(int block, int length) {
+        return Arrays.equals(BlockSignatures.strongHash(digest, buffer, start, length), signatures.getStrongHash(block));
+    }
+
+    /**
+     * Make sure the buffer holds at least the given number of bytes from the window start, compacting
+     * the buffer and reading more of the content as needed.
+     * @return Whether the bytes are available, false if the content ended before.
+     */
+    private boolean fill(InputStream inputStream, int length) throws IOException {
+        if (end - start >= length) {
+            return true;
+        }
+        if (start + length > buffer.length) {
+            // the bytes before the window are sent before they are dropped from the buffer
+            flushLiteral();
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+            literalStart = 0;
+        }
+        while (end - start < length && !endOfInput) {
+            int read = inputStream.read(buffer, end, buffer.length - end);
+            if (read == -1) {
+                endOfInput = true;
+            } else {
+                end += read;
+            }
+        }
+        return end - start >= length;
+    }
+
+    private void addCopy(int block) throws IOException {
+        if (copyBlock != -1 && block == copyBlock + copyCount) {
+            copyCount++;
+            return;
+        }
+        flushCopy();
+        copyBlock = block;
+        copyCount = 1;
+    }
+
+    private void flushCopy() throws IOException {
+        if (copyBlock != -1) {
+            out.writeByte(COPY);
+            out.writeInt(copyBlock);
+            out.writeInt(copyCount);
+            copyBlock = -1;
+            copyCount = 0;
+        }
+    }
+
+    /**
+     * Send the bytes between the last instruction and the window start as literals.
+     */
+    private void flushLiteral() throws IOException {
+        int length = start - literalStart;
+        if (length == 0) {
+            return;
+        }
+        flushCopy();
+        out.writeByte(LITERAL);
+        out.writeInt(length);
+        out.write(buffer, literalStart, length);
+        literalBytes += length;
+        literalStart = start;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This class is the reference implementation of applying a delta written by {@link DeltaEncoder} to
+ * the stored version of a file, it rebuilds the new version the way the backend server does.
+ */
+public class DeltaReconstructor {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DeltaReconstructor() {}
+
+    /**
+     * Rebuild the new version of a file.
+     * @param basis - content of the stored version.
+     * @param blockSize - block size of the signatures the delta was encoded against.
+     * @param delta - the delta.
+     * @param out - where the new version is written to.
+     * @return The size of the new version in bytes.
+     * @throws IOException if the delta is malformed or refers to blocks the stored version doesn't have.
+     */
+    public static long apply(byte[] basis, int blockSize, InputStream delta, OutputStream out) throws IOException {
+        DataInputStream in = new DataInputStream(delta);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+
+        while (true) {
+            int instruction;
+            try {
+                instruction = in.readByte();
+            } catch (EOFException e) {
+                throw new IOException("Delta ended without an end instruction", e);
+            }
+
+            if (instruction == DeltaEncoder.END) {
+                return size;
+            } else if (instruction == DeltaEncoder.COPY) {
+                int first = in.readInt();
+                int count = in.readInt();
+                long offset = (long) first * blockSize;
+                if (first < 0 || count <= 0 || offset >= basis.length) {
+                    throw new IOException("Delta copies blocks " + first + "+" + count + " that don't exist");
+                }
+                int length = (int) Math.min((long) count * blockSize, basis.length - offset);
+                // only the last block may be short, a copy can't run past it
+                if (length < (long) (count - 1) * blockSize + 1) {
+                    throw new IOException("Delta copies blocks " + first + "+" + count + " that don't exist");
+                }
+                out.write(basis, (int) offset, length);
+                size += length;
+            } else if (instruction == DeltaEncoder.LITERAL) {
+                int length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("Invalid literal length " + length);
+                }
+                int remaining = length;
+                while (remaining > 0) {
+                    int read = Math.min(remaining, buffer.length);
+                    in.readFully(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                size += length;
+            } else {
+                throw new IOException("Unknown delta instruction " + instruction);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.ai_poweredtextanalyzer.Exceptions.UploadRejectedException;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * This class uploads an edited file as the differences from the version the server stores under the
+ * same name, so a small edit to a large document sends about the edited bytes instead of the whole file.
+ * <p>
+ * Delta upload protocol:
+ * <ul>
+ *     <li>GET upload/signatures?filename=&block_size= returns {"file_id", "block_size", "size", "blocks"},
+ *     the {@link BlockSignatures} of the stored version. A 204 response means there is no file of this name.</li>
+ *     <li>PUT upload/delta/{file_id} with the {@link DeltaEncoder} delta as its body, and "Upload-SHA256"
+ *     and "Delta-Block-Size" headers, replaces the content of the file and returns {"file"}. A 412
+ *     response means the rebuilt content doesn't match the hash, the stored version changed meanwhile.</li>
+ * </ul>
+ * A server that answers 404 or 405 to the signatures request doesn't support delta uploads, it isn't
+ * asked again.
+ */
+public class DeltaUploader {
+    private static final MediaType DELTA = MediaType.get("application/vnd.filewhisper.delta");
+    private final OkHttpClient client;
+    private final HttpUrl baseUrl;
+    private volatile boolean supported = true;
+
+    /**
+     * @param client - http client used for the delta upload requests.
+     * @param baseUrl - the backend server base url.
+     */
+    public DeltaUploader(OkHttpClient client, HttpUrl baseUrl) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Upload a new version of a file as a delta against the stored version of the same name.
+     * @param token - JWT access token.
+     * @param source - content of the new version.
+     * @param fileName - name of the file.
+     * @param sha256 - SHA-256 of the new version, the server checks the rebuilt content against it, or null
+     *               if it wasn't computed, the file is then hashed only if the server stores a version of it.
+     * @param onBytesSent - called with the size of the file once the server stored it.
+     * @return The response body describing the updated file, or null if the server has no file of
+     * this name or doesn't support delta uploads and the file must be uploaded in full.
+     * @throws UploadRejectedException if the server refused the file, sending it again won't help.
+     * @throws IOException if the upload failed and can be retried.
+     */
+    public String upload(String token, UploadSource source, String fileName, String sha256,
+                         LongConsumer onBytesSent) throws IOException {
+        if (!supported) {
+            return null;
+        }
+
+        int blockSize = BlockSignatures.blockSizeFor(source.length());
+        HttpUrl signaturesUrl = baseUrl.newBuilder()
+                .addPathSegments("upload/signatures")
+                .addQueryParameter("filename", fileName)
+                .addQueryParameter("block_size", String.valueOf(blockSize))
+                .build();
+        Request request = new Request.Builder()
+                .url(signaturesUrl)
+                .addHeader("Authorization", "Bearer " + token)
+                .build();
+
+        String fileId;
+        BlockSignatures signatures;
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 404 || response.code() == 405) {
+                supported = false;
+                return null;
+            } else if (response.code() == 204) {
+                return null;
+            } else if (ChunkedUploader.isRejected(response.code())) {
+                throw new UploadRejectedException("Signatures request was rejected with status " + response.code());
+            } else if (!response.isSuccessful()) {
+                throw new IOException("Failed to get block signatures, status " + response.code());
+            }
+            JSONObject json = new JSONObject(response.body().string());
+            fileId = json.getString("file_id");
+            signatures = BlockSignatures.fromJson(json);
+        } catch (JSONException e) {
+            throw new IOException("Invalid block signatures response", e);
+        }
+
+        if (sha256 == null) {
+            sha256 = UploadDeduplicator.sha256(source);
+        }
+        String responseBody = sendDelta(token, source, fileId, sha256, signatures);
+        if (responseBody == null) {
+            // the stored version changed since its signatures were read, send the whole file as literals
+            responseBody = sendDelta(token, source, fileId, sha256, BlockSignatures.empty(signatures.getBlockSize()));
+        }
+        if (responseBody != null) {
+            onBytesSent.accept(source.length());
+        }
+        return responseBody;
+    }
+
+    /**
+     * Send the delta of the new version against the given signatures.
+     * @return The response body describing the updated file, or null if the server couldn't rebuild
+     * the new version from the stored one.
+     */
+    private String sendDelta(String token, UploadSource source, String fileId, String sha256,
+                             BlockSignatures signatures) throws IOException {
+        HttpUrl deltaUrl = baseUrl.newBuilder()
+                .addPathSegments("upload/delta")
+                .addPathSegment(fileId)
+                .build();
+        Request request = new Request.Builder()
+                .url(deltaUrl)
+                .addHeader("Authorization", "Bearer " + token)
+                .addHeader("Upload-SHA256", sha256)
+                .addHeader("Delta-Block-Size", String.valueOf(signatures.getBlockSize()))
+                .put(new DeltaRequestBody(source, new DeltaEncoder(signatures)))
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            String responseBody = response.body().string();
+            if (response.code() == 412) {
+                return null;
+            } else if (ChunkedUploader.isRejected(response.code())) {
+                throw new UploadRejectedException("Delta upload was rejected with status " + response.code());
+            } else if (!response.isSuccessful()) {
+                throw new IOException("Delta upload failed with status " + response.code());
+            }
+            return responseBody;
+        }
+    }
+
+    /**
+     * A request body that encodes the delta as it is written, so neither the file nor the delta
+     * is held in memory and a retried request encodes it again.
+     */
+    private static class DeltaRequestBody extends RequestBody {
+        private final UploadSource source;
+        private final DeltaEncoder encoder;
+
+        DeltaRequestBody(UploadSource source, DeltaEncoder encoder) {
+            this.source = source;
+            this.encoder = encoder;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return DELTA;
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            try (InputStream inputStream = new BufferedInputStream(source.open())) {
+                encoder.encode(inputStream, sink.outputStream());
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+import com.example.ai_poweredtextanalyzer.Objects.File;
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+import com.example.ai_poweredtextanalyzer.Objects.Timestamps;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+
+import okio.BufferedSource;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * This class decodes the backend JSON responses token by token straight from the response stream,
+ * so only the element being decoded is held in memory next to the resulting model objects.
+ */
+public class JsonStreamDecoder {
+    private static final JsonReader.Options FILES_RESPONSE = JsonReader.Options.of("files", "next_cursor", "deleted_ids", "watermark");
+    private static final JsonReader.Options FILE_FIELDS = JsonReader.Options.of("id", "filename", "uploaded_at");
+    private static final JsonReader.Options CHAT_RESPONSE = JsonReader.Options.of("chat_history", "cursor");
+    private static final JsonReader.Options CHAT_FIELDS = JsonReader.Options.of("sender", "text");
+    private static final JsonReader.Options UPLOAD_RESPONSE = JsonReader.Options.of("file");
+
+    /**
+     * Decode a {"files": [...]} response into File objects.
+     * @param source - the response body source.
+     * @return A list of File objects.
+     * @throws IOException if the stream failed or isn't valid JSON.
+     * @throws com.squareup.moshi.JsonDataException if the JSON doesn't match the expected structure.
+     */
+    public static ArrayList<File> decodeFiles(BufferedSource source) throws IOException {
+        return decodeFilePage(source).getFiles();
+    }
+
+    /**
+     * Decode a {"files": [...], "next_cursor": ..., "deleted_ids": [...], "watermark": ...}
+     * response into a page of File objects.
+     * A response without "next_cursor" is treated as the last page, and a response without
+     * "watermark" as a full list of the files.
+     * @param source - the response body source.
+     * @return The page of File objects.
+     * @throws IOException if the stream failed or isn't valid JSON.
+     * @throws com.squareup.moshi.JsonDataException if the JSON doesn't match the expected structure.
+     */
+    public static FilePage decodeFilePage(BufferedSource source) throws IOException {
+        ArrayList<File> files = null;
+        String nextCursor = null;
+        ArrayList<String> deletedIds = new ArrayList<>();
+        String watermark = null;
+        try (JsonReader reader = JsonReader.of(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(FILES_RESPONSE)) {
+                    case 0:
+                        files = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            files.add(readFile(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case 1:
+                        nextCursor = nextStringOrNull(reader);
+                        break;
+                    case 2:
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            deletedIds.add(reader.nextString());
+                        }
+                        reader.endArray();
+                        break;
+                    case 3:
+                        watermark = nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipName();
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        if (files == null) {
+            // e.g. an error body, which isn't an empty list of files
+            throw new JsonDataException("Missing \"files\" in the files response");
+        }
+        return new FilePage(files, nextCursor, deletedIds, watermark);
+    }
+
+    /**
+     * Decode an upload response {"message": ..., "file": {...}} into the uploaded file.
+     * @param source - the response body source.
+     * @return The uploaded file, or null if the response doesn't describe it, e.g. an older server.
+     * @throws IOException if the stream failed or isn't valid JSON.
+     * @throws com.squareup.moshi.JsonDataException if the JSON doesn't match the expected structure.
+     */
+    public static File decodeUploadedFile(BufferedSource source) throws IOException {
+        File file = null;
+        try (JsonReader reader = JsonReader.of(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.selectName(UPLOAD_RESPONSE) == 0) {
+                    if (reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                        file = readFile(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                } else {
+                    reader.skipName();
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return file;
+    }
+
+    /**
+     * Decode a {"chat_history": [...], "cursor": ...} response into a page of ChatMessage objects.
+     * A response without "cursor" is treated as the full history.
+     * @param source - the response body source.
+     * @param start - position of the first message at the full history, if the response has a cursor.
+     * @return The page of ChatMessage objects.
+     * @throws IOException if the stream failed or isn't valid JSON.
+     * @throws com.squareup.moshi.JsonDataException if the JSON doesn't match the expected structure.
+     */
+    public static ChatHistoryPage decodeChatHistoryPage(BufferedSource source, int start) throws IOException {
+        ArrayList<ChatMessage> messages = null;
+        String cursor = null;
+        try (JsonReader reader = JsonReader.of(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(CHAT_RESPONSE)) {
+                    case 0:
+                        messages = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            messages.add(readChatMessage(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case 1:
+                        cursor = nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipName();
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        if (messages == null) {
+            throw new JsonDataException("Missing \"chat_history\" in the chat history response");
+        }
+        return new ChatHistoryPage(messages, cursor, cursor != null ? start : 0);
+    }
+
+    /**
+     * Read a single file object, the reader must be positioned at its beginning.
+     * @throws JsonDataException if the file has no "id" or "filename".
+     */
+    static File readFile(JsonReader reader) throws IOException {
+        String id = null;
+        String filename = null;
+        String uploadedAt = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(FILE_FIELDS)) {
+                case 0:
+                    id = nextStringOrNull(reader);
+                    break;
+                case 1:
+                    filename = nextStringOrNull(reader);
+                    break;
+                case 2:
+                    uploadedAt = nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipName();
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // the id keys the file in the grid and the local store, a file without one can't be shown
+        if (id == null || filename == null) {
+            throw new JsonDataException("Missing \"" + (id == null ? "id" : "filename") + "\" of a file at " + reader.getPath());
+        }
+        return new File(id, filename, Timestamps.parse(uploadedAt));
+    }
+
+    /**
+     * Read a single chat message object, the reader must be positioned at its beginning.
+     */
+    static ChatMessage readChatMessage(JsonReader reader) throws IOException {
+        String sender = null;
+        String text = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(CHAT_FIELDS)) {
+                case 0:
+                    sender = nextStringOrNull(reader);
+                    break;
+                case 1:
+                    text = nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipName();
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new ChatMessage(ChatMessage.Sender.fromName(sender), text != null ? text : "");
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonReader.Token.NULL) {
+            return reader.nextNull();
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class parses the markdown of the AI Model answers and summaries into plain text and the
+ * styles of its ranges, without depending on the Android text classes.
+ * Supported are headings, bullet lists, fenced code blocks, and inline bold, italic and code.
+ * Anything else, e.g. an unclosed delimiter, is kept as it is.
+ */
+public class MarkdownParser {
+
+    public enum Style { BOLD, ITALIC, CODE, CODE_BLOCK, HEADING, BULLET }
+
+    /**
+     * A style of a range of the text.
+     */
+    public static class Span {
+        public final Style style;
+        public final int start;
+        public final int end;
+        // heading level, 1 for "#"
+        public final int level;
+
+        Span(Style style, int start, int end, int level) {
+            this.style = style;
+            this.start = start;
+            this.end = end;
+            this.level = level;
+        }
+    }
+
+    /**
+     * The parsed markdown, the text without the markdown syntax and the styles of its ranges.
+     */
+    public static class Document {
+        public final String text;
+        public final List<Span> spans;
+
+        Document(String text, List<Span> spans) {
+            this.text = text;
+            this.spans = spans;
+        }
+    }
+
+    /**
+     * @param markdown - the markdown text.
+     * @return The parsed document.
+     */
+    public static Document parse(String markdown) {
+        StringBuilder text = new StringBuilder(markdown.length());
+        List<Span> spans = new ArrayList<>();
+        String[] lines = markdown.split("\n", -1);
+
+        int codeBlockStart = -1;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            boolean last = i == lines.length - 1;
+
+            if (line.trim().startsWith("```")) {
+                if (codeBlockStart < 0) {
+                    codeBlockStart = text.length();
+                } else {
+                    // the code block ends without its last line break
+                    int end = text.length() > codeBlockStart ? text.length() - 1 : text.length();
+                    spans.add(new Span(Style.CODE_BLOCK, codeBlockStart, end, 0));
+                    codeBlockStart = -1;
+                }
+                continue;
+            }
+            if (codeBlockStart >= 0) {
+                text.append(line).append('\n');
+                continue;
+            }
+
+            int lineStart = text.length();
+            int heading = headingLevel(line);
+            if (heading > 0) {
+                parseInline(line.substring(heading).trim(), text, spans);
+                spans.add(new Span(Style.HEADING, lineStart, text.length(), heading));
+            } else if (isBullet(line)) {
+                parseInline(line.trim().substring(2), text, spans);
+                spans.add(new Span(Style.BULLET, lineStart, text.length(), 0));
+            } else {
+                parseInline(line, text, spans);
+            }
+            if (!last) {
+                text.append('\n');
+            }
+        }
+
+        if (codeBlockStart >= 0) {
+            // an unclosed code block, e.g. of an answer that is still generated, runs to the end
+            spans.add(new Span(Style.CODE_BLOCK, codeBlockStart, text.length(), 0));
+        }
+        return new Document(text.toString(), spans);
+    }
+
+    /**
+     * @return The number of "#" of a heading line, or 0 if the line isn't a heading.
+     */
+    private static int headingLevel(String line) {
+        int level = 0;
+        while (level < line.length() && level < 6 && line.charAt(level) == '#') {
+            level++;
+        }
+        return level > 0 && level < line.length() && line.charAt(level) == ' ' ? level : 0;
+    }
+
+    private static boolean isBullet(String line) {
+        String trimmed = line.trim();
+        return trimmed.length() > 2 && (trimmed.charAt(0) == '-' || trimmed.charAt(0) == '*' || trimmed.charAt(0) == '+')
+                && trimmed.charAt(1) == ' ';
+    }
+
+    /**
+     * Parse the inline styles of a line and append its text.
+     */
+    private static void parseInline(String line, StringBuilder text, List<Span> spans) {
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+
+            if (c == '\\' && i + 1 < line.length()) {
+                text.append(line.charAt(i + 1));
+                i += 2;
+                continue;
+            }
+
+            if (c == '`') {
+                int close = line.indexOf('`', i + 1);
+                if (close > i + 1) {
+                    int start = text.length();
+                    text.append(line, i + 1, close);
+                    spans.add(new Span(Style.CODE, start, text.length(), 0));
+                    i = close + 1;
+                    continue;
+                }
+            }
+
+            if ((c == '*' || c == '_') && i + 1 < line.length() && line.charAt(i + 1) == c) {
+                String delimiter = line.substring(i, i + 2);
+                int close = line.indexOf(delimiter, i + 2);
+                if (close > i + 2) {
+                    int start = text.length();
+                    parseInline(line.substring(i + 2, close), text, spans);
+                    spans.add(new Span(Style.BOLD, start, text.length(), 0));
+                    i = close + 2;
+                    continue;
+                }
+            }
+
+            // a single "_" inside a word, e.g. snake_case, or a "*" followed by a space isn't a delimiter
+            if ((c == '*' || c == '_') && i + 1 < line.length() && !Character.isWhitespace(line.charAt(i + 1))
+                    && !(c == '_' && i > 0 && Character.isLetterOrDigit(line.charAt(i - 1)))) {
+                int close = findItalicEnd(line, c, i + 1);
+                if (close > i + 1) {
+                    int start = text.length();
+                    parseInline(line.substring(i + 1, close), text, spans);
+                    spans.add(new Span(Style.ITALIC, start, text.length(), 0));
+                    i = close + 1;
+                    continue;
+                }
+            }
+
+            text.append(c);
+            i++;
+        }
+    }
+
+    /**
+     * @return The position of the delimiter that closes an italic range, or -1 if it isn't closed.
+     */
+    private static int findItalicEnd(String line, char delimiter, int from) {
+        for (int i = from; i < line.length(); i++) {
+            if (line.charAt(i) == '\\') {
+                i++;
+                continue;
+            }
+            if (line.charAt(i) != delimiter || Character.isWhitespace(line.charAt(i - 1))) {
+                continue;
+            }
+            if (i + 1 < line.length() && line.charAt(i + 1) == delimiter) {
+                // skip a bold delimiter inside the italic range
+                i++;
+                continue;
+            }
+            if (delimiter == '_' && i + 1 < line.length() && Character.isLetterOrDigit(line.charAt(i + 1))) {
+                continue;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.style.BulletSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.util.LruCache;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class renders the markdown of the AI Model answers and summaries into styled text on the
+ * background pool, so binding a message is a cache lookup instead of parsing on the main thread.
+ * The rendered texts are kept in a cache bounded by their total length and keyed by the markdown
+ * text, so copies of a message loaded again share the rendered text and a changed text is rendered again.
+ */
+public class MarkdownRenderer {
+    private static final int MAX_CACHE_CHARS = 512 * 1024;
+    private static final int BULLET_GAP_WIDTH = 16;
+    private static final float[] HEADING_SIZES = {1.5f, 1.3f, 1.15f, 1.05f, 1f, 1f};
+    private static final LruCache<String, CharSequence> cache = new LruCache<String, CharSequence>(MAX_CACHE_CHARS) {
+        @Override
+        protected int sizeOf(String markdown, CharSequence rendered) {
+            return Math.max(1, markdown.length());
+        }
+    };
+    // a message bound again while it is rendered waits for the same render
+    private static final SingleFlight<CharSequence> renders = new SingleFlight<>();
+
+    /**
+     * @param markdown - the markdown text.
+     * @return The rendered text, or null if it wasn't rendered yet.
+     */
+    public static CharSequence getCached(String markdown) {
+        return cache.get(markdown);
+    }
+
+    /**
+     * Render a markdown text on the background pool.
+     * @param markdown - the markdown text.
+     * @return A future completed on the main thread with the rendered text.
+     */
+    public static CompletableFuture<CharSequence> renderAsync(String markdown) {
+        CharSequence cached = cache.get(markdown);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return renders.executeAsync(markdown, () -> CompletableFuture.supplyAsync(() -> {
+            CharSequence rendered = render(markdown);
+            cache.put(markdown, rendered);
+            return rendered;
+        }, ApiExecutors.background()), ApiExecutors.mainThread());
+    }
+
+    /**
+     * @param markdown - the markdown text.
+     * @return The styled text, it is immutable and can be shown by any number of views.
+     */
+    static CharSequence render(String markdown) {
+        MarkdownParser.Document document = MarkdownParser.parse(markdown);
+        if (document.spans.isEmpty()) {
+            return document.text;
+        }
+
+        SpannableStringBuilder builder = new SpannableStringBuilder(document.text);
+        for (MarkdownParser.Span span : document.spans) {
+            switch (span.style) {
+                case BOLD:
+                    setSpan(builder, new StyleSpan(Typeface.BOLD), span);
+                    break;
+                case ITALIC:
+                    setSpan(builder, new StyleSpan(Typeface.ITALIC), span);
+                    break;
+                case CODE:
+                case CODE_BLOCK:
+                    setSpan(builder, new TypefaceSpan("monospace"), span);
+                    break;
+                case HEADING:
+                    setSpan(builder, new StyleSpan(Typeface.BOLD), span);
+                    setSpan(builder, new RelativeSizeSpan(HEADING_SIZES[span.level - 1]), span);
+                    break;
+                case BULLET:
+                    setSpan(builder, new BulletSpan(BULLET_GAP_WIDTH), span);
+                    break;
+            }
+        }
+        return new SpannedString(builder);
+    }
+
+    private static void setSpan(SpannableStringBuilder builder, Object what, MarkdownParser.Span span) {
+        builder.setSpan(what, span.start, span.end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+}
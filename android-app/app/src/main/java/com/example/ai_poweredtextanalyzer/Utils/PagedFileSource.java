@@ -0,0 +1,98 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+import com.squareup.moshi.JsonDataException;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * This class loads the user's uploaded files page by page, using the "limit" and "cursor"
+ * query parameters of the files endpoint.
+ * A server that ignores these parameters returns all the files without a "next_cursor",
+ * which is handled as a single last page.
+ */
+public class PagedFileSource {
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    private final OkHttpClient client;
+    private final HttpUrl baseUrl;
+    private final String token;
+    private final int pageSize;
+    private final boolean binaryWireFormat;
+    private String nextCursor = null;
+    // read by the UI thread while a page is loading
+    private volatile boolean endReached = false;
+
+    /**
+     * @param client - http client used for the page requests.
+     * @param baseUrl - the backend server base url.
+     * @param token - JWT access token.
+     * @param pageSize - maximum number of files in a page.
+     */
+    public PagedFileSource(OkHttpClient client, HttpUrl baseUrl, String token, int pageSize) {
+        this(client, baseUrl, token, pageSize, false);
+    }
+
+    /**
+     * @param client - http client used for the page requests.
+     * @param baseUrl - the backend server base url.
+     * @param token - JWT access token.
+     * @param pageSize - maximum number of files in a page.
+     * @param binaryWireFormat - whether the pages are asked in CBOR, see {@link WireFormat}.
+     */
+    public PagedFileSource(OkHttpClient client, HttpUrl baseUrl, String token, int pageSize,
+                           boolean binaryWireFormat) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.token = token;
+        this.pageSize = pageSize;
+        this.binaryWireFormat = binaryWireFormat;
+    }
+
+    /**
+     * @return True if there are more pages to load.
+     */
+    public boolean hasMore() {
+        return !endReached;
+    }
+
+    /**
+     * Load the page that follows the last loaded page.
+     * @return The next page, or an empty last page if all the pages were already loaded.
+     * @throws IOException if the page request failed, the same page is requested again next time.
+     */
+    public synchronized FilePage loadNextPage() throws IOException {
+        if (endReached) {
+            return new FilePage(new ArrayList<>(), null);
+        }
+
+        HttpUrl.Builder url = baseUrl.newBuilder()
+                .addPathSegments("files/")
+                .addQueryParameter("limit", String.valueOf(pageSize));
+        if (nextCursor != null) {
+            url.addQueryParameter("cursor", nextCursor);
+        }
+
+        Request request = WireFormat.accept(new Request.Builder(), binaryWireFormat)
+                .url(url.build())
+                .addHeader("Authorization", "Bearer " + token)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to get files page, status " + response.code());
+            }
+
+            FilePage page = WireFormat.decodeFilePage(response.body());
+            nextCursor = page.getNextCursor();
+            endReached = !page.hasNext();
+            return page;
+        } catch (JsonDataException e) {
+            throw new IOException("Invalid files page response", e);
+        }
+    }
+}
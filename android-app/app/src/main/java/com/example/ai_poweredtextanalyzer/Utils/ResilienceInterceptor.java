@@ -0,0 +1,497 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.example.ai_poweredtextanalyzer.Exceptions.CircuitOpenException;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps the API calls working through a struggling backend, without piling more load on it.
+ * <ul>
+ *     <li>GET requests of the idempotent endpoints are retried after a connection failure or a 5xx,
+ *     with an exponential backoff with jitter.</li>
+ *     <li>When such a request takes longer than the 95th percentile of the endpoint's recent latencies,
+ *     a duplicate request is sent, and the first response wins. The slow tail of a busy server is
+ *     cut at the cost of about 5% more requests. An endpoint has only a few duplicates running at a time,
+ *     so a server that became slow isn't sent twice its load.</li>
+ *     <li>Every endpoint has a circuit breaker. After a number of failures in a row the calls fail fast
+ *     with a {@link CircuitOpenException}, until a trial request succeeds after the open period.</li>
+ * </ul>
+ * Endpoints are named like the {@link CompressionInterceptor} names them. The interceptor must be the
+ * first application interceptor, a duplicate request is a clone of the call and starts from the request
+ * the call was created with. The client must also use its {@link #eventListenerFactory()}, so cancelling
+ * a call cancels its duplicate requests and its wait for a retry right away.
+ */
+public class ResilienceInterceptor implements Interceptor {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 250;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 2000;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 30_000;
+    public static final int DEFAULT_MAX_HEDGES = 2;
+    // the percentile isn't reliable before this many latencies were observed
+    static final int MIN_LATENCY_SAMPLES = 20;
+    private static final int LATENCY_WINDOW = 128;
+    private final Set<String> idempotentEndpoints;
+    private final Executor hedgeExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final int maxAttempts;
+    private final Backoff backoff;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final int maxHedges;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    // the calls of the duplicate requests, they pass this interceptor as they are
+    private final Set<Call> raceCalls = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // what cancels the running race or retry wait of a call, run by the event listener when the call is canceled
+    private final Map<Call, Runnable> cancelActions = new ConcurrentHashMap<>();
+    private final EventListener cancelListener = new EventListener() {
+        @Override
+        public void canceled(@NonNull Call call) {
+            Runnable action = cancelActions.get(call);
+            if (action != null) {
+                action.run();
+            }
+        }
+    };
+
+    /**
+     * Counters of an endpoint.
+     */
+    public static class EndpointStats {
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong hedges = new AtomicLong();
+        private final AtomicLong hedgesWon = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        public long getRetries() { return retries.get(); }
+        public long getHedges() { return hedges.get(); }
+        public long getHedgesWon() { return hedgesWon.get(); }
+        public long getRejected() { return rejected.get(); }
+    }
+
+    /**
+     * @param idempotentEndpoints - the endpoints that are retried and hedged, e.g. "GET /files/".
+     * @param hedgeExecutor - runs the duplicate requests, a small pool of their own.
+     * @param scheduler - runs the timers of the duplicate requests and of the retries.
+     * @param maxAttempts - number of times an idempotent request is tried before it fails.
+     * @param baseDelayMillis - backoff delay after the first failed attempt, it doubles with every attempt.
+     * @param maxDelayMillis - maximum backoff delay.
+     * @param failureThreshold - number of failures in a row that open the circuit of an endpoint.
+     * @param openMillis - time an open circuit fails the calls before a trial request is let through.
+     * @param maxHedges - number of duplicate requests of an endpoint that may run at the same time.
+     */
+    public ResilienceInterceptor(Collection<String> idempotentEndpoints, Executor hedgeExecutor,
+                                 ScheduledExecutorService scheduler, int maxAttempts, long baseDelayMillis,
+                                 long maxDelayMillis, int failureThreshold, long openMillis, int maxHedges) {
+        this.idempotentEndpoints = new HashSet<>(idempotentEndpoints);
+        this.hedgeExecutor = hedgeExecutor;
+        this.scheduler = scheduler;
+        this.maxAttempts = maxAttempts;
+        this.backoff = new Backoff(baseDelayMillis, maxDelayMillis);
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.maxHedges = maxHedges;
+    }
+
+    /**
+     * @param idempotentEndpoints - the endpoints that are retried and hedged, e.g. "GET /files/".
+     * @param hedgeExecutor - runs the duplicate requests, a small pool of their own.
+     * @param scheduler - runs the timers of the duplicate requests and of the retries.
+     */
+    public ResilienceInterceptor(Executor hedgeExecutor, ScheduledExecutorService scheduler,
+                                 String... idempotentEndpoints) {
+        this(Arrays.asList(idempotentEndpoints), hedgeExecutor, scheduler, DEFAULT_MAX_ATTEMPTS,
+                DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS,
+                DEFAULT_MAX_HEDGES);
+    }
+
+    /**
+     * @return A factory of the listener that passes the cancel of a call on to its duplicate requests
+     * and retry wait, the calls of the race are clones and don't see it otherwise.
+     */
+    public EventListener.Factory eventListenerFactory() {
+        return call -> cancelListener;
+    }
+
+    /**
+     * @return The counters of every endpoint that was called, they keep counting.
+     */
+    public Map<String, EndpointStats> getStats() {
+        Map<String, EndpointStats> stats = new HashMap<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().stats);
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        if (raceCalls.contains(chain.call())) {
+            return chain.proceed(chain.request());
+        }
+
+        Request request = chain.request();
+        String name = CompressionInterceptor.endpointOf(request.method(), request.url());
+        Endpoint endpoint = endpoints.computeIfAbsent(name, key -> new Endpoint());
+        boolean idempotent = request.method().equals("GET") && idempotentEndpoints.contains(name);
+
+        for (int attempt = 1; ; attempt++) {
+            if (!endpoint.breaker.tryAcquire()) {
+                endpoint.stats.rejected.incrementAndGet();
+                throw new CircuitOpenException("The backend is unavailable, " + name + " isn't called for now");
+            }
+
+            Response response;
+            try {
+                long hedgeDelay = idempotent ? endpoint.latencies.percentile95() : -1;
+                response = hedgeDelay >= 0 ? race(chain, endpoint, hedgeDelay) : proceed(chain, endpoint);
+            } catch (IOException e) {
+                if (chain.call().isCanceled()) {
+                    endpoint.breaker.release();
+                    throw e;
+                }
+                endpoint.breaker.onFailure();
+                if (!idempotent || attempt >= maxAttempts) {
+                    throw e;
+                }
+                backoff(chain.call(), attempt, endpoint);
+                continue;
+            }
+
+            if (!isServerFailure(response.code())) {
+                endpoint.breaker.onSuccess();
+                return response;
+            }
+            endpoint.breaker.onFailure();
+            if (!idempotent || attempt >= maxAttempts) {
+                return response;
+            }
+            response.close();
+            backoff(chain.call(), attempt, endpoint);
+        }
+    }
+
+    /**
+     * @return Whether the response tells the server failed to handle a request it should have,
+     * a retry may succeed.
+     */
+    static boolean isServerFailure(int code) {
+        return code >= 500 && code != 501 && code != 505;
+    }
+
+    /**
+     * @param attempt - number of failed attempts, from 1.
+     * @return The delay before the next attempt, between half and all of the exponential delay, so
+     * the clients that failed together don't retry together.
+     */
+    long backoffDelay(int attempt) {
+        return backoff.delay(attempt);
+    }
+
+    /**
+     * Wait for the backoff delay of the next attempt. The delay is a timer of the scheduler instead of a sleep,
+     * so a cancel of the call ends the wait right away instead of after the delay.
+     * @throws IOException if the call was canceled while waiting.
+     */
+    private void backoff(Call call, int attempt, Endpoint endpoint) throws IOException {
+        endpoint.stats.retries.incrementAndGet();
+        CompletableFuture<Void> timer = new CompletableFuture<>();
+        ScheduledFuture<?> task = scheduler.schedule(() -> timer.complete(null),
+                backoff.delay(attempt), TimeUnit.MILLISECONDS);
+        cancelActions.put(call, () -> timer.cancel(false));
+        try {
+            if (call.isCanceled()) {
+                throw new IOException("Canceled");
+            }
+            timer.get();
+        } catch (CancellationException | ExecutionException e) {
+            throw new IOException("Canceled");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        } finally {
+            cancelActions.remove(call);
+            task.cancel(false);
+        }
+    }
+
+    private Response proceed(Chain chain, Endpoint endpoint) throws IOException {
+        long start = System.nanoTime();
+        Response response = chain.proceed(chain.request());
+        recordLatency(endpoint, response, start);
+        return response;
+    }
+
+    /**
+     * Record the latency of a response the server sent. A cache hit or a revalidated response is faster
+     * than the server, it would pull the percentile down and hedge the requests that do reach it.
+     */
+    private static void recordLatency(Endpoint endpoint, Response response, long startNanos) {
+        if (!isServerFailure(response.code())
+                && response.networkResponse() != null && response.cacheResponse() == null) {
+            endpoint.latencies.add(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Send the request, and a duplicate of it if it didn't get a response within the delay.
+     * @return The first response.
+     * @throws IOException if both requests failed.
+     */
+    private Response race(Chain chain, Endpoint endpoint, long hedgeDelayNanos) throws IOException {
+        Call call = chain.call();
+        Race race = new Race(call, endpoint);
+        cancelActions.put(call, race::cancel);
+        try {
+            Call primary = race.newCall();
+            if (primary == null) {
+                throw new IOException("Canceled");
+            }
+            ScheduledFuture<?> hedge = scheduler.schedule(() -> hedge(race, endpoint),
+                    hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            try {
+                race.run(primary, false);
+                return race.await();
+            } finally {
+                hedge.cancel(false);
+            }
+        } finally {
+            cancelActions.remove(call);
+        }
+    }
+
+    /**
+     * Send the duplicate request of a race, unless the endpoint already has its maximum of duplicates running.
+     */
+    private void hedge(Race race, Endpoint endpoint) {
+        if (endpoint.hedgesRunning.incrementAndGet() > maxHedges) {
+            endpoint.hedgesRunning.decrementAndGet();
+            return;
+        }
+        try {
+            hedgeExecutor.execute(() -> {
+                try {
+                    Call duplicate = race.newCall();
+                    if (duplicate != null) {
+                        endpoint.stats.hedges.incrementAndGet();
+                        race.run(duplicate, true);
+                    }
+                } finally {
+                    endpoint.hedgesRunning.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            endpoint.hedgesRunning.decrementAndGet();
+        }
+    }
+
+    /**
+     * A request and its duplicate, the first response is returned and the other call is canceled.
+     */
+    private class Race {
+        private final Call call;
+        private final Endpoint endpoint;
+        private final List<Call> calls = new ArrayList<>();
+        private Response response;
+        private IOException failure;
+        private int running = 0;
+        private boolean finished = false;
+
+        Race(Call call, Endpoint endpoint) {
+            this.call = call;
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * @return A new call of the request, or null if the race is over.
+         */
+        synchronized Call newCall() {
+            if (finished || response != null || call.isCanceled()) {
+                return null;
+            }
+            Call clone = call.clone();
+            raceCalls.add(clone);
+            calls.add(clone);
+            running++;
+            return clone;
+        }
+
+        void run(Call clone, boolean duplicate) {
+            long start = System.nanoTime();
+            Response result = null;
+            IOException error = null;
+            try {
+                result = clone.execute();
+                recordLatency(endpoint, result, start);
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                raceCalls.remove(clone);
+            }
+            finish(clone, result, error, duplicate);
+        }
+
+        private synchronized void finish(Call clone, Response result, IOException error, boolean duplicate) {
+            running--;
+            // a cancel the listener didn't pass on still ends the race when one of its calls ends
+            if (call.isCanceled()) {
+                cancel();
+            }
+            if (result != null && response == null && !finished) {
+                response = result;
+                if (duplicate) {
+                    endpoint.stats.hedgesWon.incrementAndGet();
+                }
+                for (Call other : calls) {
+                    if (other != clone) {
+                        other.cancel();
+                    }
+                }
+            } else if (result != null) {
+                result.close();
+            } else if (failure == null) {
+                failure = error;
+            }
+            notifyAll();
+        }
+
+        synchronized void cancel() {
+            for (Call clone : calls) {
+                clone.cancel();
+            }
+        }
+
+        /**
+         * Wait for the first response, or for all the calls to fail.
+         */
+        synchronized Response await() throws IOException {
+            try {
+                while (response == null && running > 0) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a response");
+            } finally {
+                finished = true;
+            }
+            if (response != null) {
+                return response;
+            }
+            throw failure;
+        }
+    }
+
+    /**
+     * The state of an endpoint.
+     */
+    private class Endpoint {
+        final CircuitBreaker breaker = new CircuitBreaker();
+        final LatencyWindow latencies = new LatencyWindow();
+        final EndpointStats stats = new EndpointStats();
+        final AtomicInteger hedgesRunning = new AtomicInteger();
+    }
+
+    /**
+     * Fails the calls of an endpoint fast after the failures in a row reach the threshold. After the open
+     * period a single trial call is let through, its success closes the circuit and its failure opens it again.
+     */
+    private class CircuitBreaker {
+        private int failures = 0;
+        private boolean open = false;
+        private boolean trialRunning = false;
+        private long openedAt;
+
+        /**
+         * @return Whether a call may be sent.
+         */
+        synchronized boolean tryAcquire() {
+            if (!open) {
+                return true;
+            }
+            if (trialRunning || System.nanoTime() - openedAt < TimeUnit.MILLISECONDS.toNanos(openMillis)) {
+                return false;
+            }
+            trialRunning = true;
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            failures = 0;
+            open = false;
+            trialRunning = false;
+        }
+
+        synchronized void onFailure() {
+            failures++;
+            if (trialRunning || failures >= failureThreshold) {
+                open = true;
+                openedAt = System.nanoTime();
+            }
+            trialRunning = false;
+        }
+
+        /**
+         * A call that was canceled tells nothing about the backend, another trial call may be sent.
+         */
+        synchronized void release() {
+            trialRunning = false;
+        }
+    }
+
+    /**
+     * The latencies of the last successful requests of an endpoint.
+     */
+    private static class LatencyWindow {
+        private final long[] samples = new long[LATENCY_WINDOW];
+        private int count = 0;
+        private int next = 0;
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * @return The 95th percentile of the latencies in nanos, or -1 if too few were observed.
+         */
+        synchronized long percentile95() {
+            if (count < MIN_LATENCY_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(count * 0.95) - 1];
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * This class coalesces identical calls that run at the same time.
+ * The first caller of a key runs the call, and callers of the same key that arrive while it is
+ * running wait for it and get the same result or the same exception.
+ * @param <T> - type of the call result.
+ */
+public class SingleFlight<T> {
+    private final ConcurrentHashMap<String, Flight<T>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Run the call, or wait for the running call of the same key.
+     * @param key - identifies the call, e.g. the endpoint and its parameters.
+     * @param call - the call to run.
+     * @return The call result.
+     * @throws RuntimeException thrown by the call.
+     */
+    public T execute(String key, Supplier<T> call) throws RuntimeException {
+        Flight<T> flight = new Flight<>();
+        Flight<T> running = calls.putIfAbsent(key, flight);
+        if (running != null) {
+            // a blocking caller can't cancel, it keeps the call running for good
+            running.waiters.incrementAndGet();
+            return await(running.result);
+        }
+
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            calls.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        calls.remove(key, flight);
+        flight.result.complete(result);
+        return result;
+    }
+
+    /**
+     * Start an asynchronous call, or attach to the running call of the same key.
+     * Every caller gets its own future, cancelling it detaches the caller from the call,
+     * and the call itself is cancelled once all its callers were cancelled.
+     * @param key - identifies the call, e.g. the endpoint and its parameters.
+     * @param call - starts the call, cancelling the future it returns must cancel the call.
+     * @param callbackExecutor - executor the returned future is completed on, e.g. the main thread.
+     * @return A future of the call result.
+     */
+    public CompletableFuture<T> executeAsync(String key, Supplier<CompletableFuture<T>> call, Executor callbackExecutor) {
+        Flight<T> flight = new Flight<>();
+        Flight<T> running;
+        while (true) {
+            running = calls.putIfAbsent(key, flight);
+            if (running == null) {
+                running = flight;
+                start(key, flight, call);
+                break;
+            }
+            if (running.attach()) {
+                break;
+            }
+            // all the callers of the running call cancelled it, start a new one
+            calls.remove(key, running);
+        }
+
+        Flight<T> attached = running;
+        CompletableFuture<T> future = new CompletableFuture<>();
+        attached.result.whenCompleteAsync((result, error) -> complete(future, result, error), callbackExecutor);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                attached.detach();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return Number of calls that are running.
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    private void start(String key, Flight<T> flight, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException | Error e) {
+            started = new CompletableFuture<>();
+            started.completeExceptionally(e);
+        }
+        flight.started = started;
+        started.whenComplete((result, error) -> {
+            calls.remove(key, flight);
+            complete(flight.result, result, error);
+        });
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, T result, Throwable error) {
+        if (error == null) {
+            future.complete(result);
+        } else {
+            future.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> flight) throws RuntimeException {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A running call and the number of callers waiting for it.
+     */
+    private static class Flight<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicInteger waiters = new AtomicInteger(1);
+        volatile CompletableFuture<T> started;
+
+        /**
+         * @return False if the call was already cancelled by all its callers.
+         */
+        boolean attach() {
+            int count;
+            do {
+                count = waiters.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!waiters.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        void detach() {
+            CompletableFuture<T> call = started;
+            if (waiters.decrementAndGet() == 0 && call != null) {
+                call.cancel(true);
+            }
+        }
+    }
+}
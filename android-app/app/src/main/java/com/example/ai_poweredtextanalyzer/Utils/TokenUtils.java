@@ -0,0 +1,32 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import okio.ByteString;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class provide utility methods for the JWT access tokens.
+ */
+public class TokenUtils {
+    /**
+     * Find a key of the user a token belongs to, based on the "sub" claim of the JWT payload,
+     * so a new login of the same user maps to the same key.
+     * @param token - JWT access token.
+     * @return A file name safe key of the user.
+     */
+    public static String userKey(String token) {
+        String subject = token;
+        String[] parts = token.split("\\.");
+        if (parts.length == 3) {
+            ByteString payload = ByteString.decodeBase64(parts[1]);
+            if (payload != null) {
+                try {
+                    subject = new JSONObject(payload.utf8()).optString("sub", token);
+                } catch (JSONException e) {
+                    // not a JWT payload, key by the whole token
+                }
+            }
+        }
+        return ByteString.encodeUtf8(subject).sha256().hex();
+    }
+}
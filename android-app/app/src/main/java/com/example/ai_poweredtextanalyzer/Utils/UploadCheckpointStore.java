@@ -0,0 +1,105 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * This class keeps the last server-acknowledged offset of every unfinished chunked upload on disk,
+ * so an upload can resume after a failure or after the app process was killed.
+ */
+public class UploadCheckpointStore {
+    private final File file;
+    private final Properties checkpoints = new Properties();
+
+    /**
+     * This class represent the progress of a single unfinished upload.
+     */
+    public static class Checkpoint {
+        private final String uploadId;
+        private final long offset;
+
+        public Checkpoint(String uploadId, long offset) {
+            this.uploadId = uploadId;
+            this.offset = offset;
+        }
+
+        public String getUploadId() { return uploadId; }
+        public long getOffset() { return offset; }
+    }
+
+    /**
+     * @param file - the file the checkpoints are persisted to.
+     */
+    public UploadCheckpointStore(File file) {
+        this.file = file;
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                checkpoints.load(in);
+            } catch (IOException e) {
+                // a corrupted checkpoint file only costs a restart from byte zero
+                checkpoints.clear();
+            }
+        }
+    }
+
+    /**
+     * Get the checkpoint of an upload.
+     * @param key - key of the uploaded file.
+     * @return The checkpoint, or null if there is no unfinished upload for this file.
+     */
+    public synchronized Checkpoint get(String key) {
+        String value = checkpoints.getProperty(key);
+        if (value == null) {
+            return null;
+        }
+
+        int separator = value.lastIndexOf(',');
+        try {
+            return new Checkpoint(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Save the acknowledged offset of an upload.
+     * @param key - key of the uploaded file.
+     * @param uploadId - the server upload session ID.
+     * @param offset - number of bytes the server acknowledged.
+     * @throws IOException if the checkpoint couldn't be written to disk.
+     */
+    public synchronized void put(String key, String uploadId, long offset) throws IOException {
+        checkpoints.setProperty(key, uploadId + "," + offset);
+        save();
+    }
+
+    /**
+     * Remove the checkpoint of a finished or abandoned upload.
+     * @param key - key of the uploaded file.
+     * @throws IOException if the checkpoints couldn't be written to disk.
+     */
+    public synchronized void remove(String key) throws IOException {
+        if (checkpoints.remove(key) != null) {
+            save();
+        }
+    }
+
+    /**
+     * Write all checkpoints to a temporary file and rename it over the old one,
+     * so a crash in the middle of a write never leaves a half-written file behind.
+     */
+    private void save() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            checkpoints.store(out, null);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Failed to save upload checkpoints");
+        }
+    }
+}
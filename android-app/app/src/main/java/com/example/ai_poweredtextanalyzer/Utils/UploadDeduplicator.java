@@ -0,0 +1,141 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.example.ai_poweredtextanalyzer.Objects.File;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * This class asks the backend server whether it already stores the content of a file before it is
+ * uploaded, so uploading the same document again costs a hash of the file and a single small request
+ * instead of sending all its bytes.
+ * <p>
+ * Probe protocol:
+ * <ul>
+ *     <li>POST upload/probe with {"sha256", "filename", "size"} returns 200 with {"file"} describing
+ *     the user's file of that content and name, the server links a new file to the stored content if
+ *     the user stored it under another name.</li>
+ *     <li>A 204 response means the server doesn't have the content and the file must be uploaded.</li>
+ * </ul>
+ * A server that answers 404 or 405 doesn't support probes, it isn't asked again.
+ */
+public class UploadDeduplicator {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private final OkHttpClient client;
+    private final HttpUrl baseUrl;
+    private volatile boolean supported = true;
+
+    /**
+     * @param client - http client used for the probe requests.
+     * @param baseUrl - the backend server base url.
+     */
+    public UploadDeduplicator(OkHttpClient client, HttpUrl baseUrl) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * @return False if the server answered that it doesn't support probes, the content needn't be hashed for them.
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Find the file of the same content stored by the server.
+     * @param token - JWT access token.
+     * @param source - content of the file to upload.
+     * @param fileName - name of the file to upload.
+     * @return The user's file of this content and name, or null if the file must be uploaded.
+     * @throws IOException if the file couldn't be read or the server couldn't be reached.
+     */
+    public File findExisting(String token, UploadSource source, String fileName) throws IOException {
+        return supported ? findExisting(token, source, fileName, sha256(source)) : null;
+    }
+
+    /**
+     * Find the file of the same content stored by the server.
+     * @param token - JWT access token.
+     * @param source - content of the file to upload.
+     * @param fileName - name of the file to upload.
+     * @param sha256 - SHA-256 of the content, as lowercase hex.
+     * @return The user's file of this content and name, or null if the file must be uploaded.
+     * @throws IOException if the server couldn't be reached.
+     */
+    public File findExisting(String token, UploadSource source, String fileName, String sha256) throws IOException {
+        if (!supported) {
+            return null;
+        }
+
+        try {
+            JSONObject jsonBody = new JSONObject();
+            jsonBody.put("sha256", sha256);
+            jsonBody.put("filename", fileName);
+            if (source.length() != -1) {
+                jsonBody.put("size", source.length());
+            }
+
+            Request request = new Request.Builder()
+                    .url(baseUrl.resolve("upload/probe"))
+                    .addHeader("Authorization", "Bearer " + token)
+                    .post(RequestBody.create(jsonBody.toString(), JSON))
+                    .build();
+
+            try (Response response = client.newCall(request).execute()) {
+                if (response.code() == 404 || response.code() == 405) {
+                    supported = false;
+                    return null;
+                } else if (response.code() == 204 || !response.isSuccessful()) {
+                    // a probe that failed only costs the upload it was meant to save
+                    return null;
+                }
+                return JsonStreamDecoder.decodeUploadedFile(response.body().source());
+            }
+        } catch (JSONException e) {
+            throw new IOException("Invalid upload probe", e);
+        }
+    }
+
+    /**
+     * Hash the content of a file as it is read, a buffer at a time, so a large file isn't held in memory.
+     * @param source - content of the file.
+     * @return The SHA-256 of the content, as lowercase hex.
+     * @throws IOException if the file couldn't be read.
+     */
+    public static String sha256(UploadSource source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = source.open()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
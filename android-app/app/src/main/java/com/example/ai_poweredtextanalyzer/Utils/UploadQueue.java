@@ -0,0 +1,460 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.example.ai_poweredtextanalyzer.Objects.File;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * This class keeps the files the user picked to upload on disk until they are uploaded, so an upload
+ * that failed or was interrupted by the app process being killed is sent again instead of being lost.
+ * At most a fixed number of uploads run at the same time. An upload that failed with an
+ * {@link IOException}, e.g. a dropped connection or a server error, is retried after an exponential
+ * backoff with jitter, any other failure, e.g. a rejected file, removes it from the queue.
+ * The queued uploads are loaded and started again when the queue is created.
+ * The uploads added while others are still queued form a batch, whose aggregate progress is reported
+ * until the queue is empty again, so a screen can refresh once at the end of the batch.
+ */
+public class UploadQueue {
+    // below the connections per host of the http client, so the uploads share its pooled connections
+    public static final int DEFAULT_MAX_CONCURRENT = 4;
+    public static final int DEFAULT_MAX_ATTEMPTS = 6;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 1000;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 60 * 1000;
+
+    /**
+     * This class represent a file waiting in the queue to be uploaded.
+     */
+    public static class Upload {
+        private final String id;
+        private final String uri;
+        private final String fileName;
+        private final String mimeType;
+        // size in bytes, or -1 if it is unknown
+        private final long size;
+        // whether a read permission of the uri was persisted for the upload, it is released once it is done
+        private final boolean persistedPermission;
+        // number of failed attempts and bytes the server stored, guarded by the queue
+        private int attempts;
+        private long bytesSent;
+
+        Upload(String id, String uri, String fileName, String mimeType, long size,
+               boolean persistedPermission, int attempts) {
+            this.id = id;
+            this.uri = uri;
+            this.fileName = fileName;
+            this.mimeType = mimeType;
+            this.size = size;
+            this.persistedPermission = persistedPermission;
+            this.attempts = attempts;
+        }
+
+        public String getId() { return id; }
+        public String getUri() { return uri; }
+        public String getFileName() { return fileName; }
+        public String getMimeType() { return mimeType; }
+        public long getSize() { return size; }
+        public boolean hasPersistedPermission() { return persistedPermission; }
+    }
+
+    /**
+     * This class represent the aggregate progress of the current batch of uploads.
+     */
+    public static class Progress {
+        private final int finished;
+        private final int total;
+        private final long bytesSent;
+        // the total size of the batch, or -1 if the size of one of its files is unknown
+        private final long bytesTotal;
+
+        Progress(int finished, int total, long bytesSent, long bytesTotal) {
+            this.finished = finished;
+            this.total = total;
+            this.bytesSent = bytesSent;
+            this.bytesTotal = bytesTotal;
+        }
+
+        public int getFinished() { return finished; }
+        public int getTotal() { return total; }
+        public long getBytesSent() { return bytesSent; }
+        public long getBytesTotal() { return bytesTotal; }
+
+        /**
+         * @return The done part of the batch between 0 and 1, by bytes if all the sizes are known.
+         */
+        public float getFraction() {
+            if (bytesTotal > 0) {
+                return Math.min(1f, (float) bytesSent / bytesTotal);
+            }
+            return total > 0 ? (float) finished / total : 0f;
+        }
+    }
+
+    /**
+     * Sends a queued file to the backend server.
+     */
+    public interface Uploader {
+        /**
+         * Upload a file, it is called from the worker threads.
+         * @param upload - the queued file.
+         * @param onBytesSent - called with the number of bytes of the file the server stored so far.
+         * @return The uploaded file, or null if the server didn't describe it.
+         * @throws IOException if the upload failed and should be retried.
+         */
+        File upload(Upload upload, LongConsumer onBytesSent) throws IOException;
+
+        /**
+         * Called once an upload left the queue, uploaded or failed, e.g. to release its uri permission.
+         * @param upload - the removed upload.
+         */
+        default void onRemoved(Upload upload) {}
+    }
+
+    /**
+     * Notified on the callback executor when an upload left the queue and as the batch progresses.
+     */
+    public interface Listener {
+        void onUploadFinished(Upload upload, File uploaded);
+        void onUploadFailed(Upload upload, Exception error);
+        void onProgress(Progress progress);
+
+        /**
+         * Called once all the uploads of the batch left the queue.
+         */
+        void onBatchFinished();
+    }
+
+    private final java.io.File file;
+    private final Uploader uploader;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callbackExecutor;
+    private final int maxConcurrent;
+    private final int maxAttempts;
+    private final Backoff backoff;
+    // the queued uploads in the order they were added, guarded by this
+    private final Map<String, Upload> uploads = new LinkedHashMap<>();
+    // the uploads that can start, the others run or wait for their backoff
+    private final ArrayDeque<Upload> ready = new ArrayDeque<>();
+    private int running = 0;
+    private long nextId = 1;
+    private Listener listener;
+    private boolean saveScheduled = false;
+    private boolean shutdown = false;
+    // the current batch, the uploads added since the queue was last empty
+    private int batchTotal = 0;
+    private int batchFinished = 0;
+    private long batchBytesTotal = 0;
+    private long batchBytesFinished = 0;
+
+    /**
+     * Load the queued uploads and start them.
+     * @param file - the file the queued uploads are persisted to.
+     * @param uploader - sends the files.
+     * @param executor - runs the uploads.
+     * @param scheduler - runs the backoff timers and the writes of the queue file.
+     * @param callbackExecutor - the listener is notified on it.
+     * @param maxConcurrent - maximum number of uploads that run at the same time.
+     * @param maxAttempts - number of times an upload is tried before it fails.
+     * @param baseDelayMillis - backoff delay after the first failed attempt, it doubles with every attempt.
+     * @param maxDelayMillis - maximum backoff delay.
+     */
+    public UploadQueue(java.io.File file, Uploader uploader, Executor executor, ScheduledExecutorService scheduler,
+                       Executor callbackExecutor, int maxConcurrent, int maxAttempts,
+                       long baseDelayMillis, long maxDelayMillis) {
+        this.file = file;
+        this.uploader = uploader;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.callbackExecutor = callbackExecutor;
+        this.maxConcurrent = maxConcurrent;
+        this.maxAttempts = maxAttempts;
+        this.backoff = new Backoff(baseDelayMillis, maxDelayMillis);
+
+        synchronized (this) {
+            load();
+            for (Upload upload : uploads.values()) {
+                addToBatch(upload);
+            }
+            ready.addAll(uploads.values());
+            drain();
+        }
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Add a file to upload.
+     * @param uri - uri of the file content.
+     * @param fileName - name of the file.
+     * @param mimeType - MIME type of the file.
+     * @param size - size of the file in bytes, or -1 if it is unknown.
+     * @param persistedPermission - whether a read permission of the uri was persisted for the upload.
+     * @return The queued upload.
+     */
+    public synchronized Upload enqueue(String uri, String fileName, String mimeType, long size,
+                                       boolean persistedPermission) {
+        Upload upload = new Upload(String.valueOf(nextId++), uri, fileName, mimeType, size, persistedPermission, 0);
+        uploads.put(upload.getId(), upload);
+        addToBatch(upload);
+        ready.add(upload);
+        save();
+        drain();
+        notifyListener(null);
+        return upload;
+    }
+
+    /**
+     * Stop starting uploads, e.g. after the user logged out. The running uploads finish and the listener
+     * is no longer notified, the waiting uploads stay saved and are resumed by the next queue of the file.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        listener = null;
+    }
+
+    /**
+     * @return The queued uploads, running or waiting, in the order they were added.
+     */
+    public synchronized List<Upload> getUploads() {
+        return new ArrayList<>(uploads.values());
+    }
+
+    /**
+     * @param attempt - number of failed attempts, from 1.
+     * @return The delay before the next attempt, between half and all of the exponential delay, so
+     * uploads that failed together don't retry together.
+     */
+    long backoffDelay(int attempt) {
+        return backoff.delay(attempt);
+    }
+
+    /**
+     * Start the ready uploads, as long as fewer than the maximum are running.
+     */
+    private void drain() {
+        while (!shutdown && running < maxConcurrent && !ready.isEmpty()) {
+            Upload upload = ready.poll();
+            running++;
+            executor.execute(() -> run(upload));
+        }
+    }
+
+    private void run(Upload upload) {
+        File uploaded;
+        try {
+            uploaded = uploader.upload(upload, bytesSent -> {
+                synchronized (this) {
+                    upload.bytesSent = bytesSent;
+                    notifyListener(null);
+                }
+            });
+        } catch (FileNotFoundException e) {
+            // the file was deleted or its permission revoked, another attempt won't find it either
+            fail(upload, e);
+            return;
+        } catch (IOException e) {
+            retry(upload, e);
+            return;
+        } catch (RuntimeException e) {
+            fail(upload, e);
+            return;
+        }
+        finish(upload, listener -> listener.onUploadFinished(upload, uploaded));
+    }
+
+    private void retry(Upload upload, IOException error) {
+        synchronized (this) {
+            upload.attempts++;
+            if (upload.attempts < maxAttempts) {
+                running--;
+                save();
+                scheduler.schedule(() -> {
+                    synchronized (this) {
+                        ready.add(upload);
+                        drain();
+                    }
+                }, backoffDelay(upload.attempts), TimeUnit.MILLISECONDS);
+                drain();
+                return;
+            }
+        }
+        fail(upload, error);
+    }
+
+    private void fail(Upload upload, Exception error) {
+        finish(upload, listener -> listener.onUploadFailed(upload, error));
+    }
+
+    /**
+     * Remove an upload that is done, start the next one and notify the listener.
+     */
+    private void finish(Upload upload, Consumer<Listener> notification) {
+        synchronized (this) {
+            uploads.remove(upload.getId());
+            running--;
+            batchFinished++;
+            batchBytesFinished += Math.max(0, upload.getSize());
+            save();
+            drain();
+            notifyListener(notification);
+        }
+        uploader.onRemoved(upload);
+    }
+
+    private void addToBatch(Upload upload) {
+        batchTotal++;
+        batchBytesTotal = upload.getSize() >= 0 && batchBytesTotal >= 0 ? batchBytesTotal + upload.getSize() : -1;
+    }
+
+    /**
+     * Notify the listener on the callback executor, followed by the progress of the batch, and the end
+     * of the batch if the queue is empty. It is called with the queue locked, so the notifications
+     * are delivered in the order of the changes.
+     * @param notification - the notification before the progress, may be null.
+     */
+    private void notifyListener(Consumer<Listener> notification) {
+        Progress progress = getProgress();
+        boolean batchEnded = uploads.isEmpty() && batchTotal > 0;
+        if (batchEnded) {
+            batchTotal = 0;
+            batchFinished = 0;
+            batchBytesTotal = 0;
+            batchBytesFinished = 0;
+        }
+
+        callbackExecutor.execute(() -> {
+            Listener current;
+            synchronized (this) {
+                current = listener;
+            }
+            if (current == null) {
+                return;
+            }
+            if (notification != null) {
+                notification.accept(current);
+            }
+            if (progress.getTotal() > 0) {
+                current.onProgress(progress);
+            }
+            if (batchEnded) {
+                current.onBatchFinished();
+            }
+        });
+    }
+
+    /**
+     * @return The progress of the current batch.
+     */
+    public synchronized Progress getProgress() {
+        long bytesSent = batchBytesFinished;
+        for (Upload upload : uploads.values()) {
+            bytesSent += upload.bytesSent;
+        }
+        return new Progress(batchFinished, batchTotal, bytesSent, batchBytesTotal);
+    }
+
+    /**
+     * Write the queued uploads on the scheduler thread, so a caller never waits for the disk.
+     * A write takes the queue as it is when the write runs, so the changes made while a write is
+     * pending are written together.
+     */
+    private void save() {
+        if (!saveScheduled) {
+            saveScheduled = true;
+            scheduler.execute(this::write);
+        }
+    }
+
+    private void write() {
+        Properties properties = new Properties();
+        synchronized (this) {
+            saveScheduled = false;
+            for (Upload upload : uploads.values()) {
+                String prefix = upload.getId() + ".";
+                properties.setProperty(prefix + "uri", upload.getUri());
+                properties.setProperty(prefix + "name", upload.getFileName());
+                properties.setProperty(prefix + "mime", upload.getMimeType());
+                properties.setProperty(prefix + "size", String.valueOf(upload.getSize()));
+                properties.setProperty(prefix + "permission", String.valueOf(upload.hasPersistedPermission()));
+                properties.setProperty(prefix + "attempts", String.valueOf(upload.attempts));
+            }
+        }
+
+        // write a temporary file and rename it over the old one, so a crash never leaves a half-written file
+        java.io.File temp = new java.io.File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            return;
+        }
+        temp.renameTo(file);
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            // a corrupted queue file loses the queued uploads, the user can pick the files again
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.endsWith(".uri")) {
+                try {
+                    ids.add(Long.parseLong(name.substring(0, name.length() - ".uri".length())));
+                } catch (NumberFormatException e) {
+                    // not an upload
+                }
+            }
+        }
+        Collections.sort(ids);
+
+        nextId = 1;
+        for (long id : ids) {
+            String prefix = id + ".";
+            String uri = properties.getProperty(prefix + "uri");
+            String name = properties.getProperty(prefix + "name");
+            String mime = properties.getProperty(prefix + "mime");
+            if (name == null || mime == null) {
+                continue;
+            }
+            int attempts;
+            long size;
+            try {
+                attempts = Integer.parseInt(properties.getProperty(prefix + "attempts", "0"));
+                size = Long.parseLong(properties.getProperty(prefix + "size", "-1"));
+            } catch (NumberFormatException e) {
+                attempts = 0;
+                size = -1;
+            }
+            boolean permission = Boolean.parseBoolean(properties.getProperty(prefix + "permission"));
+            uploads.put(String.valueOf(id), new Upload(String.valueOf(id), uri, name, mime, size, permission, attempts));
+            nextId = Math.max(nextId, id + 1);
+        }
+    }
+}
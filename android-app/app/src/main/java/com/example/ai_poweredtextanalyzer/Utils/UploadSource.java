@@ -0,0 +1,26 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This interface represent the content of a file to upload, which can be re-opened from the start.
+ */
+public interface UploadSource {
+    /**
+     * Open a new stream over the file content.
+     * @return A stream positioned at the first byte of the file.
+     * @throws IOException if the file can't be opened.
+     */
+    InputStream open() throws IOException;
+
+    /**
+     * @return The file size in bytes, or -1 if it is unknown.
+     */
+    long length();
+
+    /**
+     * @return A key that identifies this file across process restarts.
+     */
+    String key();
+}
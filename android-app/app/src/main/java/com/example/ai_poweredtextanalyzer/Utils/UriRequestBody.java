@@ -0,0 +1,91 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class represent a request body that streams a content Uri straight into the OkHttp sink.
+ * The file is copied through a fixed-size buffer, so the memory used by an upload doesn't depend
+ * on the file size.
+ */
+public class UriRequestBody extends RequestBody {
+    private static final int BUFFER_SIZE = 8192;
+    private final ContentResolver contentResolver;
+    private final Uri uri;
+    private final MediaType contentType;
+    private final long contentLength;
+
+    public UriRequestBody(ContentResolver contentResolver, Uri uri, MediaType contentType) {
+        this.contentResolver = contentResolver;
+        this.uri = uri;
+        this.contentType = contentType;
+        this.contentLength = queryContentLength(contentResolver, uri);
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The file size reported by the content provider, or -1 if it is unknown,
+     * in which case OkHttp falls back to chunked transfer encoding.
+     */
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        try (InputStream inputStream = contentResolver.openInputStream(uri)) {
+            if (inputStream == null) {
+                throw new IOException("Failed to open " + uri);
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long written = 0;
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                sink.write(buffer, 0, read);
+                written += read;
+            }
+
+            // the declared length was already sent as a header, a mismatch would corrupt the request
+            if (contentLength != -1 && written != contentLength) {
+                throw new IOException("Expected " + contentLength + " bytes but read " + written);
+            }
+        }
+    }
+
+    /**
+     * Query the content provider for the size of the file.
+     * @param contentResolver - resolver used to query the provider.
+     * @param uri - uri of the file.
+     * @return The file size in bytes, or -1 if the provider doesn't expose it.
+     */
+    public static long queryContentLength(ContentResolver contentResolver, Uri uri) {
+        try (Cursor cursor = contentResolver.query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int index = cursor.getColumnIndex(OpenableColumns.SIZE);
+                if (index != -1 && !cursor.isNull(index)) {
+                    return cursor.getLong(index);
+                }
+            }
+        } catch (RuntimeException e) {
+            // some providers don't support queries (e.g. file:// uris), treat the size as unknown
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class represent the content of a file picked by the user, read through the ContentResolver.
+ */
+public class UriUploadSource implements UploadSource {
+    private final ContentResolver contentResolver;
+    private final Uri uri;
+    private final long length;
+
+    public UriUploadSource(ContentResolver contentResolver, Uri uri) {
+        this.contentResolver = contentResolver;
+        this.uri = uri;
+        this.length = UriRequestBody.queryContentLength(contentResolver, uri);
+    }
+
+    @Override
+    public InputStream open() throws IOException {
+        InputStream inputStream = contentResolver.openInputStream(uri);
+        if (inputStream == null) {
+            throw new IOException("Failed to open " + uri);
+        }
+        return inputStream;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public String key() {
+        // the size is part of the key so an edited file doesn't resume an old upload
+        return uri + "#" + length;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import okhttp3.Cache;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class gives every user a separate, size-bounded on-disk http cache for the read endpoints.
+ * Cached responses are revalidated with "If-None-Match" and "If-Modified-Since" on every request,
+ * so an unchanged response costs a single round trip answered by a 304 without a body.
+ */
+public class UserHttpCache {
+    public static final long MAX_CACHE_SIZE = 10L * 1024 * 1024;
+    private final OkHttpClient baseClient;
+    private final File cacheRoot;
+    private final long maxSize;
+    private final Map<String, OkHttpClient> clients = new HashMap<>();
+
+    /**
+     * @param baseClient - client the cached clients are derived from, they share its connection pool.
+     * @param cacheRoot - directory that holds the cache directory of every user.
+     * @param maxSize - maximum size in bytes of a single user's cache.
+     */
+    public UserHttpCache(OkHttpClient baseClient, File cacheRoot, long maxSize) {
+        this.baseClient = baseClient;
+        this.cacheRoot = cacheRoot;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the http client that caches the responses of the user the token belongs to,
+     * a new login of the same user keeps using the same cache.
+     * @param token - JWT access token.
+     * @return A client with the user's cache.
+     */
+    public synchronized OkHttpClient clientFor(String token) {
+        String userKey = TokenUtils.userKey(token);
+        OkHttpClient client = clients.get(userKey);
+        if (client == null) {
+            client = baseClient.newBuilder()
+                    .cache(new Cache(new File(cacheRoot, userKey), maxSize))
+                    .addNetworkInterceptor(new RevalidateInterceptor())
+                    .build();
+            clients.put(userKey, client);
+        }
+        return client;
+    }
+
+    /**
+     * This interceptor marks responses that carry a validator but no caching policy as "no-cache",
+     * so they are stored but always revalidated with the server before they are used.
+     */
+    static class RevalidateInterceptor implements Interceptor {
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            boolean hasValidator = response.header("ETag") != null || response.header("Last-Modified") != null;
+            if (hasValidator && response.header("Cache-Control") == null) {
+                return response.newBuilder()
+                        .header("Cache-Control", "no-cache")
+                        .build();
+            }
+            return response;
+        }
+    }
+}
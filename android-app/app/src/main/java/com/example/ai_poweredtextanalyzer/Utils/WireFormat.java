@@ -0,0 +1,63 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import java.io.IOException;
+
+/**
+ * This class negotiates the encoding of the list responses, the files and the chat history.
+ * A client that opts in asks for CBOR with the Accept header. Its strings are length prefixed instead
+ * of quoted and escaped, so it is a little smaller than the JSON and decodes a few times faster.
+ * Every response is decoded by its Content-Type, so a server that only speaks JSON keeps working.
+ */
+public class WireFormat {
+    public static final String CBOR = "application/cbor";
+    public static final String ACCEPT_CBOR = CBOR + ", application/json;q=0.9";
+    public static final String ACCEPT_JSON = "application/json";
+
+    private WireFormat() {}
+
+    /**
+     * Ask for the preferred encoding.
+     * @param builder - the list request builder.
+     * @param binary - whether CBOR is preferred over JSON.
+     * @return The request builder.
+     */
+    public static Request.Builder accept(Request.Builder builder, boolean binary) {
+        return builder.header("Accept", binary ? ACCEPT_CBOR : ACCEPT_JSON);
+    }
+
+    /**
+     * @return Whether the body is encoded as CBOR, any other body is decoded as JSON.
+     */
+    static boolean isCbor(ResponseBody body) {
+        MediaType contentType = body.contentType();
+        return contentType != null && contentType.type().equals("application") && contentType.subtype().equals("cbor");
+    }
+
+    /**
+     * Decode a files response in the encoding the server chose.
+     * @throws IOException if the stream failed or isn't valid CBOR or JSON.
+     * @throws com.squareup.moshi.JsonDataException if the JSON doesn't match the expected structure.
+     */
+    public static FilePage decodeFilePage(ResponseBody body) throws IOException {
+        return isCbor(body)
+                ? CborStreamDecoder.decodeFilePage(body.source())
+                : JsonStreamDecoder.decodeFilePage(body.source());
+    }
+
+    /**
+     * Decode a chat history response in the encoding the server chose.
+     * @throws IOException if the stream failed or isn't valid CBOR or JSON.
+     * @throws com.squareup.moshi.JsonDataException if the JSON doesn't match the expected structure.
+     */
+    public static ChatHistoryPage decodeChatHistoryPage(ResponseBody body, int start) throws IOException {
+        return isCbor(body)
+                ? CborStreamDecoder.decodeChatHistoryPage(body.source(), start)
+                : JsonStreamDecoder.decodeChatHistoryPage(body.source(), start);
+    }
+}
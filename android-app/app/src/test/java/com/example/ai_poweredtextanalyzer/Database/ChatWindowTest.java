@@ -0,0 +1,150 @@
+package com.example.ai_poweredtextanalyzer.Database;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+
+import org.junit.Test;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+public class ChatWindowTest {
+    private static final int WINDOW_SIZE = 60;
+    private static final Executor DIRECT = Runnable::run;
+
+    /**
+     * Stored messages of a chat, counting the messages that were read.
+     */
+    private static class MemoryStore implements ChatWindow.Store {
+        private final List<ChatMessage> messages = new ArrayList<>();
+        private int messagesRead = 0;
+
+        MemoryStore(int count) {
+            for (int i = 0; i < count; i++) {
+                messages.add(new ChatMessage(i % 2 == 0 ? ChatMessage.Sender.USER : ChatMessage.Sender.AI_MODEL, "m" + i));
+            }
+        }
+
+        @Override
+        public List<ChatMessage> getMessages(int start, int count) {
+            List<ChatMessage> page = new ArrayList<>(messages.subList(start, Math.min(messages.size(), start + count)));
+            messagesRead += page.size();
+            return page;
+        }
+
+        @Override
+        public int getMessageCount() {
+            return messages.size();
+        }
+    }
+
+    @Test
+    public void opensAtTheEndWithOnlyTheWindowInMemory() {
+        MemoryStore store = new MemoryStore(10_000);
+        ChatWindow window = new ChatWindow(store, WINDOW_SIZE, DIRECT, DIRECT);
+
+        window.loadLast();
+
+        assertEquals(10_000, window.size());
+        assertEquals("m9999", window.get(9999).getText());
+        assertEquals(WINDOW_SIZE, window.getMessagesInMemory());
+        assertEquals(WINDOW_SIZE, store.messagesRead);
+    }
+
+    @Test
+    public void scrollingUpPagesOlderMessagesInAndKeepsMemoryFlat() {
+        MemoryStore store = new MemoryStore(10_000);
+        ChatWindow window = new ChatWindow(store, WINDOW_SIZE, DIRECT, DIRECT);
+        List<Integer> loadedStarts = new ArrayList<>();
+        window.setListener((start, count) -> loadedStarts.add(start));
+        window.loadLast();
+
+        for (int position = 9999; position >= 0; position--) {
+            ChatMessage message = window.get(position);
+            assertNotNull("message " + position, message);
+            assertEquals("m" + position, message.getText());
+            assertTrue(window.getMessagesInMemory() <= WINDOW_SIZE);
+        }
+
+        assertFalse(loadedStarts.isEmpty());
+        assertEquals(0, (int) loadedStarts.get(loadedStarts.size() - 1));
+    }
+
+    @Test
+    public void messageOutsideTheWindowIsLoadedInTheBackground() {
+        MemoryStore store = new MemoryStore(1000);
+        Queue<Runnable> loads = new ArrayDeque<>();
+        ChatWindow window = new ChatWindow(store, WINDOW_SIZE, loads::add, DIRECT);
+        List<Integer> loadedStarts = new ArrayList<>();
+        window.setListener((start, count) -> loadedStarts.add(start));
+        window.loadLast();
+
+        assertNull(window.get(10));
+        assertNull(window.get(11));
+        assertEquals(1, loads.size());
+
+        loads.poll().run();
+        assertEquals(List.of(0), loadedStarts);
+        assertEquals("m10", window.get(10).getText());
+    }
+
+    @Test
+    public void addedMessagesFollowTheStoredOnes() {
+        ChatWindow window = new ChatWindow(new MemoryStore(100), WINDOW_SIZE, DIRECT, DIRECT);
+        window.loadLast();
+        ChatMessage question = new ChatMessage(ChatMessage.Sender.USER, "question");
+        ChatMessage answer = new ChatMessage(ChatMessage.Sender.AI_MODEL, "");
+
+        window.add(question);
+        window.add(answer);
+
+        assertEquals(102, window.size());
+        assertSame(answer, window.get(101));
+        assertEquals(101, window.lastIndexOf(answer));
+
+        window.remove(101);
+        assertEquals(101, window.size());
+        assertEquals(-1, window.lastIndexOf(answer));
+    }
+
+    @Test
+    public void replacingStoredMessagesKeepsTheEndInMemory() {
+        ChatWindow window = new ChatWindow(new MemoryStore(100), WINDOW_SIZE, DIRECT, DIRECT);
+        window.loadLast();
+        ChatMessage added = new ChatMessage(ChatMessage.Sender.USER, "added");
+        window.add(added);
+        List<ChatMessage> synced = List.of(
+                new ChatMessage(ChatMessage.Sender.USER, "s0"),
+                new ChatMessage(ChatMessage.Sender.AI_MODEL, "s1"),
+                new ChatMessage(ChatMessage.Sender.USER, "s2"));
+
+        window.replaceStored(98, synced);
+
+        assertEquals(101, window.getStoredCount());
+        assertEquals(102, window.size());
+        assertEquals("m97", window.get(97).getText());
+        assertEquals("s0", window.get(98).getText());
+        assertEquals("s2", window.get(100).getText());
+        assertSame(added, window.get(101));
+        assertTrue(window.getMessagesInMemory() <= WINDOW_SIZE + 1);
+    }
+
+    @Test
+    public void loadStartedBeforeAReplaceIsDropped() {
+        Queue<Runnable> loads = new ArrayDeque<>();
+        ChatWindow window = new ChatWindow(new MemoryStore(1000), WINDOW_SIZE, loads::add, DIRECT);
+        window.loadLast();
+        assertNull(window.get(0));
+
+        window.replaceStored(0, List.of(new ChatMessage(ChatMessage.Sender.USER, "only")));
+        while (!loads.isEmpty()) {
+            loads.poll().run();
+        }
+
+        assertEquals(1, window.size());
+        assertEquals("only", window.get(0).getText());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.ai_poweredtextanalyzer.Database;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.ai_poweredtextanalyzer.Objects.File;
+
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class FileRepositoryTest {
+    private Context context;
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        prefs = context.getSharedPreferences("MyAppPrefs", Context.MODE_PRIVATE);
+    }
+
+    @After
+    public void tearDown() {
+        FileRepository.logOut();
+    }
+
+    @Test
+    public void newLoginOfTheSameUserKeepsTheRepository() {
+        logIn(token("alice", "1"));
+        FileRepository repository = FileRepository.getInstance(context);
+
+        logIn(token("alice", "2"));
+        assertSame(repository, FileRepository.getInstance(context));
+    }
+
+    @Test
+    public void anotherUserGetsTheirOwnRepository() {
+        logIn(token("alice", "1"));
+        FileRepository alice = FileRepository.getInstance(context);
+
+        logIn(token("bob", "1"));
+        FileRepository bob = FileRepository.getInstance(context);
+        assertNotSame(alice, bob);
+
+        logIn(token("alice", "2"));
+        assertNotSame(bob, FileRepository.getInstance(context));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void loggedOutUserHasNoRepository() {
+        logIn(token("alice", "1"));
+        FileRepository.getInstance(context);
+
+        prefs.edit().remove("jwt_token").commit();
+        FileRepository.logOut();
+        FileRepository.getInstance(context);
+    }
+
+    @Test
+    public void workStartedBeforeALogoutStillUsesTheDatabase() {
+        logIn(token("alice", "1"));
+        FileRepository alice = FileRepository.getInstance(context);
+        logIn(token("bob", "1"));
+        FileRepository.getInstance(context);
+        FileRepository.logOut();
+
+        // e.g. a sync that was running on the background pool
+        alice.saveFiles(Collections.singletonList(new File("1", "a.pdf", 1L)));
+        assertEquals(1, alice.getLocalFiles().size());
+
+        logIn(token("alice", "2"));
+        assertEquals("a.pdf", FileRepository.getInstance(context).getLocalFiles().get(0).getFilename());
+    }
+
+    private void logIn(String token) {
+        prefs.edit().putString("jwt_token", token).commit();
+    }
+
+    /**
+     * @return A JWT of the user, the session tells apart the tokens of the same user.
+     */
+    private static String token(String user, String session) {
+        String payload = ByteString.encodeUtf8("{\"sub\":\"" + user + "\",\"sid\":\"" + session + "\"}").base64Url();
+        return "header." + payload + ".signature";
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ai_poweredtextanalyzer.Database;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+import com.example.ai_poweredtextanalyzer.Objects.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class LocalDatabaseTest {
+    private Context context;
+    private final List<LocalDatabase> databases = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void tearDown() {
+        for (LocalDatabase database : databases) {
+            database.close();
+        }
+    }
+
+    @Test
+    public void upgradeFromVersion2DropsTheCopyAndSyncsAgain() {
+        // version 2 stored the timestamps as ISO strings
+        try (SQLiteDatabase old = SQLiteDatabase.openOrCreateDatabase(
+                context.getDatabasePath("file_whisper_alice.db"), null)) {
+            old.execSQL("CREATE TABLE files (id TEXT PRIMARY KEY, filename TEXT NOT NULL, "
+                    + "uploaded_at TEXT NOT NULL, position INTEGER NOT NULL)");
+            old.execSQL("CREATE TABLE summaries (file_id TEXT NOT NULL, version TEXT NOT NULL, style TEXT NOT NULL, "
+                    + "length TEXT NOT NULL, summary TEXT NOT NULL, created_at INTEGER NOT NULL, "
+                    + "last_used INTEGER NOT NULL, PRIMARY KEY (file_id, version, style, length))");
+            old.execSQL("CREATE TABLE chat_messages (file_id TEXT NOT NULL, position INTEGER NOT NULL, "
+                    + "sender TEXT NOT NULL, text TEXT NOT NULL, PRIMARY KEY (file_id, position))");
+            old.execSQL("CREATE TABLE sync_state (name TEXT PRIMARY KEY, watermark TEXT)");
+            old.execSQL("INSERT INTO files VALUES ('1', 'a.pdf', '2025-01-06T10:00:00', 0)");
+            old.execSQL("INSERT INTO summaries VALUES ('1', '2025-01-06T10:00:00', 'bullets', 'short', 's', 0, 0)");
+            old.execSQL("INSERT INTO chat_messages VALUES ('1', 0, 'model', 'answer')");
+            old.execSQL("INSERT INTO sync_state VALUES ('files', 'w1')");
+            old.setVersion(2);
+        }
+
+        LocalDatabase database = open("alice");
+
+        assertTrue(database.getFiles().isEmpty());
+        assertNull(database.getWatermark("files"));
+        assertNull(database.getLastSummary("1", "2025-01-06T10:00:00"));
+        assertEquals(0, database.getChatMessageCount("1"));
+        assertEquals(3, database.getReadableDatabase().getVersion());
+
+        database.replaceFiles(Collections.singletonList(new File("1", "a.pdf", 1736157600000L)));
+        assertEquals(1736157600000L, database.getFiles().get(0).getUploadedAt());
+        assertEquals("1736157600000", database.getFileVersion("1"));
+    }
+
+    @Test
+    public void everyUserHasTheirOwnDatabase() {
+        LocalDatabase alice = open("alice");
+        LocalDatabase bob = open("bob");
+
+        alice.replaceFiles(Collections.singletonList(new File("1", "alice.pdf", 1L)));
+        alice.setWatermark("files", "w1");
+        alice.appendChatMessages("1", Collections.singletonList(new ChatMessage(ChatMessage.Sender.USER, "q")));
+
+        assertTrue(bob.getFiles().isEmpty());
+        assertNull(bob.getWatermark("files"));
+        assertEquals(0, bob.getChatMessageCount("1"));
+
+        // logging in again as the first user opens the same data
+        alice.close();
+        LocalDatabase again = open("alice");
+        assertEquals("alice.pdf", again.getFiles().get(0).getFilename());
+        assertEquals("w1", again.getWatermark("files"));
+        assertEquals(1, again.getChatMessageCount("1"));
+    }
+
+    @Test
+    public void deletedFileTakesItsSummariesAndChatAlong() {
+        LocalDatabase database = open("alice");
+        database.replaceFiles(Arrays.asList(new File("1", "a.pdf", 1L), new File("2", "b.pdf", 2L)));
+        database.putSummary("1", "1", "bullets", "short", "s1", 10);
+        database.putSummary("2", "2", "bullets", "short", "s2", 10);
+        database.storeChatHistoryPage("1", new ChatHistoryPage(
+                new ArrayList<>(Collections.singletonList(new ChatMessage(ChatMessage.Sender.USER, "q"))), "c1", 0));
+
+        database.deleteFiles(Collections.singletonList("1"));
+
+        assertEquals(1, database.getFiles().size());
+        assertNull(database.getSummary("1", "1", "bullets", "short"));
+        assertEquals("s2", database.getSummary("2", "2", "bullets", "short"));
+        assertEquals(0, database.getChatMessageCount("1"));
+        assertNull(database.getChatCursor("1"));
+        assertEquals(0, database.getSyncedChatCount("1"));
+    }
+
+    @Test
+    public void leastRecentlyUsedSummariesAreEvictedAboveTheMaximum() throws InterruptedException {
+        LocalDatabase database = open("alice");
+        database.putSummary("1", "1", "bullets", "short", "s1", 2);
+        Thread.sleep(2);
+        database.putSummary("2", "1", "bullets", "short", "s2", 2);
+        Thread.sleep(2);
+        // reading the first summary makes the second the least recently used
+        assertEquals("s1", database.getSummary("1", "1", "bullets", "short"));
+        Thread.sleep(2);
+        database.putSummary("3", "1", "bullets", "short", "s3", 2);
+
+        assertEquals("s1", database.getSummary("1", "1", "bullets", "short"));
+        assertNull(database.getSummary("2", "1", "bullets", "short"));
+        assertEquals("s3", database.getSummary("3", "1", "bullets", "short"));
+    }
+
+    private LocalDatabase open(String userKey) {
+        LocalDatabase database = new LocalDatabase(context, userKey);
+        databases.add(database);
+        return database;
+    }
+}
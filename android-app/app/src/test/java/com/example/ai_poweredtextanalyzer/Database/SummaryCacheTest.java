@@ -0,0 +1,112 @@
+package com.example.ai_poweredtextanalyzer.Database;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class SummaryCacheTest {
+    private static final int MAX_MEMORY_CHARS = 10;
+    private static final int MAX_DISK_SUMMARIES = 3;
+    private LocalDatabase database;
+    private SummaryCache cache;
+
+    @Before
+    public void setUp() {
+        database = new LocalDatabase(RuntimeEnvironment.getApplication(), "alice");
+        cache = new SummaryCache(database, MAX_MEMORY_CHARS, MAX_DISK_SUMMARIES);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void putSummaryIsServedFromMemory() {
+        cache.put("1", "v1", "bullets", "short", "abc");
+
+        assertEquals("abc", cache.get("1", "v1", "bullets", "short"));
+        assertEquals(1, cache.getMemoryHits());
+        assertEquals(0, cache.getDiskHits());
+        assertNull(cache.get("1", "v1", "bullets", "long"));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void memoryEvictsTheLeastRecentlyUsedSummariesByLength() {
+        cache.put("1", "v1", "bullets", "short", "aaaa");
+        cache.put("2", "v1", "bullets", "short", "bbbb");
+        // the first summary is used again, so the second is evicted for the third
+        cache.get("1", "v1", "bullets", "short");
+        cache.put("3", "v1", "bullets", "short", "cccc");
+
+        assertEquals("aaaa", cache.get("1", "v1", "bullets", "short"));
+        assertEquals("cccc", cache.get("3", "v1", "bullets", "short"));
+        assertEquals(3, cache.getMemoryHits());
+
+        // the evicted summary is still on disk, and brought back to memory
+        assertEquals("bbbb", cache.get("2", "v1", "bullets", "short"));
+        assertEquals(1, cache.getDiskHits());
+        assertEquals("bbbb", cache.get("2", "v1", "bullets", "short"));
+        assertEquals(4, cache.getMemoryHits());
+    }
+
+    @Test
+    public void summaryLongerThanTheMemoryIsKeptOnDiskOnly() {
+        cache.put("1", "v1", "bullets", "short", "aaaa");
+        cache.put("2", "v1", "bullets", "short", "this summary is too long");
+
+        assertEquals("this summary is too long", cache.get("2", "v1", "bullets", "short"));
+        assertEquals("this summary is too long", cache.get("2", "v1", "bullets", "short"));
+        assertEquals(2, cache.getDiskHits());
+        // the long summary didn't evict the short one
+        assertEquals("aaaa", cache.get("1", "v1", "bullets", "short"));
+        assertEquals(1, cache.getMemoryHits());
+    }
+
+    @Test
+    public void diskKeepsAMaximumNumberOfSummaries() throws InterruptedException {
+        for (int i = 0; i < MAX_DISK_SUMMARIES + 1; i++) {
+            cache.put(String.valueOf(i), "v1", "bullets", "short", "s" + i);
+            Thread.sleep(2);
+        }
+
+        SummaryCache restarted = new SummaryCache(database, MAX_MEMORY_CHARS, MAX_DISK_SUMMARIES);
+        assertNull(restarted.get("0", "v1", "bullets", "short"));
+        for (int i = 1; i < MAX_DISK_SUMMARIES + 1; i++) {
+            assertEquals("s" + i, restarted.get(String.valueOf(i), "v1", "bullets", "short"));
+        }
+    }
+
+    @Test
+    public void reUploadedFileDoesNotGetThePreviousSummary() {
+        cache.put("1", "v1", "bullets", "short", "old");
+
+        // the new content has a new version, so the previous summary isn't found even before invalidation
+        assertNull(cache.get("1", "v2", "bullets", "short"));
+
+        cache.invalidate("1");
+        assertNull(cache.get("1", "v1", "bullets", "short"));
+        assertNull(database.getSummary("1", "v1", "bullets", "short"));
+        assertEquals(0, cache.getMemoryHits());
+        assertEquals(0, cache.getDiskHits());
+    }
+
+    @Test
+    public void invalidationKeepsTheSummariesOfOtherFiles() {
+        cache.put("1", "v1", "bullets", "short", "one");
+        cache.put("11", "v1", "bullets", "short", "eleven");
+
+        cache.invalidate("1");
+
+        assertNull(cache.get("1", "v1", "bullets", "short"));
+        assertEquals("eleven", cache.get("11", "v1", "bullets", "short"));
+        assertEquals(1, cache.getMemoryHits());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.ai_poweredtextanalyzer.Objects;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+public class TimestampsTest {
+    // 2025-01-06T10:00:00Z
+    private static final long JAN_6 = 1736157600000L;
+
+    @Test
+    public void parsesNaiveIsoAsUtc() {
+        assertEquals(JAN_6, Timestamps.parse("2025-01-06T10:00:00"));
+        assertEquals(JAN_6 + 123, Timestamps.parse("2025-01-06T10:00:00.123456"));
+        assertEquals(JAN_6, Timestamps.parse("2025-01-06 10:00:00"));
+    }
+
+    @Test
+    public void parsesIsoWithOffset() {
+        assertEquals(JAN_6, Timestamps.parse("2025-01-06T10:00:00Z"));
+        assertEquals(JAN_6, Timestamps.parse("2025-01-06T12:00:00+02:00"));
+        assertEquals(JAN_6, Timestamps.parse("2025-01-06T05:30:00-0430"));
+    }
+
+    @Test
+    public void parsesHttpDate() {
+        assertEquals(JAN_6, Timestamps.parse("Mon, 06 Jan 2025 10:00:00 GMT"));
+    }
+
+    @Test
+    public void invalidTimestampsAreUnknown() {
+        assertEquals(Timestamps.UNKNOWN, Timestamps.parse(null));
+        assertEquals(Timestamps.UNKNOWN, Timestamps.parse(""));
+        assertEquals(Timestamps.UNKNOWN, Timestamps.parse("yesterday"));
+        assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2025-13-06T10:00:00"));
+        assertEquals(Timestamps.UNKNOWN, Timestamps.parse("2025-01-06T10:00:00."));
+        assertEquals("", Timestamps.formatForDisplay(Timestamps.UNKNOWN));
+    }
+
+    @Test
+    public void agreesWithTheCalendarAcrossLeapYears() {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(2024, Calendar.FEBRUARY, 29, 23, 59, 59);
+        assertEquals(calendar.getTimeInMillis(), Timestamps.parse("2024-02-29T23:59:59"));
+        calendar.set(1969, Calendar.DECEMBER, 31, 0, 0, 0);
+        assertEquals(calendar.getTimeInMillis(), Timestamps.parse("1969-12-31T00:00:00"));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Collections;
+
+public class ApiClientTest {
+    private final MockWebServer server = new MockWebServer();
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void h2cClientSpeaksHttp2WithoutAnUpgrade() throws IOException {
+        server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        server.start();
+
+        assertEquals(Protocol.H2_PRIOR_KNOWLEDGE, get(ApiClient.createClient(true)));
+    }
+
+    @Test
+    public void defaultClientSpeaksHttp1ToACleartextServer() throws IOException {
+        server.start();
+
+        assertEquals(Protocol.HTTP_1_1, get(ApiClient.createClient(false)));
+    }
+
+    private Protocol get(OkHttpClient client) throws IOException {
+        server.enqueue(new MockResponse.Builder().body("{}").build());
+        try (Response response = client.newCall(new Request.Builder().url(server.url("/files/")).build()).execute()) {
+            assertEquals(200, response.code());
+            return response.protocol();
+        }
+    }
+}
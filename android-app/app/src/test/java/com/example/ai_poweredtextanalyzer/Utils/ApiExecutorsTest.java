@@ -0,0 +1,87 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(RobolectricTestRunner.class)
+public class ApiExecutorsTest {
+    private final MockWebServer server = new MockWebServer();
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .addInterceptor(ApiExecutors.cancellation())
+            .build();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void cancellingTheWorkCancelsItsExecutedCall() throws Exception {
+        // the response never arrives, an interrupt alone leaves the call blocked until the read timeout
+        server.enqueue(new MockResponse.Builder()
+                .headersDelay(10, TimeUnit.SECONDS)
+                .body("late")
+                .build());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        CompletableFuture<String> result = ApiExecutors.supplyAsync(() -> {
+            try {
+                return get();
+            } catch (RuntimeException e) {
+                failure.set(e.getCause());
+                throw e;
+            } finally {
+                finished.countDown();
+            }
+        });
+        server.takeRequest();
+        long start = System.currentTimeMillis();
+        result.cancel(true);
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertTrue(failure.get() instanceof IOException);
+    }
+
+    @Test
+    public void callsOutsideABackgroundWorkAreNotTied() throws Exception {
+        server.enqueue(new MockResponse.Builder().body("files").build());
+        server.enqueue(new MockResponse.Builder().body("more files").build());
+
+        CompletableFuture<String> cancelled = ApiExecutors.supplyAsync(() -> "done");
+        cancelled.cancel(true);
+
+        assertEquals("files", get());
+        assertEquals("more files", get());
+    }
+
+    private String get() {
+        Request request = new Request.Builder().url(server.url("/files/")).build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.body().string();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to get my files", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncCallTest {
+    private final MockWebServer server = new MockWebServer();
+    private final OkHttpClient client = new OkHttpClient();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void completesWithTheParsedResponse() throws Exception {
+        server.enqueue(new MockResponse.Builder().body("{\"answer\":\"42\"}").build());
+
+        CompletableFuture<String> future = enqueue(response -> response.body().string());
+
+        assertEquals("{\"answer\":\"42\"}", future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void completesWithTheParserException() throws Exception {
+        server.enqueue(new MockResponse.Builder().code(401).build());
+
+        CompletableFuture<String> future = enqueue(response -> {
+            throw new RuntimeException("Invalid email or password");
+        });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("the parser exception should fail the future");
+        } catch (ExecutionException e) {
+            assertEquals("Invalid email or password", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void wrapsConnectionFailures() throws Exception {
+        server.close();
+
+        CompletableFuture<String> future = enqueue(response -> response.body().string());
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("a connection failure should fail the future");
+        } catch (ExecutionException e) {
+            assertEquals("Failed to call", e.getCause().getMessage());
+            assertTrue(e.getCause().getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void cancellingTheFutureCancelsTheCall() throws Exception {
+        // the response headers never arrive, so the call stays in flight until it is cancelled
+        server.enqueue(new MockResponse.Builder()
+                .headersDelay(10, TimeUnit.SECONDS)
+                .body("late")
+                .build());
+
+        CompletableFuture<String> future = enqueue(response -> response.body().string());
+        server.takeRequest();
+        future.cancel(true);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (client.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, client.dispatcher().runningCallsCount());
+    }
+
+    private CompletableFuture<String> enqueue(AsyncCall.ResponseParser<String> parser) {
+        Request request = new Request.Builder().url(server.url("/chat/")).build();
+        return AsyncCall.enqueue(client, request, parser, Runnable::run, "Failed to call");
+    }
+}
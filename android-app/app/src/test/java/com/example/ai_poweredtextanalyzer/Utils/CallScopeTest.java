@@ -0,0 +1,90 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class CallScopeTest {
+    private final MockWebServer server = new MockWebServer();
+    private final OkHttpClient client = new OkHttpClient();
+    private final CallScope scope = new CallScope();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void deliversResultsWhileTheScopeIsActive() throws Exception {
+        server.enqueue(new MockResponse.Builder().body("summary").build());
+
+        CompletableFuture<String> result = scope.track(enqueue());
+
+        assertEquals("summary", result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, scope.running());
+    }
+
+    @Test
+    public void cancellingTheScopeCancelsTheRunningCalls() throws Exception {
+        // the response never arrives, so the call stays in flight until it is cancelled
+        server.enqueue(new MockResponse.Builder()
+                .headersDelay(10, TimeUnit.SECONDS)
+                .body("late")
+                .build());
+
+        CompletableFuture<String> call = enqueue();
+        CompletableFuture<String> result = scope.track(call);
+        server.takeRequest();
+        scope.cancel();
+
+        assertTrue(call.isCancelled());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (client.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, client.dispatcher().runningCallsCount());
+        // the owner of the scope is gone, its callbacks never run
+        assertFalse(result.isDone());
+    }
+
+    @Test
+    public void callsTrackedAfterCancelAreCancelledImmediately() {
+        scope.cancel();
+
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> result = scope.track(call);
+
+        assertTrue(call.isCancelled());
+        assertFalse(result.isDone());
+    }
+
+    @Test
+    public void dropsResultsThatArriveAfterCancel() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> result = scope.track(call);
+
+        scope.cancel();
+        call.complete("late");
+
+        assertFalse(result.isDone());
+    }
+
+    private CompletableFuture<String> enqueue() {
+        Request request = new Request.Builder().url(server.url("/summarize/file/")).build();
+        return AsyncCall.enqueue(client, request, response -> response.body().string(), Runnable::run, "Failed to summarize");
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+import com.example.ai_poweredtextanalyzer.Objects.File;
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+import com.example.ai_poweredtextanalyzer.Objects.Timestamps;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import okio.ByteString;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+public class CborStreamDecoderTest {
+    private static final String UPLOADED_AT = "Mon, 06 Jan 2025 10:00:00 GMT";
+    private static final String[] WORDS = {
+            "the", "document", "analysis", "of", "model", "summary", "a", "question", "answer", "file",
+            "text", "and", "chapter", "results", "\"quoted\"", "line\n", "is", "with", "données", "report"
+    };
+
+    private final MockWebServer server = new MockWebServer();
+    private final OkHttpClient client = new OkHttpClient();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void filesAreNegotiatedAsCbor() throws Exception {
+        FilesServer filesServer = new FilesServer();
+        filesServer.enableCbor();
+        for (int i = 1; i <= 15; i++) {
+            filesServer.addFile("id-" + i, "file-" + i + ".pdf");
+        }
+        server.setDispatcher(filesServer);
+        PagedFileSource source = new PagedFileSource(client, server.url("/"), "token", 10, true);
+
+        FilePage first = source.loadNextPage();
+        FilePage last = source.loadNextPage();
+
+        assertEquals(10, first.getFiles().size());
+        assertEquals("id-15", first.getFiles().get(0).getId());
+        assertEquals("file-15.pdf", first.getFiles().get(0).getFilename());
+        assertEquals(Timestamps.parse(UPLOADED_AT), first.getFiles().get(0).getUploadedAt());
+        assertEquals(5, last.getFiles().size());
+        assertFalse(source.hasMore());
+        assertEquals(WireFormat.ACCEPT_CBOR, server.takeRequest().getHeaders().get("Accept"));
+    }
+
+    @Test
+    public void serverThatOnlySpeaksJsonIsDecodedAsJson() throws IOException {
+        FilesServer filesServer = new FilesServer();
+        filesServer.addFile("id-1", "a.pdf");
+        server.setDispatcher(filesServer);
+        PagedFileSource source = new PagedFileSource(client, server.url("/"), "token", 10, true);
+
+        List<File> files = source.loadNextPage().getFiles();
+
+        assertEquals(1, files.size());
+        assertEquals(Timestamps.parse(UPLOADED_AT), files.get(0).getUploadedAt());
+    }
+
+    @Test
+    public void chatHistoryDecodesLikeTheJson() throws IOException {
+        ChatHistoryServer historyServer = new ChatHistoryServer();
+        historyServer.enableCbor();
+        for (int i = 0; i < 100; i++) {
+            historyServer.addTurn("question " + i, "answer with \"quotes\" and ünïcödé " + i);
+        }
+        server.setDispatcher(historyServer);
+
+        ChatHistoryPage cbor = new ChatHistorySource(client, server.url("/"), "token", true).load("file", null, 0);
+        ChatHistoryPage json = new ChatHistorySource(client, server.url("/"), "token").load("file", null, 0);
+
+        assertMessagesEqual(json.getMessages(), cbor.getMessages());
+        assertEquals("200", cbor.getCursor());
+        assertEquals(json.getCursor(), cbor.getCursor());
+    }
+
+    @Test
+    public void indefiniteLengthsChunkedStringsAndUnknownKeysAreRead() throws IOException {
+        CborWriter writer = new CborWriter(true, 4);
+        writer.beginMap(-1)
+                .text("server_version").beginMap(-1).text("major").integer(2).text("tags").beginArray(-1).end().end()
+                .text("files").beginArray(-1)
+                .beginMap(-1)
+                .text("id").text("65a1b2c3d4e5f6a7b8c9d0e1")
+                .text("size").integer(-12345678901L)
+                .text("filename").text("a long file name.pdf")
+                .text("uploaded_at").floatingPoint(1736157600.25)
+                .end()
+                .beginMap(-1)
+                .text("id").text("second")
+                .text("filename").nullValue()
+                .text("uploaded_at").tag(0).text(UPLOADED_AT)
+                .text("pinned").bool(true)
+                .end()
+                .end()
+                .text("next_cursor").nullValue()
+                .end();
+
+        FilePage page = CborStreamDecoder.decodeFilePage(new Buffer().write(writer.bytes()));
+
+        assertEquals(2, page.getFiles().size());
+        assertEquals("65a1b2c3d4e5f6a7b8c9d0e1", page.getFiles().get(0).getId());
+        assertEquals("a long file name.pdf", page.getFiles().get(0).getFilename());
+        assertEquals(1736157600250L, page.getFiles().get(0).getUploadedAt());
+        assertNull(page.getFiles().get(1).getFilename());
+        assertEquals(Timestamps.parse(UPLOADED_AT), page.getFiles().get(1).getUploadedAt());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void truncatedDocumentFailsToDecode() {
+        ByteString document = CborWriter.encode(history(10, 1));
+
+        for (int size : new int[] {0, 1, document.size() / 2, document.size() - 1}) {
+            try {
+                CborStreamDecoder.decodeChatHistoryPage(new Buffer().write(document.substring(0, size)), 0);
+                fail("Decoded " + size + " of " + document.size() + " bytes");
+            } catch (IOException expected) {
+                // the stream ended inside the document
+            }
+        }
+    }
+
+    /**
+     * A chat history is mostly message text, which is the same bytes in both encodings, so CBOR only
+     * saves the quoting and the escapes of the structure around it.
+     */
+    @Test
+    public void historyIsSlightlySmallerAsCbor() throws IOException {
+        JSONObject history = history(500, 2);
+        ByteString json = ByteString.encodeUtf8(history.toString());
+        ByteString cbor = CborWriter.encode(history);
+
+        assertTrue(cbor.size() < json.size());
+        assertTrue("CBOR " + cbor.size() + " bytes, JSON " + json.size() + " bytes", cbor.size() * 100L > json.size() * 85L);
+        ChatHistoryPage fromJson = JsonStreamDecoder.decodeChatHistoryPage(new Buffer().write(json), 0);
+        ChatHistoryPage fromCbor = CborStreamDecoder.decodeChatHistoryPage(new Buffer().write(cbor), 0);
+        assertMessagesEqual(fromJson.getMessages(), fromCbor.getMessages());
+        assertEquals(fromJson.getCursor(), fromCbor.getCursor());
+    }
+
+    /**
+     * Compare the size and the decoding time of a large synthetic history in both encodings, it decides
+     * whether the BINARY_WIRE_FORMAT build flag is worth turning on. The times depend on the machine and
+     * the run is long, so it is ignored by the suite and run on demand by removing the annotation.
+     */
+    @Ignore("Benchmark, run on demand")
+    @Test
+    public void benchmarkLargeHistoryDecoding() throws IOException {
+        JSONObject history = history(50_000, 2);
+        ByteString json = ByteString.encodeUtf8(history.toString());
+        ByteString cbor = CborWriter.encode(history);
+
+        long jsonNanos = Long.MAX_VALUE;
+        long cborNanos = Long.MAX_VALUE;
+        ChatHistoryPage fromJson = null;
+        ChatHistoryPage fromCbor = null;
+        // the first rounds warm the JIT up, the fastest round is reported
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            fromJson = JsonStreamDecoder.decodeChatHistoryPage(new Buffer().write(json), 0);
+            jsonNanos = Math.min(jsonNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            fromCbor = CborStreamDecoder.decodeChatHistoryPage(new Buffer().write(cbor), 0);
+            cborNanos = Math.min(cborNanos, System.nanoTime() - start);
+        }
+        System.out.printf("50000 messages: JSON %d bytes in %d ms, CBOR %d bytes in %d ms%n",
+                json.size(), jsonNanos / 1_000_000, cbor.size(), cborNanos / 1_000_000);
+
+        assertMessagesEqual(fromJson.getMessages(), fromCbor.getMessages());
+    }
+
+    private static JSONObject history(int messages, long seed) {
+        Random random = new Random(seed);
+        try {
+            JSONArray chat = new JSONArray();
+            for (int i = 0; i < messages; i++) {
+                StringBuilder text = new StringBuilder();
+                int words = 5 + random.nextInt(i % 2 == 0 ? 20 : 120);
+                for (int word = 0; word < words; word++) {
+                    text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                }
+                chat.put(new JSONObject()
+                        .put("sender", i % 2 == 0 ? "user" : "assistant")
+                        .put("text", text.toString()));
+            }
+            return new JSONObject().put("chat_history", chat).put("cursor", String.valueOf(messages));
+        } catch (org.json.JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void assertMessagesEqual(List<ChatMessage> expected, List<ChatMessage> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSender(), actual.get(i).getSender());
+            assertEquals(expected.get(i).getText(), actual.get(i).getText());
+        }
+    }
+}
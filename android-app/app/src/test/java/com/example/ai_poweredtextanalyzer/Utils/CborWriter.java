@@ -0,0 +1,151 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import okio.Buffer;
+import okio.ByteString;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.util.Iterator;
+
+/**
+ * Test encoder of CBOR documents, the way the backend writes them. Containers can be written with
+ * an indefinite length and text strings in chunks, like a streaming encoder does.
+ */
+public class CborWriter {
+    private final Buffer buffer = new Buffer();
+    private final boolean indefiniteLengths;
+    private final int textChunkSize;
+
+    public CborWriter() {
+        this(false, 0);
+    }
+
+    /**
+     * @param indefiniteLengths - whether containers are written with an indefinite length.
+     * @param textChunkSize - size of the chunks text strings are split into, 0 to write them whole.
+     */
+    public CborWriter(boolean indefiniteLengths, int textChunkSize) {
+        this.indefiniteLengths = indefiniteLengths;
+        this.textChunkSize = textChunkSize;
+    }
+
+    /**
+     * @return The CBOR form of a JSON value, a JSONObject, a JSONArray, a string, a number or a boolean.
+     */
+    public static ByteString encode(Object value) {
+        return new CborWriter().value(value).bytes();
+    }
+
+    public ByteString bytes() {
+        return buffer.snapshot();
+    }
+
+    public CborWriter beginMap(int entries) {
+        return begin(5, entries);
+    }
+
+    public CborWriter beginArray(int items) {
+        return begin(4, items);
+    }
+
+    /**
+     * End a container, only a container of an indefinite length has an end.
+     */
+    public CborWriter end() {
+        if (indefiniteLengths) {
+            buffer.writeByte(0xff);
+        }
+        return this;
+    }
+
+    public CborWriter text(String text) {
+        ByteString utf8 = ByteString.encodeUtf8(text);
+        if (textChunkSize == 0 || utf8.size() <= textChunkSize) {
+            head(3, utf8.size());
+            buffer.write(utf8);
+            return this;
+        }
+        buffer.writeByte((3 << 5) | 31);
+        for (int offset = 0; offset < utf8.size(); offset += textChunkSize) {
+            ByteString chunk = utf8.substring(offset, Math.min(utf8.size(), offset + textChunkSize));
+            head(3, chunk.size());
+            buffer.write(chunk);
+        }
+        buffer.writeByte(0xff);
+        return this;
+    }
+
+    public CborWriter integer(long value) {
+        return value >= 0 ? head(0, value) : head(1, -1 - value);
+    }
+
+    public CborWriter floatingPoint(double value) {
+        buffer.writeByte(0xfb).writeLong(Double.doubleToLongBits(value));
+        return this;
+    }
+
+    public CborWriter tag(long tag) {
+        return head(6, tag);
+    }
+
+    public CborWriter bool(boolean value) {
+        buffer.writeByte(value ? 0xf5 : 0xf4);
+        return this;
+    }
+
+    public CborWriter nullValue() {
+        buffer.writeByte(0xf6);
+        return this;
+    }
+
+    public CborWriter value(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return nullValue();
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            beginMap(object.length());
+            for (Iterator<String> keys = object.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                text(key).value(object.opt(key));
+            }
+            return end();
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            beginArray(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                value(array.opt(i));
+            }
+            return end();
+        } else if (value instanceof Boolean) {
+            return bool((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            return floatingPoint(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            return integer(((Number) value).longValue());
+        }
+        return text(value.toString());
+    }
+
+    private CborWriter begin(int major, int size) {
+        if (indefiniteLengths) {
+            buffer.writeByte((major << 5) | 31);
+            return this;
+        }
+        return head(major, size);
+    }
+
+    private CborWriter head(int major, long argument) {
+        int type = major << 5;
+        if (argument < 24) {
+            buffer.writeByte(type | (int) argument);
+        } else if (argument < 0x100) {
+            buffer.writeByte(type | 24).writeByte((int) argument);
+        } else if (argument < 0x10000) {
+            buffer.writeByte(type | 25).writeShort((int) argument);
+        } else if (argument < 0x100000000L) {
+            buffer.writeByte(type | 26).writeInt((int) argument);
+        } else {
+            buffer.writeByte(type | 27).writeLong(argument);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import okio.Buffer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for the backend chat history endpoint of a single file, returning the messages after
+ * the "after" cursor, which is the number of messages the client already has. A client that prefers
+ * CBOR gets it once {@link #enableCbor} was called.
+ */
+public class ChatHistoryServer extends Dispatcher {
+    private final List<JSONObject> messages = new ArrayList<>();
+    private boolean cursors = true;
+    private boolean cbor = false;
+    private int requests = 0;
+    private int messagesSent = 0;
+
+    /**
+     * Add a question and the AI Model answer to the history.
+     */
+    public synchronized void addTurn(String question, String answer) {
+        try {
+            messages.add(new JSONObject().put("sender", "user").put("text", question));
+            messages.add(new JSONObject().put("sender", "assistant").put("text", answer));
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Drop the history, the cursors the clients hold don't point into it anymore.
+     */
+    public synchronized void clear() {
+        messages.clear();
+    }
+
+    /**
+     * Ignore the cursor and return the full history without one, like the original backend.
+     */
+    public synchronized void disableCursors() {
+        cursors = false;
+    }
+
+    /**
+     * Answer the clients that prefer CBOR with CBOR.
+     */
+    public synchronized void enableCbor() {
+        cbor = true;
+    }
+
+    public synchronized int getRequests() {
+        return requests;
+    }
+
+    public synchronized int getMessagesSent() {
+        return messagesSent;
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        if (!request.getUrl().encodedPath().equals("/chat/history")) {
+            return new MockResponse.Builder().code(404).build();
+        }
+        requests++;
+
+        int start = 0;
+        String after = request.getUrl().queryParameter("after");
+        if (cursors && after != null) {
+            start = Integer.parseInt(after);
+            if (start > messages.size()) {
+                return new MockResponse.Builder().code(410).build();
+            }
+        }
+
+        try {
+            List<JSONObject> sent = messages.subList(start, messages.size());
+            messagesSent += sent.size();
+            JSONObject body = new JSONObject().put("chat_history", new JSONArray(sent));
+            if (cursors) {
+                body.put("cursor", String.valueOf(messages.size()));
+            }
+            if (cbor && FilesServer.prefersCbor(request)) {
+                return new MockResponse.Builder()
+                        .addHeader("Content-Type", WireFormat.CBOR)
+                        .body(new Buffer().write(CborWriter.encode(body)))
+                        .build();
+            }
+            return new MockResponse.Builder()
+                    .addHeader("Content-Type", "application/json")
+                    .body(body.toString())
+                    .build();
+        } catch (JSONException e) {
+            return new MockResponse.Builder().code(500).build();
+        }
+    }
+}
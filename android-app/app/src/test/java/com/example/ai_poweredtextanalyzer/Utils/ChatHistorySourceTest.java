@@ -0,0 +1,105 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+
+public class ChatHistorySourceTest {
+    private final MockWebServer server = new MockWebServer();
+    private final ChatHistoryServer historyServer = new ChatHistoryServer();
+    private ChatHistorySource source;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(historyServer);
+        server.start();
+        source = new ChatHistorySource(new OkHttpClient(), server.url("/"), "token");
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void firstSyncLoadsFullHistoryWithCursor() throws IOException {
+        historyServer.addTurn("q1", "a1");
+
+        ChatHistoryPage page = source.load("file", null, 0);
+
+        assertEquals(2, page.getMessages().size());
+        assertEquals(ChatMessage.Sender.USER, page.getMessages().get(0).getSender());
+        assertEquals("a1", page.getMessages().get(1).getText());
+        assertEquals("2", page.getCursor());
+        assertEquals(0, page.getStart());
+        assertFalse(page.isDelta());
+    }
+
+    @Test
+    public void syncAfterCursorLoadsOnlyNewerMessages() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            historyServer.addTurn("q" + i, "a" + i);
+        }
+        ChatHistoryPage first = source.load("file", null, 0);
+        historyServer.addTurn("new question", "new answer");
+
+        ChatHistoryPage page = source.load("file", first.getCursor(), first.getMessages().size());
+
+        assertTrue(page.isDelta());
+        assertEquals(2000, page.getStart());
+        assertEquals(2, page.getMessages().size());
+        assertEquals("new question", page.getMessages().get(0).getText());
+        assertEquals("2002", page.getCursor());
+        assertEquals(2002, historyServer.getMessagesSent());
+    }
+
+    @Test
+    public void syncWithoutNewMessagesIsEmpty() throws IOException {
+        historyServer.addTurn("q1", "a1");
+
+        ChatHistoryPage page = source.load("file", "2", 2);
+
+        assertTrue(page.getMessages().isEmpty());
+        assertEquals(2, page.getStart());
+        assertEquals("2", page.getCursor());
+    }
+
+    @Test
+    public void unknownCursorFallsBackToFullHistory() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            historyServer.addTurn("q" + i, "a" + i);
+        }
+        ChatHistoryPage first = source.load("file", null, 0);
+        historyServer.clear();
+        historyServer.addTurn("q", "a");
+
+        ChatHistoryPage page = source.load("file", first.getCursor(), first.getMessages().size());
+
+        assertFalse(page.isDelta());
+        assertEquals(2, page.getMessages().size());
+        assertEquals("2", page.getCursor());
+        assertEquals(3, historyServer.getRequests());
+    }
+
+    @Test
+    public void serverWithoutCursorsReturnsFullHistory() throws IOException {
+        historyServer.disableCursors();
+        historyServer.addTurn("q1", "a1");
+        historyServer.addTurn("q2", "a2");
+
+        ChatHistoryPage page = source.load("file", "2", 2);
+
+        assertFalse(page.isDelta());
+        assertEquals(0, page.getStart());
+        assertEquals(4, page.getMessages().size());
+        assertNull(page.getCursor());
+    }
+}
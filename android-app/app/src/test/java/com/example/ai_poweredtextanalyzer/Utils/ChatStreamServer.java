@@ -0,0 +1,103 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockResponseBody;
+import mockwebserver3.RecordedRequest;
+import okio.BufferedSink;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the backend chat endpoint, answering with canned tokens.
+ * A request that accepts "text/event-stream" gets the tokens as server-sent events, one event
+ * every token delay, other requests get the whole answer as JSON like the original backend.
+ */
+public class ChatStreamServer extends Dispatcher {
+    private final List<String> tokens;
+    private final long tokenDelayMillis;
+    private boolean streaming = true;
+
+    /**
+     * @param tokenDelayMillis - time the model takes to generate every token.
+     * @param tokens - the canned answer tokens.
+     */
+    public ChatStreamServer(long tokenDelayMillis, String... tokens) {
+        this.tokenDelayMillis = tokenDelayMillis;
+        this.tokens = Arrays.asList(tokens);
+    }
+
+    /**
+     * Answer every request with a single JSON answer, like the original backend.
+     */
+    public synchronized void disableStreaming() {
+        streaming = false;
+    }
+
+    /**
+     * @return The full canned answer.
+     */
+    public String answer() {
+        return String.join("", tokens);
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        if (!request.getUrl().encodedPath().equals("/chat/")) {
+            return new MockResponse.Builder().code(404).build();
+        }
+
+        try {
+            String accept = request.getHeaders().get("Accept");
+            if (!streaming || accept == null || !accept.contains(ChatStream.EVENT_STREAM)) {
+                // the whole answer is sent after all the tokens were generated
+                return new MockResponse.Builder()
+                        .addHeader("Content-Type", "application/json")
+                        .headersDelay(tokenDelayMillis * tokens.size(), TimeUnit.MILLISECONDS)
+                        .body(new JSONObject().put("answer", answer()).toString())
+                        .build();
+            }
+
+            return new MockResponse.Builder()
+                    .addHeader("Content-Type", "text/event-stream")
+                    .body(new EventStreamBody())
+                    .build();
+        } catch (JSONException e) {
+            return new MockResponse.Builder().code(500).build();
+        }
+    }
+
+    /**
+     * Writes an event for every token as soon as it is "generated", with a chunked transfer encoding.
+     */
+    private class EventStreamBody implements MockResponseBody {
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            try {
+                sink.writeUtf8(": stream start\n\n").flush();
+                for (String token : tokens) {
+                    Thread.sleep(tokenDelayMillis);
+                    sink.writeUtf8("data: " + new JSONObject().put("token", token) + "\n\n").flush();
+                }
+                sink.writeUtf8("data: [DONE]\n\n").flush();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("stream interrupted");
+            } catch (JSONException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
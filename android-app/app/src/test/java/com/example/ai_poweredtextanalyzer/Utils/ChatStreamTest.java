@@ -0,0 +1,117 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ChatStreamTest {
+    private static final long TOKEN_DELAY_MILLIS = 100;
+    private final MockWebServer server = new MockWebServer();
+    private final ChatStreamServer chatServer = new ChatStreamServer(TOKEN_DELAY_MILLIS,
+            "The ", "file ", "is ", "about ", "streaming ", "answers.");
+    private final OkHttpClient client = new OkHttpClient();
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(chatServer);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void tokensArriveWhileTheAnswerIsGenerated() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        long start = System.nanoTime();
+        long[] firstTokenMillis = {-1};
+
+        String answer;
+        try (Response response = client.newCall(request()).execute()) {
+            answer = ChatStream.read(response, token -> {
+                if (tokens.isEmpty()) {
+                    firstTokenMillis[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+                tokens.add(token);
+            });
+        }
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(chatServer.answer(), answer);
+        assertEquals(6, tokens.size());
+        assertEquals("The ", tokens.get(0));
+        // the first token is shown after a single token delay, not after the whole generation
+        assertTrue("first token after " + firstTokenMillis[0] + "ms", firstTokenMillis[0] < totalMillis / 2);
+    }
+
+    @Test
+    public void serverWithoutStreamingSendsASingleChunk() throws Exception {
+        chatServer.disableStreaming();
+        List<String> tokens = new ArrayList<>();
+
+        String answer;
+        try (Response response = client.newCall(request()).execute()) {
+            answer = ChatStream.read(response, tokens::add);
+        }
+
+        assertEquals(chatServer.answer(), answer);
+        assertEquals(List.of(chatServer.answer()), tokens);
+    }
+
+    @Test
+    public void streamsThroughAnAsyncCall() throws Exception {
+        List<String> tokens = new ArrayList<>();
+
+        CompletableFuture<String> answer = AsyncCall.enqueue(client, request(),
+                response -> ChatStream.read(response, tokens::add), Runnable::run, "Failed to ask model");
+
+        assertEquals(chatServer.answer(), answer.get(5, TimeUnit.SECONDS));
+        assertEquals(chatServer.answer(), String.join("", tokens));
+    }
+
+    @Test
+    public void readsMultiLineAndPlainTextEvents() throws IOException {
+        Buffer events = new Buffer().writeUtf8(": comment\r\n"
+                + "event: token\r\n"
+                + "data: first\r\n"
+                + "data: line\r\n"
+                + "\r\n"
+                + "data: {\"token\":\" \\\"quoted\\\"\",\"index\":1}\n"
+                + "\n"
+                + "data: [DONE]\n"
+                + "\n"
+                + "data: ignored\n"
+                + "\n");
+        List<String> tokens = new ArrayList<>();
+
+        String answer = ChatStream.readEvents(events, tokens::add);
+
+        assertEquals(List.of("first\nline", " \"quoted\""), tokens);
+        assertEquals("first\nline \"quoted\"", answer);
+    }
+
+    private Request request() {
+        String json = "{\"context_file_id\":\"file-1\",\"question\":\"What is it about?\",\"stream\":true}";
+        return new Request.Builder()
+                .url(server.url("/chat/"))
+                .addHeader("Accept", ChatStream.EVENT_STREAM + ", application/json")
+                .post(RequestBody.create(json, MediaType.get("application/json; charset=utf-8")))
+                .build();
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import mockwebserver3.SocketEffect;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.GzipSource;
+import okio.Okio;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the backend upload sessions endpoints, see {@link ChunkedUploader}, and the upload
+ * probe endpoint, see {@link UploadDeduplicator}. Only completed uploads are matched by a probe.
+ * Chunk requests can be made to drop the connection, before or after the chunk was stored,
+ * and session creations can be made to fail with an error status. Gzipped chunks are decoded.
+ */
+public class ChunkedUploadServer extends Dispatcher {
+    private final Map<String, Buffer> sessions = new HashMap<>();
+    private final Map<String, String> fileNames = new HashMap<>();
+    private final Set<Integer> dropBeforeStore = new HashSet<>();
+    private final Set<Integer> dropAfterStore = new HashSet<>();
+    private final List<Long> chunkOffsets = new ArrayList<>();
+    private int chunkRequests = 0;
+    private int sessionRequests = 0;
+    private int failingSessions = 0;
+    private int failingStatus = 0;
+    private long bytesReceived = 0;
+    private boolean enabled = true;
+    private long latencyMillis = 0;
+    private final Set<Integer> connections = new HashSet<>();
+    private final Set<String> completed = new HashSet<>();
+    // files linked by a probe, by their id, to the upload of the same content
+    private final Map<String, String> linkedFiles = new HashMap<>();
+    private boolean probeSupported = true;
+    private int probeRequests = 0;
+
+    /**
+     * Drop the connection of the n-th chunk request (counted from 1) without storing the chunk.
+     */
+    public synchronized void dropChunkBeforeStore(int n) {
+        dropBeforeStore.add(n);
+    }
+
+    /**
+     * Store the n-th chunk (counted from 1) but drop the connection before acknowledging it.
+     */
+    public synchronized void dropChunkAfterStore(int n) {
+        dropAfterStore.add(n);
+    }
+
+    /**
+     * Answer the next session creations with an error status instead of creating the sessions.
+     * @param count - number of failing session creations, or -1 to fail all of them.
+     */
+    public synchronized void failSessions(int count, int status) {
+        failingSessions = count;
+        failingStatus = status;
+    }
+
+    /**
+     * Delay every response, like a server behind a link with this round trip time.
+     */
+    public synchronized void setLatency(long millis) {
+        latencyMillis = millis;
+    }
+
+    /**
+     * Answer the probes with 404, like a server without upload probes.
+     */
+    public synchronized void disableProbe() {
+        probeSupported = false;
+    }
+
+    public synchronized int getProbeRequests() {
+        return probeRequests;
+    }
+
+    /**
+     * @return The number of files linked to the content of an earlier upload.
+     */
+    public synchronized int getLinkedFiles() {
+        return linkedFiles.size();
+    }
+
+    /**
+     * Answer every request with 404, like a server without chunked uploads.
+     */
+    public synchronized void disable() {
+        enabled = false;
+    }
+
+    public synchronized byte[] storedBytes(String uploadId) {
+        return sessions.get(uploadId).snapshot().toByteArray();
+    }
+
+    public synchronized String fileName(String uploadId) {
+        return fileNames.get(uploadId);
+    }
+
+    public synchronized String onlyUploadId() {
+        return sessions.keySet().iterator().next();
+    }
+
+    public synchronized List<Long> getChunkOffsets() {
+        return new ArrayList<>(chunkOffsets);
+    }
+
+    /**
+     * @return The number of connections the requests came on.
+     */
+    public synchronized int getConnectionCount() {
+        return connections.size();
+    }
+
+    public synchronized int getSessionRequests() {
+        return sessionRequests;
+    }
+
+    public synchronized int getChunkRequests() {
+        return chunkRequests;
+    }
+
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        String path = request.getUrl().encodedPath();
+        connections.add(request.getConnectionIndex());
+        if (enabled && path.equals("/upload/probe")) {
+            return probe(request);
+        }
+        if (!enabled || !path.startsWith("/upload/sessions/")) {
+            return new MockResponse.Builder().code(404).build();
+        }
+
+        try {
+            if (request.getMethod().equals("POST")) {
+                sessionRequests++;
+                if (failingSessions != 0) {
+                    if (failingSessions > 0) {
+                        failingSessions--;
+                    }
+                    return new MockResponse.Builder().code(failingStatus).build();
+                }
+                JSONObject body = new JSONObject(request.getBody().utf8());
+                String uploadId = "session-" + (sessions.size() + 1);
+                sessions.put(uploadId, new Buffer());
+                fileNames.put(uploadId, body.getString("filename"));
+                return json(201, new JSONObject().put("upload_id", uploadId).put("offset", 0));
+            }
+
+            String uploadId = path.substring("/upload/sessions/".length());
+            Buffer stored = sessions.get(uploadId);
+            if (stored == null) {
+                return new MockResponse.Builder().code(404).build();
+            }
+
+            if (request.getMethod().equals("GET")) {
+                return json(200, new JSONObject().put("offset", stored.size()));
+            }
+
+            // PUT a chunk
+            chunkRequests++;
+            bytesReceived += request.getBodySize();
+            long offset = Long.parseLong(request.getHeaders().get("Upload-Offset"));
+            chunkOffsets.add(offset);
+            if (dropBeforeStore.contains(chunkRequests)) {
+                return disconnect();
+            }
+
+            if (offset != stored.size()) {
+                return json(409, new JSONObject().put("offset", stored.size()));
+            }
+            stored.write(decodedBody(request));
+
+            if (dropAfterStore.contains(chunkRequests)) {
+                return disconnect();
+            }
+
+            JSONObject response = new JSONObject().put("offset", stored.size());
+            if ("1".equals(request.getHeaders().get("Upload-Complete"))) {
+                completed.add(uploadId);
+                response.put("message", "File uploaded successfully");
+                response.put("filename", fileNames.get(uploadId));
+                response.put("file", new JSONObject()
+                        .put("id", uploadId)
+                        .put("filename", fileNames.get(uploadId))
+                        .put("uploaded_at", "2025-01-06T10:00:00.123456"));
+            }
+            return json(200, response);
+        } catch (JSONException e) {
+            return new MockResponse.Builder().code(400).build();
+        }
+    }
+
+    private MockResponse probe(RecordedRequest request) {
+        probeRequests++;
+        if (!probeSupported) {
+            return new MockResponse.Builder().code(404).build();
+        }
+
+        try {
+            JSONObject body = new JSONObject(request.getBody().utf8());
+            String hash = body.getString("sha256");
+            String fileName = body.getString("filename");
+            for (String uploadId : completed) {
+                if (!ByteString.of(storedBytes(uploadId)).sha256().hex().equals(hash)) {
+                    continue;
+                }
+
+                String fileId = uploadId;
+                if (!fileNames.get(uploadId).equals(fileName)) {
+                    fileId = "linked-" + (linkedFiles.size() + 1);
+                    linkedFiles.put(fileId, uploadId);
+                }
+                return json(200, new JSONObject().put("file", new JSONObject()
+                        .put("id", fileId)
+                        .put("filename", fileName)
+                        .put("uploaded_at", "2025-01-06T10:00:00.123456")));
+            }
+            return new MockResponse.Builder().code(204).build();
+        } catch (JSONException e) {
+            return new MockResponse.Builder().code(400).build();
+        }
+    }
+
+    /**
+     * @return The request body, decoded if the client sent it gzipped.
+     */
+    static ByteString decodedBody(RecordedRequest request) {
+        ByteString body = request.getBody();
+        if (!"gzip".equals(request.getHeaders().get("Content-Encoding"))) {
+            return body;
+        }
+        try (BufferedSource source = Okio.buffer(new GzipSource(new Buffer().write(body)))) {
+            return source.readByteString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid gzip body", e);
+        }
+    }
+
+    private MockResponse json(int code, JSONObject body) {
+        return new MockResponse.Builder()
+                .headersDelay(latencyMillis, TimeUnit.MILLISECONDS)
+                .code(code)
+                .addHeader("Content-Type", "application/json")
+                .body(body.toString())
+                .build();
+    }
+
+    private static MockResponse disconnect() {
+        return new MockResponse.Builder()
+                .onResponseStart(new SocketEffect.CloseSocket())
+                .build();
+    }
+}
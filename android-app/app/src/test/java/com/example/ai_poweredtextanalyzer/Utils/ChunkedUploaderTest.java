@@ -0,0 +1,182 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Exceptions.UnsupportedEndpointException;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ChunkedUploaderTest {
+    private static final int CHUNK_SIZE = 1024;
+    private static final MediaType PDF = MediaType.get("application/pdf");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final ChunkedUploadServer uploadServer = new ChunkedUploadServer();
+    // connection failures must reach the uploader instead of being retried by OkHttp
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .retryOnConnectionFailure(false)
+            .build();
+    private File checkpointFile;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(uploadServer);
+        server.start();
+        checkpointFile = new File(temporaryFolder.getRoot(), "checkpoints.properties");
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void uploadsFileInChunks() throws IOException {
+        byte[] data = randomBytes(4 * CHUNK_SIZE + 100);
+        UploadCheckpointStore checkpoints = new UploadCheckpointStore(checkpointFile);
+
+        String response = uploader(checkpoints, 3).upload("token", source(data), "doc.pdf", PDF);
+
+        com.example.ai_poweredtextanalyzer.Objects.File uploaded =
+                JsonStreamDecoder.decodeUploadedFile(new Buffer().writeUtf8(response));
+        assertNotNull(uploaded);
+        assertEquals(uploadServer.onlyUploadId(), uploaded.getId());
+        assertEquals("doc.pdf", uploaded.getFilename());
+        assertEquals(1736157600123L, uploaded.getUploadedAt());
+        assertArrayEquals(data, uploadServer.storedBytes(uploadServer.onlyUploadId()));
+        assertEquals(5, uploadServer.getChunkRequests());
+        assertNull(checkpoints.get("doc"));
+    }
+
+    @Test
+    public void uploadsFileOfExactChunkMultiple() throws IOException {
+        byte[] data = randomBytes(2 * CHUNK_SIZE);
+
+        uploader(new UploadCheckpointStore(checkpointFile), 3).upload("token", source(data), "doc.pdf", PDF);
+
+        assertArrayEquals(data, uploadServer.storedBytes(uploadServer.onlyUploadId()));
+        assertEquals(2, uploadServer.getChunkRequests());
+    }
+
+    @Test
+    public void resumesFromAcknowledgedOffsetAfterDisconnects() throws IOException {
+        byte[] data = randomBytes(5 * CHUNK_SIZE);
+        uploadServer.dropChunkAfterStore(2);
+        uploadServer.dropChunkBeforeStore(4);
+
+        uploader(new UploadCheckpointStore(checkpointFile), 3).upload("token", source(data), "doc.pdf", PDF);
+
+        assertArrayEquals(data, uploadServer.storedBytes(uploadServer.onlyUploadId()));
+        // only the chunk dropped before it was stored is sent twice
+        assertEquals(data.length + CHUNK_SIZE, uploadServer.getBytesReceived());
+        assertEquals(
+                Arrays.asList(0L, 1024L, 2048L, 3072L, 3072L, 4096L),
+                uploadServer.getChunkOffsets()
+        );
+    }
+
+    @Test
+    public void waitsBeforeResendingAfterAFailure() throws IOException {
+        byte[] data = randomBytes(3 * CHUNK_SIZE);
+        uploadServer.dropChunkBeforeStore(1);
+        ChunkedUploader uploader = new ChunkedUploader(client, server.url("/"),
+                new UploadCheckpointStore(checkpointFile), CHUNK_SIZE, 3, 200, 1000);
+
+        long start = System.nanoTime();
+        uploader.upload("token", source(data), "doc.pdf", PDF);
+
+        assertTrue(System.nanoTime() - start >= 100_000_000L);
+        assertArrayEquals(data, uploadServer.storedBytes(uploadServer.onlyUploadId()));
+    }
+
+    @Test
+    public void resumesFromDiskCheckpointAfterProcessDeath() throws IOException {
+        byte[] data = randomBytes(5 * CHUNK_SIZE);
+        uploadServer.dropChunkBeforeStore(3);
+
+        try {
+            uploader(new UploadCheckpointStore(checkpointFile), 1).upload("token", source(data), "doc.pdf", PDF);
+            fail("The upload should fail after a single attempt");
+        } catch (IOException expected) {
+            // the process "dies" here
+        }
+
+        UploadCheckpointStore restored = new UploadCheckpointStore(checkpointFile);
+        assertEquals(2 * CHUNK_SIZE, restored.get("doc").getOffset());
+
+        uploader(restored, 1).upload("token", source(data), "doc.pdf", PDF);
+
+        assertArrayEquals(data, uploadServer.storedBytes(uploadServer.onlyUploadId()));
+        assertEquals(2 * CHUNK_SIZE, (long) uploadServer.getChunkOffsets().get(3));
+        assertNull(new UploadCheckpointStore(checkpointFile).get("doc"));
+    }
+
+    @Test(expected = UnsupportedEndpointException.class)
+    public void reportsServersWithoutChunkedUploads() throws IOException {
+        uploadServer.disable();
+
+        uploader(new UploadCheckpointStore(checkpointFile), 3).upload("token", source(randomBytes(10)), "doc.pdf", PDF);
+    }
+
+    @Test
+    public void serverWithoutChunkedUploadsIsAskedOnce() throws IOException {
+        uploadServer.disable();
+        ChunkedUploader uploader = uploader(new UploadCheckpointStore(checkpointFile), 3);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                uploader.upload("token", source(randomBytes(10)), "doc" + i + ".pdf", PDF);
+                fail("The server doesn't support chunked uploads");
+            } catch (UnsupportedEndpointException expected) {
+                // the file is sent in a single request instead
+            }
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private ChunkedUploader uploader(UploadCheckpointStore checkpoints, int maxAttempts) {
+        return new ChunkedUploader(client, server.url("/"), checkpoints, CHUNK_SIZE, maxAttempts, 10, 50);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static UploadSource source(byte[] data) {
+        return new UploadSource() {
+            @Override
+            public InputStream open() {
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public long length() {
+                return data.length;
+            }
+
+            @Override
+            public String key() {
+                return "doc";
+            }
+        };
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CompressionInterceptorTest {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final MediaType PDF = MediaType.get("application/pdf");
+    private static final MediaType TEXT = MediaType.get("text/plain");
+    private static final String[] WORDS = {
+            "the", "document", "analysis", "of", "model", "summary", "a", "question", "answer", "file"
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final CompressionServer compressionServer = new CompressionServer();
+    private final CompressionInterceptor interceptor =
+            new CompressionInterceptor(CompressionInterceptor.DEFAULT_MIN_REQUEST_SIZE);
+    private final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(interceptor).build();
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(compressionServer);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void largeTextBodyIsSentCompressed() throws IOException {
+        String json = "{\"text\": \"" + text(64 * 1024) + "\"}";
+
+        post("/chat/ask", RequestBody.create(json, JSON));
+
+        assertEquals(Arrays.asList("gzip"), compressionServer.getContentEncodings());
+        assertEquals(json, compressionServer.getBodies().get(0).utf8());
+        CompressionInterceptor.EndpointStats stats = interceptor.getStats().get("POST /chat/ask");
+        assertEquals(json.length(), stats.getRequestBytes());
+        assertTrue(stats.getRequestWireBytes() * 3 < stats.getRequestBytes());
+    }
+
+    @Test
+    public void smallAndBinaryBodiesAreSentAsTheyAre() throws IOException {
+        byte[] pdf = new byte[64 * 1024];
+        new Random(1).nextBytes(pdf);
+
+        post("/login", RequestBody.create("{\"email\": \"a@b.c\"}", JSON));
+        post("/upload/", RequestBody.create(pdf, PDF));
+
+        assertEquals(Arrays.asList(null, null), compressionServer.getContentEncodings());
+        CompressionInterceptor.EndpointStats stats = interceptor.getStats().get("POST /upload/");
+        assertEquals(pdf.length, stats.getRequestWireBytes());
+        assertEquals(pdf.length, stats.getRequestBytes());
+    }
+
+    @Test
+    public void chunksOfATextUploadAreCompressed() throws IOException {
+        ChunkedUploadServer uploadServer = new ChunkedUploadServer();
+        server.setDispatcher(uploadServer);
+        ChunkedUploader uploader = new ChunkedUploader(client, server.url("/"),
+                new UploadCheckpointStore(new java.io.File(temporaryFolder.getRoot(), "checkpoints.properties")),
+                256 * 1024, ChunkedUploader.DEFAULT_MAX_ATTEMPTS);
+        byte[] data = text(1024 * 1024).getBytes(StandardCharsets.UTF_8);
+
+        uploader.upload("token", source(data), "notes.txt", TEXT);
+
+        assertArrayEquals(data, uploadServer.storedBytes(uploadServer.onlyUploadId()));
+        assertTrue(uploadServer.getBytesReceived() * 3 < data.length);
+        CompressionInterceptor.EndpointStats stats = interceptor.getStats().get("PUT /upload/sessions/{id}");
+        assertEquals(data.length, stats.getRequestBytes());
+        assertEquals(uploadServer.getBytesReceived(), stats.getRequestWireBytes());
+    }
+
+    @Test
+    public void gzippedResponseIsDecodedTransparently() throws Exception {
+        String text = text(128 * 1024);
+        compressionServer.setText(text);
+
+        try (Response response = client.newCall(new Request.Builder().url(server.url("/files/summary")).build()).execute()) {
+            assertNull(response.header("Content-Encoding"));
+            assertEquals(text, response.body().string());
+        }
+
+        assertEquals("gzip", server.takeRequest().getHeaders().get("Accept-Encoding"));
+        CompressionInterceptor.EndpointStats stats = interceptor.getStats().get("GET /files/summary");
+        assertEquals(text.length(), stats.getResponseBytes());
+        assertTrue(stats.getResponseWireBytes() * 3 < stats.getResponseBytes());
+    }
+
+    @Test
+    public void cachedResponseAddsNoWireBytes() throws IOException {
+        String text = text(32 * 1024);
+        compressionServer.setText(text);
+        compressionServer.setMaxAge(60);
+        OkHttpClient cachingClient = client.newBuilder()
+                .cache(new Cache(temporaryFolder.newFolder("http"), 1024 * 1024))
+                .build();
+        Request request = new Request.Builder().url(server.url("/chat/history/65a1b2c3d4e5f6a7b8c9d0e1")).build();
+
+        for (int i = 0; i < 2; i++) {
+            try (Response response = cachingClient.newCall(request).execute()) {
+                assertEquals(text, response.body().string());
+            }
+        }
+
+        assertEquals(1, server.getRequestCount());
+        CompressionInterceptor.EndpointStats stats = interceptor.getStats().get("GET /chat/history/{id}");
+        assertEquals(2L * text.length(), stats.getResponseBytes());
+        assertTrue(stats.getResponseWireBytes() * 3 < text.length());
+    }
+
+    @Test
+    public void serverThatRefusesCompressedBodiesGetsThemPlain() throws IOException {
+        compressionServer.rejectCompressed();
+        String json = "{\"text\": \"" + text(8 * 1024) + "\"}";
+
+        assertEquals(200, post("/chat/ask", RequestBody.create(json, JSON)));
+        assertEquals(200, post("/chat/ask", RequestBody.create(json, JSON)));
+
+        assertEquals(Arrays.asList("gzip", null, null), compressionServer.getContentEncodings());
+        assertEquals(json, compressionServer.getBodies().get(1).utf8());
+    }
+
+    @Test
+    public void endpointsGroupTheirIds() {
+        HttpUrl url = HttpUrl.get("http://localhost/chat/history/65a1b2c3d4e5f6a7b8c9d0e1?limit=20");
+
+        assertEquals("GET /chat/history/{id}", CompressionInterceptor.endpointOf("GET", url));
+        assertEquals("POST /upload/probe",
+                CompressionInterceptor.endpointOf("POST", HttpUrl.get("http://localhost/upload/probe")));
+    }
+
+    private int post(String path, RequestBody body) throws IOException {
+        Request request = new Request.Builder().url(server.url(path)).post(body).build();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string();
+            return response.code();
+        }
+    }
+
+    private static String text(int size) {
+        Random random = new Random(size);
+        StringBuilder text = new StringBuilder(size + 16);
+        while (text.length() < size) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        text.setLength(size);
+        return text.toString();
+    }
+
+    private static UploadSource source(byte[] data) {
+        return new UploadSource() {
+            @Override
+            public InputStream open() {
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public long length() {
+                return data.length;
+            }
+
+            @Override
+            public String key() {
+                return "notes#" + data.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import okio.GzipSink;
+import okio.Okio;
+import okio.BufferedSink;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for a backend server that negotiates compression. Gzipped request bodies are decoded,
+ * POST requests are answered with the size of the body they decoded to, and GET requests with the
+ * text set by {@link #setText}, gzipped when the client accepts it. Compressed request bodies can
+ * be refused with 415, like a server that doesn't decode them.
+ */
+public class CompressionServer extends Dispatcher {
+    private final List<ByteString> bodies = new ArrayList<>();
+    private final List<String> contentEncodings = new ArrayList<>();
+    private String text = "";
+    private boolean rejectCompressed = false;
+    private int maxAgeSeconds = 0;
+
+    public synchronized void setText(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Let the client cache the text responses for the given time.
+     */
+    public synchronized void setMaxAge(int seconds) {
+        maxAgeSeconds = seconds;
+    }
+
+    /**
+     * Answer compressed request bodies with 415.
+     */
+    public synchronized void rejectCompressed() {
+        rejectCompressed = true;
+    }
+
+    /**
+     * @return The decoded bodies of the requests, in the order they arrived.
+     */
+    public synchronized List<ByteString> getBodies() {
+        return new ArrayList<>(bodies);
+    }
+
+    /**
+     * @return The Content-Encoding of the requests, null for a plain one.
+     */
+    public synchronized List<String> getContentEncodings() {
+        return new ArrayList<>(contentEncodings);
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        String contentEncoding = request.getHeaders().get("Content-Encoding");
+        if (request.getMethod().equals("GET")) {
+            return text(request);
+        }
+
+        contentEncodings.add(contentEncoding);
+        if (contentEncoding != null && rejectCompressed) {
+            return new MockResponse.Builder().code(415).build();
+        }
+        ByteString body = ChunkedUploadServer.decodedBody(request);
+        bodies.add(body);
+        return new MockResponse.Builder()
+                .addHeader("Content-Type", "application/json")
+                .body("{\"size\": " + body.size() + "}")
+                .build();
+    }
+
+    private MockResponse text(RecordedRequest request) {
+        MockResponse.Builder response = new MockResponse.Builder()
+                .addHeader("Content-Type", "text/plain; charset=utf-8");
+        if (maxAgeSeconds > 0) {
+            response.addHeader("Cache-Control", "max-age=" + maxAgeSeconds);
+        }
+
+        String acceptEncoding = request.getHeaders().get("Accept-Encoding");
+        if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+            return response.body(text).build();
+        }
+        Buffer gzipped = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(gzipped))) {
+            sink.writeUtf8(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return response
+                .addHeader("Content-Encoding", "gzip")
+                .body(gzipped)
+                .build();
+    }
+}
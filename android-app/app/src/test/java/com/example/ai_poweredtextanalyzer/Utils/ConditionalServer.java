@@ -0,0 +1,83 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import okio.ByteString;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stand-in for the backend read endpoints with validators, like the backend answers them. Every user,
+ * told apart by the Authorization header, has their own files list, tagged with a weak ETag of its
+ * body, and a request that holds the current tag is answered with 304.
+ */
+public class ConditionalServer extends Dispatcher {
+    private final Map<String, String> bodies = new HashMap<>();
+    private final List<String> ifNoneMatch = new ArrayList<>();
+    private boolean validators = true;
+    private boolean cacheControl = true;
+    private int notModified = 0;
+
+    /**
+     * Set the files list of the user the token belongs to.
+     */
+    public synchronized void setBody(String token, String body) {
+        bodies.put("Bearer " + token, body);
+    }
+
+    /**
+     * Send the responses without validators, like the backend before it tagged them.
+     */
+    public synchronized void disableValidators() {
+        validators = false;
+    }
+
+    /**
+     * Send the validators without a caching policy, the client decides how to use them.
+     */
+    public synchronized void omitCacheControl() {
+        cacheControl = false;
+    }
+
+    /**
+     * @return The If-None-Match header of every request, null for a request without one.
+     */
+    public synchronized List<String> getIfNoneMatch() {
+        return new ArrayList<>(ifNoneMatch);
+    }
+
+    public synchronized int getNotModified() {
+        return notModified;
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        String body = bodies.get(request.getHeaders().get("Authorization"));
+        if (body == null) {
+            return new MockResponse.Builder().code(401).body("{\"detail\": \"Unauthorized\"}").build();
+        }
+        String condition = request.getHeaders().get("If-None-Match");
+        ifNoneMatch.add(condition);
+
+        MockResponse.Builder response = new MockResponse.Builder().addHeader("Content-Type", "application/json");
+        if (!validators) {
+            return response.body(body).build();
+        }
+        String etag = "W/\"" + ByteString.encodeUtf8(body).sha256().hex().substring(0, 32) + "\"";
+        response.addHeader("ETag", etag);
+        if (cacheControl) {
+            response.addHeader("Cache-Control", "private, no-cache");
+        }
+        if (etag.equals(condition)) {
+            notModified++;
+            return response.code(304).build();
+        }
+        return response.body(body).build();
+    }
+}
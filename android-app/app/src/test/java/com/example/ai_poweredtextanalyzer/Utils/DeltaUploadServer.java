@@ -0,0 +1,162 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stand-in for the backend delta upload endpoints, see {@link DeltaUploader}. The stored files are
+ * rebuilt from the deltas with {@link DeltaReconstructor} and checked against the uploaded hash.
+ * A stored file can be made to change right after its signatures are sent.
+ */
+public class DeltaUploadServer extends Dispatcher {
+    private final Map<String, byte[]> files = new HashMap<>();
+    private final Map<String, String> fileIds = new HashMap<>();
+    private final Map<String, byte[]> changesAfterSignatures = new HashMap<>();
+    private boolean enabled = true;
+    private int signaturesRequests = 0;
+    private int deltaRequests = 0;
+    private long bytesReceived = 0;
+    private long bytesSent = 0;
+
+    /**
+     * Store a file as if it was uploaded before.
+     * @return The ID of the file.
+     */
+    public synchronized String putFile(String fileName, byte[] content) {
+        String fileId = "file-" + (files.size() + 1);
+        files.put(fileId, content.clone());
+        fileIds.put(fileName, fileId);
+        return fileId;
+    }
+
+    /**
+     * Replace the content of a file once its signatures were sent, like an upload from another device.
+     */
+    public synchronized void changeAfterSignatures(String fileId, byte[] content) {
+        changesAfterSignatures.put(fileId, content.clone());
+    }
+
+    /**
+     * Answer every request with 404, like a server without delta uploads.
+     */
+    public synchronized void disable() {
+        enabled = false;
+    }
+
+    public synchronized byte[] storedBytes(String fileId) {
+        return files.get(fileId).clone();
+    }
+
+    public synchronized int getSignaturesRequests() {
+        return signaturesRequests;
+    }
+
+    public synchronized int getDeltaRequests() {
+        return deltaRequests;
+    }
+
+    /**
+     * @return The number of request body bytes received, the deltas.
+     */
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return The number of response body bytes sent, the signatures.
+     */
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        String path = request.getUrl().encodedPath();
+        if (!enabled) {
+            return new MockResponse.Builder().code(404).build();
+        }
+
+        try {
+            if (path.equals("/upload/signatures") && request.getMethod().equals("GET")) {
+                return signatures(request);
+            } else if (path.startsWith("/upload/delta/") && request.getMethod().equals("PUT")) {
+                return delta(request, path.substring("/upload/delta/".length()));
+            }
+            return new MockResponse.Builder().code(404).build();
+        } catch (JSONException | IOException e) {
+            return new MockResponse.Builder().code(400).build();
+        }
+    }
+
+    private MockResponse signatures(RecordedRequest request) throws JSONException, IOException {
+        signaturesRequests++;
+        String fileId = fileIds.get(request.getUrl().queryParameter("filename"));
+        if (fileId == null) {
+            return new MockResponse.Builder().code(204).build();
+        }
+
+        int blockSize = Integer.parseInt(request.getUrl().queryParameter("block_size"));
+        JSONObject body = BlockSignatures.compute(new ByteArrayInputStream(files.get(fileId)), blockSize)
+                .toJson()
+                .put("file_id", fileId);
+        byte[] changed = changesAfterSignatures.remove(fileId);
+        if (changed != null) {
+            files.put(fileId, changed);
+        }
+        return json(200, body);
+    }
+
+    private MockResponse delta(RecordedRequest request, String fileId) throws JSONException, IOException {
+        deltaRequests++;
+        bytesReceived += request.getBodySize();
+        byte[] basis = files.get(fileId);
+        if (basis == null) {
+            return new MockResponse.Builder().code(404).build();
+        }
+
+        int blockSize = Integer.parseInt(request.getHeaders().get("Delta-Block-Size"));
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        DeltaReconstructor.apply(basis, blockSize, new ByteArrayInputStream(request.getBody().toByteArray()), content);
+        byte[] rebuilt = content.toByteArray();
+        if (!ByteString.of(rebuilt).sha256().hex().equals(request.getHeaders().get("Upload-SHA256"))) {
+            return new MockResponse.Builder().code(412).build();
+        }
+
+        files.put(fileId, rebuilt);
+        String fileName = null;
+        for (Map.Entry<String, String> entry : fileIds.entrySet()) {
+            if (entry.getValue().equals(fileId)) {
+                fileName = entry.getKey();
+            }
+        }
+        return json(200, new JSONObject()
+                .put("message", "File updated successfully")
+                .put("file", new JSONObject()
+                        .put("id", fileId)
+                        .put("filename", fileName)
+                        .put("uploaded_at", "2025-01-06T10:00:00.123456")));
+    }
+
+    private MockResponse json(int code, JSONObject body) {
+        Buffer buffer = new Buffer().writeUtf8(body.toString());
+        bytesSent += buffer.size();
+        return new MockResponse.Builder()
+                .code(code)
+                .addHeader("Content-Type", "application/json")
+                .body(buffer)
+                .build();
+    }
+}
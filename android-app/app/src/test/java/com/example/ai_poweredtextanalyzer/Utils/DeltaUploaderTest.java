@@ -0,0 +1,252 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Objects.File;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeltaUploaderTest {
+    private static final String[] WORDS = {
+            "the", "document", "analysis", "of", "model", "summary", "a", "question", "answer", "file",
+            "text", "and", "chapter", "results", "upload", "server", "is", "with", "data", "report"
+    };
+
+    private final MockWebServer server = new MockWebServer();
+    private final DeltaUploadServer deltaServer = new DeltaUploadServer();
+    private DeltaUploader uploader;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(deltaServer);
+        server.start();
+        uploader = new DeltaUploader(new OkHttpClient(), server.url("/"));
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void rollingChecksumMatchesTheChecksumOfTheMovedWindow() {
+        byte[] data = randomBytes(4096);
+        int length = 700;
+        int checksum = BlockSignatures.weakChecksum(data, 0, length);
+        for (int start = 1; start + length <= data.length; start++) {
+            checksum = BlockSignatures.roll(checksum, length, data[start - 1], data[start + length - 1]);
+            assertEquals(BlockSignatures.weakChecksum(data, start, length), checksum);
+        }
+    }
+
+    @Test
+    public void reconstructorRebuildsEveryKindOfEdit() throws IOException {
+        byte[] basis = text(200 * 1024, 1);
+        int blockSize = BlockSignatures.blockSizeFor(basis.length);
+
+        byte[][] versions = {
+                basis,
+                insert(basis, 100_000, "A new sentence in the middle. "),
+                remove(basis, 50_000, 3_000),
+                replace(basis, 150_000, "CHANGED"),
+                insert(basis, 0, "Prepended title\n"),
+                concat(basis, "Appended line\n".getBytes(StandardCharsets.UTF_8)),
+                Arrays.copyOf(basis, basis.length - 1234),
+                concat(Arrays.copyOfRange(basis, 100_000, basis.length), Arrays.copyOfRange(basis, 0, 100_000)),
+                text(50 * 1024, 2),
+                new byte[0],
+        };
+        for (byte[] version : versions) {
+            assertArrayEquals(version, roundTrip(basis, blockSize, version));
+        }
+        // a stored file that is empty or shorter than a block
+        assertArrayEquals(basis, roundTrip(new byte[0], blockSize, basis));
+        assertArrayEquals(basis, roundTrip(Arrays.copyOf(basis, 100), blockSize, basis));
+    }
+
+    @Test
+    public void smallEditToALargeFileSendsOnlyTheEdit() throws IOException {
+        byte[] original = text(4 * 1024 * 1024, 3);
+        String fileId = deltaServer.putFile("notes.txt", original);
+        byte[] edited = insert(original, 1_000_000, "A paragraph that was added while editing the notes.\n");
+        edited = replace(edited, 2_500_000, "revised");
+        edited = remove(edited, 3_700_000, 400);
+
+        File file = upload(edited, "notes.txt");
+
+        assertEquals(fileId, file.getId());
+        assertArrayEquals(edited, deltaServer.storedBytes(fileId));
+        long transferred = deltaServer.getBytesReceived() + deltaServer.getBytesSent();
+        assertTrue("Transferred " + transferred + " bytes", transferred * 100 < edited.length);
+        assertTrue("Sent " + deltaServer.getBytesReceived() + " bytes", deltaServer.getBytesReceived() * 500 < edited.length);
+    }
+
+    @Test
+    public void changedStoredVersionIsReplacedWithTheWholeFile() throws IOException {
+        byte[] original = text(256 * 1024, 4);
+        String fileId = deltaServer.putFile("notes.txt", original);
+        deltaServer.changeAfterSignatures(fileId, text(256 * 1024, 5));
+        byte[] edited = replace(original, 1000, "edited");
+
+        File file = upload(edited, "notes.txt");
+
+        assertEquals(fileId, file.getId());
+        assertArrayEquals(edited, deltaServer.storedBytes(fileId));
+        assertEquals(2, deltaServer.getDeltaRequests());
+    }
+
+    @Test
+    public void newFileIsLeftToTheFullUpload() throws IOException {
+        byte[] data = text(10 * 1024, 6);
+
+        assertNull(uploader.upload("token", source(data), "new.txt", sha256(data), bytes -> {}));
+        assertEquals(1, deltaServer.getSignaturesRequests());
+        assertEquals(0, deltaServer.getDeltaRequests());
+    }
+
+    @Test
+    public void fileIsHashedOnlyWhenTheServerStoresAVersionOfIt() throws IOException {
+        byte[] original = text(64 * 1024, 8);
+        String fileId = deltaServer.putFile("notes.txt", original);
+        byte[] edited = replace(original, 1000, "edited");
+        AtomicInteger newFileReads = new AtomicInteger();
+        AtomicInteger editedFileReads = new AtomicInteger();
+
+        assertNull(uploader.upload("token", countingSource(text(10 * 1024, 9), newFileReads), "new.txt",
+                null, bytes -> {}));
+        assertNotNull(uploader.upload("token", countingSource(edited, editedFileReads), "notes.txt",
+                null, bytes -> {}));
+
+        assertEquals(0, newFileReads.get());
+        // the hash and the delta, the server checked the rebuilt content against the hash
+        assertEquals(2, editedFileReads.get());
+        assertArrayEquals(edited, deltaServer.storedBytes(fileId));
+    }
+
+    @Test
+    public void serverWithoutDeltaUploadsIsAskedOnce() throws IOException {
+        deltaServer.disable();
+        byte[] data = text(10 * 1024, 7);
+
+        assertNull(uploader.upload("token", source(data), "a.txt", sha256(data), bytes -> {}));
+        assertNull(uploader.upload("token", source(data), "b.txt", sha256(data), bytes -> {}));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private File upload(byte[] data, String fileName) throws IOException {
+        String response = uploader.upload("token", source(data), fileName, sha256(data), bytes -> {});
+        assertNotNull(response);
+        return JsonStreamDecoder.decodeUploadedFile(new Buffer().writeUtf8(response));
+    }
+
+    private static byte[] roundTrip(byte[] basis, int blockSize, byte[] version) throws IOException {
+        BlockSignatures signatures = BlockSignatures.compute(new ByteArrayInputStream(basis), blockSize);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        new DeltaEncoder(signatures).encode(new ByteArrayInputStream(version), delta);
+        ByteArrayOutputStream rebuilt = new ByteArrayOutputStream();
+        long size = DeltaReconstructor.apply(basis, blockSize, new ByteArrayInputStream(delta.toByteArray()), rebuilt);
+        assertEquals(version.length, size);
+        return rebuilt.toByteArray();
+    }
+
+    /**
+     * @return Text of lines of words, like a long TXT document.
+     */
+    private static byte[] text(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(size + 16);
+        while (text.length() < size) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            text.append(random.nextInt(12) == 0 ? ".\n" : " ");
+        }
+        text.setLength(size);
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] insert(byte[] data, int offset, String text) {
+        byte[] inserted = text.getBytes(StandardCharsets.UTF_8);
+        return concat(concat(Arrays.copyOf(data, offset), inserted), Arrays.copyOfRange(data, offset, data.length));
+    }
+
+    private static byte[] remove(byte[] data, int offset, int length) {
+        return concat(Arrays.copyOf(data, offset), Arrays.copyOfRange(data, offset + length, data.length));
+    }
+
+    private static byte[] replace(byte[] data, int offset, String text) {
+        byte[] replaced = data.clone();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, replaced, offset, bytes.length);
+        return replaced;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static String sha256(byte[] data) {
+        return ByteString.of(data).sha256().hex();
+    }
+
+    private static UploadSource countingSource(byte[] data, AtomicInteger reads) {
+        UploadSource source = source(data);
+        return new UploadSource() {
+            @Override
+            public InputStream open() throws IOException {
+                reads.incrementAndGet();
+                return source.open();
+            }
+
+            @Override
+            public long length() {
+                return source.length();
+            }
+
+            @Override
+            public String key() {
+                return source.key();
+            }
+        };
+    }
+
+    private static UploadSource source(byte[] data) {
+        byte[] content = data.clone();
+        return new UploadSource() {
+            @Override
+            public InputStream open() {
+                return new ByteArrayInputStream(content);
+            }
+
+            @Override
+            public long length() {
+                return content.length;
+            }
+
+            @Override
+            public String key() {
+                return "doc#" + content.length + "#" + content.hashCode();
+            }
+        };
+    }
+}
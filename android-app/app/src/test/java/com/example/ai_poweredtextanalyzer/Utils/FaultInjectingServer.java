@@ -0,0 +1,99 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import mockwebserver3.SocketEffect;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for a struggling backend. Every request is answered with its number, after the base
+ * latency, unless a fault was injected: an error status, a dropped connection, a slow response,
+ * or paths that are down until they are brought back.
+ */
+public class FaultInjectingServer extends Dispatcher {
+    private final Set<String> downPaths = new HashSet<>();
+    private long latencyMillis = 0;
+    private int failures = 0;
+    private int failureCode = 503;
+    private int disconnects = 0;
+    private int slowResponses = 0;
+    private long slowLatencyMillis = 0;
+    private int requests = 0;
+
+    public synchronized void setLatency(long millis) {
+        latencyMillis = millis;
+    }
+
+    /**
+     * Answer the next requests with an error status.
+     */
+    public synchronized void failNext(int count, int code) {
+        failures = count;
+        failureCode = code;
+    }
+
+    /**
+     * Drop the connection of the next requests before the response.
+     */
+    public synchronized void disconnectNext(int count) {
+        disconnects = count;
+    }
+
+    /**
+     * Answer the next requests after the given latency instead of the base one.
+     */
+    public synchronized void slowNext(int count, long millis) {
+        slowResponses = count;
+        slowLatencyMillis = millis;
+    }
+
+    /**
+     * Answer all the requests of a path with 503, until it is brought back.
+     */
+    public synchronized void bringDown(String path) {
+        downPaths.add(path);
+    }
+
+    public synchronized void bringBack(String path) {
+        downPaths.remove(path);
+    }
+
+    public synchronized int getRequests() {
+        return requests;
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        int number = ++requests;
+        if (downPaths.contains(request.getUrl().encodedPath())) {
+            return new MockResponse.Builder().code(503).build();
+        }
+        if (failures > 0) {
+            failures--;
+            return new MockResponse.Builder().code(failureCode).build();
+        }
+        if (disconnects > 0) {
+            disconnects--;
+            return new MockResponse.Builder()
+                    .onResponseStart(new SocketEffect.CloseSocket())
+                    .build();
+        }
+
+        long latency = latencyMillis;
+        if (slowResponses > 0) {
+            slowResponses--;
+            latency = slowLatencyMillis;
+        }
+        return new MockResponse.Builder()
+                .headersDelay(latency, TimeUnit.MILLISECONDS)
+                .addHeader("Content-Type", "application/json")
+                .body("{\"request\": " + number + "}")
+                .build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import androidx.annotation.NonNull;
+
+import com.example.ai_poweredtextanalyzer.Objects.Timestamps;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for the backend files endpoint, serving the files newest first in pages
+ * selected by the "limit" and "cursor" query parameters. A client that prefers CBOR gets it once
+ * {@link #enableCbor} was called, with the upload times as tagged epoch seconds.
+ */
+public class FilesServer extends Dispatcher {
+    private final List<JSONObject> files = new ArrayList<>();
+    private boolean paging = true;
+    private boolean cbor = false;
+
+    /**
+     * Add an uploaded file, it becomes the first file of the list.
+     */
+    public synchronized void addFile(String id, String filename) {
+        try {
+            files.add(0, new JSONObject()
+                    .put("id", id)
+                    .put("filename", filename)
+                    .put("uploaded_at", "Mon, 06 Jan 2025 10:00:00 GMT"));
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ignore the paging parameters and return all the files, like the original backend.
+     */
+    public synchronized void disablePaging() {
+        paging = false;
+    }
+
+    /**
+     * Answer the clients that prefer CBOR with CBOR.
+     */
+    public synchronized void enableCbor() {
+        cbor = true;
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        if (!request.getUrl().encodedPath().equals("/files/")) {
+            return new MockResponse.Builder().code(404).build();
+        }
+
+        int start = 0;
+        int end = files.size();
+        String limit = request.getUrl().queryParameter("limit");
+        String cursor = request.getUrl().queryParameter("cursor");
+        if (paging && limit != null) {
+            start = cursor != null ? Integer.parseInt(cursor) : 0;
+            end = Math.min(files.size(), start + Integer.parseInt(limit));
+        }
+
+        try {
+            String nextCursor = paging && end < files.size() ? String.valueOf(end) : null;
+            if (cbor && prefersCbor(request)) {
+                return new MockResponse.Builder()
+                        .addHeader("Content-Type", WireFormat.CBOR)
+                        .body(new Buffer().write(encodeCbor(files.subList(start, end), nextCursor)))
+                        .build();
+            }
+            JSONObject body = new JSONObject().put("files", new JSONArray(files.subList(start, end)));
+            if (nextCursor != null) {
+                body.put("next_cursor", nextCursor);
+            }
+            return new MockResponse.Builder()
+                    .addHeader("Content-Type", "application/json")
+                    .body(body.toString())
+                    .build();
+        } catch (JSONException e) {
+            return new MockResponse.Builder().code(500).build();
+        }
+    }
+
+    static boolean prefersCbor(RecordedRequest request) {
+        String accept = request.getHeaders().get("Accept");
+        return accept != null && accept.startsWith(WireFormat.CBOR);
+    }
+
+    private static ByteString encodeCbor(List<JSONObject> page, String nextCursor) {
+        CborWriter writer = new CborWriter().beginMap(nextCursor != null ? 2 : 1);
+        writer.text("files").beginArray(page.size());
+        for (JSONObject file : page) {
+            writer.beginMap(3)
+                    .text("id").text(file.optString("id"))
+                    .text("filename").text(file.optString("filename"))
+                    .text("uploaded_at").tag(1).integer(Timestamps.parse(file.optString("uploaded_at")) / 1000);
+        }
+        if (nextCursor != null) {
+            writer.text("next_cursor").text(nextCursor);
+        }
+        return writer.bytes();
+    }
+}
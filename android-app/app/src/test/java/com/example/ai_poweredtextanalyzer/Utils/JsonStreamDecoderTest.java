@@ -0,0 +1,104 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Objects.ChatHistoryPage;
+import com.example.ai_poweredtextanalyzer.Objects.ChatMessage;
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+import com.example.ai_poweredtextanalyzer.Objects.Timestamps;
+import com.squareup.moshi.JsonDataException;
+
+import okio.Buffer;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class JsonStreamDecoderTest {
+
+    @Test
+    public void decodesAPageOfFilesAndSkipsUnknownKeys() throws IOException {
+        FilePage page = JsonStreamDecoder.decodeFilePage(json("{\"files\": ["
+                + "{\"id\": \"1\", \"user_id\": \"u\", \"filename\": \"a.pdf\", \"file_path\": {\"nested\": [1, 2]},"
+                + " \"uploaded_at\": \"2025-01-06T10:00:00\"},"
+                + "{\"id\": \"2\", \"filename\": \"b.txt\", \"uploaded_at\": null}],"
+                + " \"next_cursor\": \"2\", \"server\": \"v2\"}"));
+
+        assertEquals(2, page.getFiles().size());
+        assertEquals("1", page.getFiles().get(0).getId());
+        assertEquals("a.pdf", page.getFiles().get(0).getFilename());
+        assertEquals(Timestamps.parse("2025-01-06T10:00:00"), page.getFiles().get(0).getUploadedAt());
+        assertEquals(Timestamps.UNKNOWN, page.getFiles().get(1).getUploadedAt());
+        assertEquals("2", page.getNextCursor());
+        assertNull(page.getWatermark());
+    }
+
+    @Test
+    public void decodesTheChangesSinceAWatermark() throws IOException {
+        FilePage page = JsonStreamDecoder.decodeFilePage(json(
+                "{\"files\": [], \"deleted_ids\": [\"3\", \"4\"], \"watermark\": \"w2\", \"next_cursor\": null}"));
+
+        assertTrue(page.getFiles().isEmpty());
+        assertEquals(Arrays.asList("3", "4"), page.getDeletedIds());
+        assertEquals("w2", page.getWatermark());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test(expected = JsonDataException.class)
+    public void errorBodyIsNotAnEmptyListOfFiles() throws IOException {
+        JsonStreamDecoder.decodeFilePage(json("{\"detail\": \"Unauthorized\"}"));
+    }
+
+    @Test(expected = JsonDataException.class)
+    public void fileWithoutAnIdIsRejected() throws IOException {
+        JsonStreamDecoder.decodeFilePage(json("{\"files\": [{\"filename\": \"a.pdf\"}]}"));
+    }
+
+    @Test
+    public void uploadResponseWithoutFileDescribesNothing() throws IOException {
+        assertNull(JsonStreamDecoder.decodeUploadedFile(
+                json("{\"message\": \"File uploaded successfully\", \"filename\": \"doc.pdf\"}")));
+    }
+
+    @Test(expected = JsonDataException.class)
+    public void uploadedFileWithoutANameIsRejected() throws IOException {
+        JsonStreamDecoder.decodeUploadedFile(json("{\"message\": \"ok\", \"file\": {\"id\": \"1\"}}"));
+    }
+
+    @Test
+    public void decodesChatHistoryWithItsCursor() throws IOException {
+        ChatHistoryPage page = JsonStreamDecoder.decodeChatHistoryPage(json("{\"chat_history\": ["
+                + "{\"sender\": \"user\", \"text\": \"q\", \"is_html\": false},"
+                + "{\"sender\": \"assistant\", \"text\": null}],"
+                + " \"cursor\": \"12\"}"), 10);
+
+        assertEquals(2, page.getMessages().size());
+        assertEquals(ChatMessage.Sender.USER, page.getMessages().get(0).getSender());
+        assertEquals("q", page.getMessages().get(0).getText());
+        assertEquals(ChatMessage.Sender.AI_MODEL, page.getMessages().get(1).getSender());
+        assertEquals("", page.getMessages().get(1).getText());
+        assertEquals("12", page.getCursor());
+        assertEquals(10, page.getStart());
+    }
+
+    @Test
+    public void chatHistoryWithoutACursorIsTheFullHistory() throws IOException {
+        ChatHistoryPage page = JsonStreamDecoder.decodeChatHistoryPage(json("{\"chat_history\": []}"), 10);
+
+        assertNull(page.getCursor());
+        assertEquals(0, page.getStart());
+    }
+
+    @Test(expected = JsonDataException.class)
+    public void errorBodyIsNotAnEmptyChatHistory() throws IOException {
+        JsonStreamDecoder.decodeChatHistoryPage(json("{\"detail\": \"Context file not found\"}"), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedJsonFailsToDecode() throws IOException {
+        JsonStreamDecoder.decodeFilePage(json("{\"files\": [{\"id\": \"1\", \"filename\": \"a"));
+    }
+
+    private static Buffer json(String json) {
+        return new Buffer().writeUtf8(json);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MarkdownParserTest {
+
+    @Test
+    public void stylesInlineRangesWithoutTheirDelimiters() {
+        MarkdownParser.Document document = MarkdownParser.parse("a **bold** and *italic* `code`");
+
+        assertEquals("a bold and italic code", document.text);
+        assertSpan(document, 0, MarkdownParser.Style.BOLD, "bold");
+        assertSpan(document, 1, MarkdownParser.Style.ITALIC, "italic");
+        assertSpan(document, 2, MarkdownParser.Style.CODE, "code");
+    }
+
+    @Test
+    public void stylesHeadingsAndBulletsByLine() {
+        MarkdownParser.Document document = MarkdownParser.parse("## Title\n- first\n* second");
+
+        assertEquals("Title\nfirst\nsecond", document.text);
+        assertSpan(document, 0, MarkdownParser.Style.HEADING, "Title");
+        assertEquals(2, document.spans.get(0).level);
+        assertSpan(document, 1, MarkdownParser.Style.BULLET, "first");
+        assertSpan(document, 2, MarkdownParser.Style.BULLET, "second");
+    }
+
+    @Test
+    public void keepsTheMarkdownOfCodeBlocks() {
+        MarkdownParser.Document document = MarkdownParser.parse("before\n```\nint **x** = 1;\n```\nafter");
+
+        assertEquals("before\nint **x** = 1;\nafter", document.text);
+        assertEquals(1, document.spans.size());
+        assertSpan(document, 0, MarkdownParser.Style.CODE_BLOCK, "int **x** = 1;");
+    }
+
+    @Test
+    public void keepsUnclosedDelimitersAndUnderscoresInsideWords() {
+        MarkdownParser.Document document = MarkdownParser.parse("snake_case_name and 2 * 3 and \\*escaped\\*");
+
+        assertEquals("snake_case_name and 2 * 3 and *escaped*", document.text);
+        assertTrue(document.spans.isEmpty());
+    }
+
+    @Test
+    public void stylesAnUnclosedCodeBlockToTheEnd() {
+        MarkdownParser.Document document = MarkdownParser.parse("```\nstill generating");
+
+        assertEquals("still generating\n", document.text);
+        assertSpan(document, 0, MarkdownParser.Style.CODE_BLOCK, "still generating\n");
+    }
+
+    private static void assertSpan(MarkdownParser.Document document, int index, MarkdownParser.Style style, String text) {
+        MarkdownParser.Span span = document.spans.get(index);
+        assertEquals(style, span.style);
+        assertEquals(text, document.text.substring(span.start, span.end));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Objects.FilePage;
+
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+
+public class PagedFileSourceTest {
+    private final MockWebServer server = new MockWebServer();
+    private final FilesServer filesServer = new FilesServer();
+    private final OkHttpClient client = new OkHttpClient();
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 1; i <= 25; i++) {
+            filesServer.addFile("id-" + i, "file-" + i + ".pdf");
+        }
+        server.setDispatcher(filesServer);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void loadsFilesPageByPage() throws Exception {
+        PagedFileSource source = new PagedFileSource(client, server.url("/"), "token", 10);
+
+        FilePage first = source.loadNextPage();
+        assertEquals(10, first.getFiles().size());
+        assertEquals("id-25", first.getFiles().get(0).getId());
+        assertTrue(source.hasMore());
+
+        assertEquals(10, source.loadNextPage().getFiles().size());
+        FilePage last = source.loadNextPage();
+        assertEquals(5, last.getFiles().size());
+        assertEquals("id-1", last.getFiles().get(4).getId());
+        assertFalse(source.hasMore());
+
+        RecordedRequest firstRequest = server.takeRequest();
+        assertEquals("10", firstRequest.getUrl().queryParameter("limit"));
+        assertNull(firstRequest.getUrl().queryParameter("cursor"));
+        assertEquals("Bearer token", firstRequest.getHeaders().get("Authorization"));
+        assertEquals("10", server.takeRequest().getUrl().queryParameter("cursor"));
+        assertEquals("20", server.takeRequest().getUrl().queryParameter("cursor"));
+    }
+
+    @Test
+    public void treatsUnpagedResponseAsSinglePage() throws IOException {
+        filesServer.disablePaging();
+        PagedFileSource source = new PagedFileSource(client, server.url("/"), "token", 10);
+
+        assertEquals(25, source.loadNextPage().getFiles().size());
+        assertFalse(source.hasMore());
+        assertTrue(source.loadNextPage().getFiles().isEmpty());
+        assertEquals(1, server.getRequestCount());
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Exceptions.CircuitOpenException;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ResilienceInterceptorTest {
+    private static final String FILES = "GET /files/";
+    private static final String HISTORY = "GET /chat/history";
+
+    private final MockWebServer server = new MockWebServer();
+    private final FaultInjectingServer faultServer = new FaultInjectingServer();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private ResilienceInterceptor interceptor;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(faultServer);
+        server.start();
+        useInterceptor(3, 3, 60_000);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void transientFailuresOfAnIdempotentGetAreRetried() throws IOException {
+        faultServer.failNext(2, 503);
+
+        try (Response response = get("/files/")) {
+            assertEquals(200, response.code());
+            assertEquals("{\"request\": 3}", response.body().string());
+        }
+        assertEquals(2, interceptor.getStats().get(FILES).getRetries());
+    }
+
+    @Test
+    public void droppedConnectionOfAnIdempotentGetIsRetried() throws IOException {
+        faultServer.disconnectNext(1);
+
+        try (Response response = get("/chat/history?context_file_id=65a1b2c3d4e5f6a7b8c9d0e1")) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, faultServer.getRequests());
+    }
+
+    @Test
+    public void retriesStopAfterTheLastAttempt() throws IOException {
+        faultServer.bringDown("/files/");
+
+        try (Response response = get("/files/")) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(3, faultServer.getRequests());
+    }
+
+    @Test
+    public void otherRequestsAreNotRetried() throws IOException {
+        faultServer.failNext(2, 503);
+        Request post = new Request.Builder()
+                .url(server.url("/chat/"))
+                .post(RequestBody.create("{\"question\": \"q\"}", MediaType.get("application/json")))
+                .build();
+
+        try (Response response = client.newCall(post).execute()) {
+            assertEquals(503, response.code());
+        }
+        try (Response response = get("/files/summary")) {
+            assertEquals(503, response.code());
+        }
+        // a client error isn't a reason to retry
+        faultServer.failNext(1, 404);
+        try (Response response = get("/files/")) {
+            assertEquals(404, response.code());
+        }
+        assertEquals(3, faultServer.getRequests());
+    }
+
+    @Test
+    public void slowRequestIsHedgedPastTheObservedP95() throws IOException {
+        warmUp();
+        // a warm-up request slower than the percentile may have been hedged already
+        long hedges = interceptor.getStats().get(FILES).getHedges();
+        long hedgesWon = interceptor.getStats().get(FILES).getHedgesWon();
+        faultServer.slowNext(1, 5_000);
+
+        long start = System.nanoTime();
+        try (Response response = get("/files/")) {
+            assertEquals(200, response.code());
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 2_500);
+        assertEquals(hedges + 1, interceptor.getStats().get(FILES).getHedges());
+        assertEquals(hedgesWon + 1, interceptor.getStats().get(FILES).getHedgesWon());
+    }
+
+    @Test
+    public void cancelOfAHedgedCallCancelsBothRequests() throws Exception {
+        warmUp();
+        long hedges = interceptor.getStats().get(FILES).getHedges();
+        int requests = faultServer.getRequests();
+        faultServer.slowNext(2, 5_000);
+
+        Call call = client.newCall(new Request.Builder().url(server.url("/files/")).build());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        new Thread(() -> {
+            try (Response ignored = call.execute()) {
+                fail("The canceled call got a response");
+            } catch (Throwable e) {
+                failure.set(e);
+            } finally {
+                finished.countDown();
+            }
+        }).start();
+        // both the request and its duplicate are waiting for the server
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (faultServer.getRequests() < requests + 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(hedges + 1, interceptor.getStats().get(FILES).getHedges());
+
+        long start = System.nanoTime();
+        call.cancel();
+
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof IOException);
+        while (client.dispatcher().runningCallsCount() > 0 && System.nanoTime() - start < 1_000_000_000L) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, client.dispatcher().runningCallsCount());
+    }
+
+    @Test
+    public void canceledCallStopsWaitingToRetry() throws Exception {
+        useInterceptor(3, 3, 60_000, 5_000);
+        faultServer.failNext(1, 503);
+
+        Call call = client.newCall(new Request.Builder().url(server.url("/files/")).build());
+        ScheduledExecutorService canceler = Executors.newSingleThreadScheduledExecutor();
+        canceler.schedule(call::cancel, 200, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            assertThrows(IOException.class, call::execute);
+        } finally {
+            canceler.shutdownNow();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // the backoff of the first retry is at least half of its 5 seconds
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 2_000);
+        assertEquals(1, faultServer.getRequests());
+    }
+
+    @Test
+    public void requestsAreNotHedgedBeforeTheLatenciesAreKnown() throws IOException {
+        faultServer.slowNext(1, 300);
+
+        try (Response response = get("/files/")) {
+            assertEquals("{\"request\": 1}", response.body().string());
+        }
+        assertEquals(1, faultServer.getRequests());
+        assertEquals(0, interceptor.getStats().get(FILES).getHedges());
+    }
+
+    @Test
+    public void openCircuitFailsFastOnlyForItsEndpoint() throws IOException {
+        useInterceptor(1, 3, 60_000);
+        faultServer.bringDown("/files/");
+        for (int i = 0; i < 3; i++) {
+            get("/files/").close();
+        }
+
+        try {
+            get("/files/");
+            fail("The circuit didn't open");
+        } catch (CircuitOpenException expected) {
+            // the backend wasn't called
+        }
+        assertEquals(3, faultServer.getRequests());
+        assertEquals(1, interceptor.getStats().get(FILES).getRejected());
+        try (Response response = get("/chat/history?context_file_id=1")) {
+            assertEquals(200, response.code());
+        }
+    }
+
+    @Test
+    public void successfulTrialClosesTheCircuit() throws Exception {
+        useInterceptor(1, 2, 200);
+        faultServer.bringDown("/files/");
+        get("/files/").close();
+        get("/files/").close();
+        assertThrows(CircuitOpenException.class, () -> get("/files/"));
+
+        // a failed trial opens the circuit again
+        Thread.sleep(300);
+        get("/files/").close();
+        assertThrows(CircuitOpenException.class, () -> get("/files/"));
+        assertEquals(3, faultServer.getRequests());
+
+        Thread.sleep(300);
+        faultServer.bringBack("/files/");
+        for (int i = 0; i < 3; i++) {
+            try (Response response = get("/files/")) {
+                assertEquals(200, response.code());
+            }
+        }
+        assertEquals(6, faultServer.getRequests());
+    }
+
+    @Test
+    public void backoffDelayIsJitteredAndCapped() {
+        useInterceptor(3, 3, 60_000);
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long delay = Math.min(10L << (attempt - 1), 50);
+            long backoff = interceptor.backoffDelay(attempt);
+            assertTrue(backoff >= delay / 2 && backoff <= delay);
+        }
+    }
+
+    private void useInterceptor(int maxAttempts, int failureThreshold, long openMillis) {
+        useInterceptor(maxAttempts, failureThreshold, openMillis, 10);
+    }
+
+    private void useInterceptor(int maxAttempts, int failureThreshold, long openMillis, long baseDelayMillis) {
+        interceptor = new ResilienceInterceptor(Arrays.asList(FILES, HISTORY), executor, scheduler,
+                maxAttempts, baseDelayMillis, Math.max(baseDelayMillis, 50), failureThreshold, openMillis,
+                ResilienceInterceptor.DEFAULT_MAX_HEDGES);
+        // the transparent retry of a dropped connection is left to the interceptor
+        client = new OkHttpClient.Builder()
+                .addInterceptor(interceptor)
+                .eventListenerFactory(interceptor.eventListenerFactory())
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    /**
+     * Send enough quick requests for the latency percentile of the files list.
+     */
+    private void warmUp() throws IOException {
+        faultServer.setLatency(20);
+        for (int i = 0; i < ResilienceInterceptor.MIN_LATENCY_SAMPLES + 10; i++) {
+            get("/files/").close();
+        }
+    }
+
+    private Response get(String path) throws IOException {
+        return client.newCall(new Request.Builder().url(server.url(path)).build()).execute();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class SingleFlightTest {
+    private static final int CALLERS = 8;
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    private final SingleFlight<String> flight = new SingleFlight<>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void identicalCallsShareOneExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runCallers("summary", () -> {
+            executions.incrementAndGet();
+            await(release);
+            return "result";
+        });
+        waitUntilJoined();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("result", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void everyCallerGetsTheSameError() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runCallers("summary", () -> {
+            executions.incrementAndGet();
+            await(release);
+            throw new RuntimeException("Failed to summarize");
+        });
+        waitUntilJoined();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("the call error should reach every caller");
+            } catch (ExecutionException e) {
+                assertEquals("Failed to summarize", e.getCause().getMessage());
+            }
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void callsAfterCompletionRunAgain() {
+        AtomicInteger executions = new AtomicInteger();
+
+        flight.execute("summary", () -> "result-" + executions.incrementAndGet());
+        String second = flight.execute("summary", () -> "result-" + executions.incrementAndGet());
+
+        assertEquals("result-2", second);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void asyncCallersAttachToTheRunningCall() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<String> call = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.executeAsync("summary", () -> {
+            executions.incrementAndGet();
+            return call;
+        }, Runnable::run);
+        CompletableFuture<String> second = flight.executeAsync("summary", () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        }, Runnable::run);
+
+        // cancelling one caller leaves the others waiting for the call
+        first.cancel(true);
+        call.complete("result");
+
+        assertEquals("result", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void callIsCancelledWhenAllAsyncCallersCancel() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.executeAsync("summary", () -> call, Runnable::run);
+        CompletableFuture<String> second = flight.executeAsync("summary", CompletableFuture::new, Runnable::run);
+
+        first.cancel(true);
+        assertFalse(call.isCancelled());
+        second.cancel(true);
+        assertTrue(call.isCancelled());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void differentKeysDontShareExecutions() {
+        assertEquals("short", flight.execute("file-1\nshort", () -> "short"));
+        assertEquals("long", flight.execute("file-1\nlong", () -> "long"));
+    }
+
+    private List<Future<String>> runCallers(String key, Supplier<String> call) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> flight.execute(key, call)));
+        }
+        return results;
+    }
+
+    /**
+     * Wait until the first caller started the call, and give the others time to attach to it.
+     */
+    private void waitUntilJoined() throws InterruptedException {
+        while (flight.inFlight() == 0) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(200);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Objects.File;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+
+public class UploadDeduplicatorTest {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final MediaType PDF = MediaType.get("application/pdf");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final ChunkedUploadServer uploadServer = new ChunkedUploadServer();
+    private final OkHttpClient client = new OkHttpClient();
+    private UploadDeduplicator deduplicator;
+    private ChunkedUploader uploader;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(uploadServer);
+        server.start();
+        deduplicator = new UploadDeduplicator(client, server.url("/"));
+        uploader = new ChunkedUploader(client, server.url("/"),
+                new UploadCheckpointStore(new java.io.File(temporaryFolder.getRoot(), "checkpoints.properties")),
+                CHUNK_SIZE, ChunkedUploader.DEFAULT_MAX_ATTEMPTS);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void hashesTheContentAsItIsRead() throws Exception {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                UploadDeduplicator.sha256(source("abc".getBytes(StandardCharsets.UTF_8))));
+
+        // spans several read buffers
+        byte[] data = randomBytes(1024 * 1024 + 17);
+        StringBuilder expected = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+            expected.append(String.format("%02x", b));
+        }
+        assertEquals(expected.toString(), UploadDeduplicator.sha256(source(data)));
+    }
+
+    @Test
+    public void repeatedUploadIsFoundWithoutSendingTheFile() throws IOException {
+        byte[] data = randomBytes(2 * 1024 * 1024);
+        File first = upload(data, "report.pdf");
+        long bytesAfterFirst = uploadServer.getBytesReceived();
+
+        File second = upload(data, "report.pdf");
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(bytesAfterFirst, uploadServer.getBytesReceived());
+        assertEquals(1, uploadServer.getSessionRequests());
+        assertEquals(2, uploadServer.getProbeRequests());
+    }
+
+    @Test
+    public void sameContentUnderAnotherNameIsLinked() throws IOException {
+        byte[] data = randomBytes(512 * 1024);
+        File first = upload(data, "report.pdf");
+
+        File copy = upload(data, "report copy.pdf");
+
+        assertNotEquals(first.getId(), copy.getId());
+        assertEquals("report copy.pdf", copy.getFilename());
+        assertEquals(1, uploadServer.getLinkedFiles());
+        assertEquals(1, uploadServer.getSessionRequests());
+    }
+
+    @Test
+    public void changedContentIsUploaded() throws IOException {
+        byte[] data = randomBytes(512 * 1024);
+        upload(data, "report.pdf");
+        data[1000]++;
+
+        File changed = upload(data, "report v2.pdf");
+
+        assertEquals(2, uploadServer.getSessionRequests());
+        assertArrayEquals(data, uploadServer.storedBytes(changed.getId()));
+    }
+
+    @Test
+    public void serverWithoutProbesIsAskedOnce() throws IOException {
+        uploadServer.disableProbe();
+        byte[] data = randomBytes(1024);
+
+        upload(data, "a.pdf");
+        upload(data, "b.pdf");
+
+        assertEquals(1, uploadServer.getProbeRequests());
+        assertEquals(2, uploadServer.getSessionRequests());
+    }
+
+    /**
+     * Upload a file the way the app does, probing for its content first.
+     */
+    private File upload(byte[] data, String fileName) throws IOException {
+        UploadSource source = source(data);
+        File existing = deduplicator.findExisting("token", source, fileName);
+        if (existing != null) {
+            return existing;
+        }
+        String response = uploader.upload("token", source, fileName, PDF);
+        return JsonStreamDecoder.decodeUploadedFile(new Buffer().writeUtf8(response));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static UploadSource source(byte[] data) {
+        byte[] content = data.clone();
+        return new UploadSource() {
+            @Override
+            public InputStream open() {
+                return new ByteArrayInputStream(content);
+            }
+
+            @Override
+            public long length() {
+                return content.length;
+            }
+
+            @Override
+            public String key() {
+                return "doc#" + content.length + "#" + content.hashCode();
+            }
+        };
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import com.example.ai_poweredtextanalyzer.Exceptions.UploadRejectedException;
+import com.example.ai_poweredtextanalyzer.Objects.File;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UploadQueueTest {
+    private static final int CHUNK_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final ChunkedUploadServer uploadServer = new ChunkedUploadServer();
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .retryOnConnectionFailure(false)
+            .build();
+    // content of the picked files by their uri
+    private final Map<String, byte[]> files = new HashMap<>();
+    // results of the uploads, "finished:<name>" or "failed:<name>", and "batch" at the end of a batch
+    private final BlockingQueue<String> results = new LinkedBlockingQueue<>();
+    private final List<UploadQueue.Progress> progress = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private java.io.File queueFile;
+    private UploadCheckpointStore checkpoints;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(uploadServer);
+        server.start();
+        queueFile = new java.io.File(temporaryFolder.getRoot(), "queue.properties");
+        checkpoints = new UploadCheckpointStore(new java.io.File(temporaryFolder.getRoot(), "checkpoints.properties"));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        scheduler.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    public void retriesServerErrorsUntilTheFileIsUploaded() throws Exception {
+        uploadServer.failSessions(2, 503);
+        UploadQueue queue = queue(serverUploader(), 2, 5);
+
+        enqueue(queue, "content://doc.pdf", 3 * CHUNK_SIZE, false);
+
+        assertEquals("finished:doc.pdf", results.poll(5, TimeUnit.SECONDS));
+        assertEquals(3, uploadServer.getSessionRequests());
+        assertArrayEquals(files.get("content://doc.pdf"), uploadServer.storedBytes(uploadServer.onlyUploadId()));
+        assertTrue(queue.getUploads().isEmpty());
+    }
+
+    @Test
+    public void resumesADroppedUploadFromItsLastChunk() throws Exception {
+        uploadServer.dropChunkBeforeStore(2);
+        uploadServer.dropChunkBeforeStore(3);
+        uploadServer.dropChunkBeforeStore(4);
+        UploadQueue queue = queue(serverUploader(), 2, 5);
+
+        enqueue(queue, "content://doc.pdf", 4 * CHUNK_SIZE, false);
+
+        assertEquals("finished:doc.pdf", results.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, uploadServer.getSessionRequests());
+        assertArrayEquals(files.get("content://doc.pdf"), uploadServer.storedBytes(uploadServer.onlyUploadId()));
+    }
+
+    @Test
+    public void rejectedFileIsRemovedWithoutRetrying() throws Exception {
+        uploadServer.failSessions(1, 413);
+        UploadQueue queue = queue(serverUploader(), 2, 5);
+
+        enqueue(queue, "content://big.pdf", 10, false);
+
+        assertEquals("failed:big.pdf", results.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, uploadServer.getSessionRequests());
+        assertTrue(queue.getUploads().isEmpty());
+    }
+
+    @Test
+    public void failsAfterTheMaximumAttempts() throws Exception {
+        uploadServer.failSessions(-1, 500);
+        UploadQueue queue = queue(serverUploader(), 2, 3);
+
+        enqueue(queue, "content://doc.pdf", 10, false);
+
+        assertEquals("failed:doc.pdf", results.poll(5, TimeUnit.SECONDS));
+        assertEquals(3, uploadServer.getSessionRequests());
+        assertTrue(queue.getUploads().isEmpty());
+    }
+
+    @Test
+    public void runsAtMostTheMaximumUploadsAtTheSameTime() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        UploadQueue.Uploader uploader = serverUploader();
+        UploadQueue queue = queue((upload, onBytesSent) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return uploader.upload(upload, onBytesSent);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }, 2, 5);
+
+        for (int i = 0; i < 6; i++) {
+            enqueue(queue, "content://doc" + i + ".txt", 100, false);
+        }
+
+        for (int i = 0; i < 6; i++) {
+            assertNotNull(results.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, maxRunning.get());
+        assertEquals(6, uploadServer.getSessionRequests());
+    }
+
+    @Test
+    public void reportsTheProgressOfTheBatchAndItsEndOnce() throws Exception {
+        UploadQueue queue = queue(serverUploader(), 2, 5);
+
+        for (int i = 0; i < 3; i++) {
+            enqueue(queue, "content://doc" + i + ".pdf", 3 * CHUNK_SIZE, false);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(results.poll(5, TimeUnit.SECONDS).startsWith("finished:"));
+        }
+        assertEquals("batch", results.poll(5, TimeUnit.SECONDS));
+        assertNull(results.poll(100, TimeUnit.MILLISECONDS));
+
+        UploadQueue.Progress last = progress.get(progress.size() - 1);
+        assertEquals(3, last.getFinished());
+        assertEquals(3, last.getTotal());
+        assertEquals(9 * CHUNK_SIZE, last.getBytesTotal());
+        assertEquals(1f, last.getFraction(), 0f);
+        float previous = 0f;
+        for (UploadQueue.Progress batchProgress : progress) {
+            assertTrue(batchProgress.getFraction() >= previous);
+            previous = batchProgress.getFraction();
+        }
+        // the chunks are reported as the server acknowledges them
+        assertTrue(progress.size() > 6);
+    }
+
+    @Test
+    public void pipelinesABatchOverThePooledConnections() throws Exception {
+        // every request costs a round trip, a file of two chunks takes three of them
+        uploadServer.setLatency(40);
+        UploadQueue queue = queue(serverUploader(), 4, 5);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            enqueue(queue, "content://doc" + i + ".pdf", 2 * CHUNK_SIZE, false);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertTrue(results.poll(5, TimeUnit.SECONDS).startsWith("finished:"));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // one upload after the other would take 20 * 3 * 40ms = 2.4s
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 1500);
+        assertTrue(uploadServer.getConnectionCount() <= 4);
+        assertEquals(60, uploadServer.getSessionRequests() + uploadServer.getChunkRequests());
+    }
+
+    @Test
+    public void resumesQueuedUploadsAfterRestart() throws Exception {
+        // the first process is killed while its uploads are running
+        CountDownLatch killed = new CountDownLatch(1);
+        UploadQueue before = queue((upload, onBytesSent) -> {
+            try {
+                killed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Killed");
+        }, 2, 5);
+        before.setListener(null);
+        enqueue(before, "content://a.pdf", 10, true);
+        enqueue(before, "content://b.txt", 10, false);
+        awaitSaved();
+
+        Set<String> resumed = ConcurrentHashMap.newKeySet();
+        UploadQueue.Uploader uploader = serverUploader();
+        queue((upload, onBytesSent) -> {
+            resumed.add(upload.getUri() + " " + upload.getMimeType() + " " + upload.getSize()
+                    + " " + upload.hasPersistedPermission());
+            return uploader.upload(upload, onBytesSent);
+        }, 2, 5);
+
+        Set<String> finished = new HashSet<>();
+        finished.add(results.poll(5, TimeUnit.SECONDS));
+        finished.add(results.poll(5, TimeUnit.SECONDS));
+        assertEquals(new HashSet<>(Arrays.asList("finished:a.pdf", "finished:b.txt")), finished);
+        assertEquals(new HashSet<>(Arrays.asList("content://a.pdf application/pdf 10 true",
+                "content://b.txt text/plain 10 false")), resumed);
+        assertEquals(2, uploadServer.getSessionRequests());
+    }
+
+    @Test
+    public void shutdownQueueStartsNoUploadAndKeepsThemSaved() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        UploadQueue before = queue((upload, onBytesSent) -> {
+            started.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new File("1", upload.getFileName(), 0L);
+        }, 1, 5);
+        enqueue(before, "content://a.pdf", 10, false);
+        enqueue(before, "content://b.pdf", 10, false);
+
+        // another user logs in while the first upload is running
+        before.shutdown();
+        release.countDown();
+        awaitSaved();
+        Thread.sleep(100);
+
+        assertEquals(1, started.get());
+        assertNull(results.poll());
+        assertEquals(1, before.getUploads().size());
+
+        // the waiting upload is resumed by the user's next queue
+        UploadQueue.Uploader uploader = serverUploader();
+        queue(uploader, 1, 5);
+        assertEquals("finished:b.pdf", results.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyWithJitter() {
+        UploadQueue queue = queue((upload, onBytesSent) -> null, 1, 10, 100, 1000);
+
+        for (int attempt = 1; attempt <= 6; attempt++) {
+            long delay = queue.backoffDelay(attempt);
+            long maxDelay = Math.min(1000, 100L << (attempt - 1));
+            assertTrue(delay >= maxDelay / 2);
+            assertTrue(delay <= maxDelay);
+        }
+    }
+
+    private UploadQueue queue(UploadQueue.Uploader uploader, int maxConcurrent, int maxAttempts) {
+        return queue(uploader, maxConcurrent, maxAttempts, 10);
+    }
+
+    private UploadQueue queue(UploadQueue.Uploader uploader, int maxConcurrent, int maxAttempts, long baseDelayMillis) {
+        return queue(uploader, maxConcurrent, maxAttempts, baseDelayMillis, baseDelayMillis * 4);
+    }
+
+    private UploadQueue queue(UploadQueue.Uploader uploader, int maxConcurrent, int maxAttempts,
+                              long baseDelayMillis, long maxDelayMillis) {
+        UploadQueue queue = new UploadQueue(queueFile, uploader, executor, scheduler, Runnable::run,
+                maxConcurrent, maxAttempts, baseDelayMillis, maxDelayMillis);
+        queue.setListener(new UploadQueue.Listener() {
+            @Override
+            public void onUploadFinished(UploadQueue.Upload upload, File uploaded) {
+                results.add("finished:" + uploaded.getFilename());
+            }
+
+            @Override
+            public void onUploadFailed(UploadQueue.Upload upload, Exception error) {
+                assertTrue(error instanceof IOException || error instanceof UploadRejectedException);
+                results.add("failed:" + upload.getFileName());
+            }
+
+            @Override
+            public void onProgress(UploadQueue.Progress batchProgress) {
+                progress.add(batchProgress);
+            }
+
+            @Override
+            public void onBatchFinished() {
+                results.add("batch");
+            }
+        });
+        return queue;
+    }
+
+    /**
+     * Sends the picked files through the chunked uploader, like the app's uploader.
+     */
+    private UploadQueue.Uploader serverUploader() {
+        ChunkedUploader uploader = new ChunkedUploader(client, server.url("/"), checkpoints,
+                CHUNK_SIZE, ChunkedUploader.DEFAULT_MAX_ATTEMPTS);
+        return (upload, onBytesSent) -> {
+            String response = uploader.upload("token", source(upload.getUri()), upload.getFileName(),
+                    MediaType.get(upload.getMimeType()), onBytesSent);
+            return JsonStreamDecoder.decodeUploadedFile(new Buffer().writeUtf8(response));
+        };
+    }
+
+    /**
+     * Wait for the queue file writes, the scheduler runs them in order.
+     */
+    private void awaitSaved() throws Exception {
+        scheduler.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Pick a file of random content and queue it, its name is the last part of the uri.
+     */
+    private void enqueue(UploadQueue queue, String uri, int size, boolean persistedPermission) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        files.put(uri, data);
+        String name = uri.substring("content://".length());
+        String mimeType = name.endsWith(".pdf") ? "application/pdf" : "text/plain";
+        queue.enqueue(uri, name, mimeType, size, persistedPermission);
+    }
+
+    private UploadSource source(String uri) {
+        byte[] data = files.get(uri);
+        return new UploadSource() {
+            @Override
+            public InputStream open() {
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public long length() {
+                return data.length;
+            }
+
+            @Override
+            public String key() {
+                return uri;
+            }
+        };
+    }
+}
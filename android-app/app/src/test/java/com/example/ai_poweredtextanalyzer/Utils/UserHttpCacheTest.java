@@ -0,0 +1,140 @@
+package com.example.ai_poweredtextanalyzer.Utils;
+
+import static org.junit.Assert.*;
+
+import mockwebserver3.MockWebServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class UserHttpCacheTest {
+    private static final String ALICE = token("alice");
+    private static final String BOB = token("bob");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final ConditionalServer conditionalServer = new ConditionalServer();
+    private UserHttpCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(conditionalServer);
+        server.start();
+        cache = new UserHttpCache(new OkHttpClient(), temporaryFolder.getRoot(), UserHttpCache.MAX_CACHE_SIZE);
+        conditionalServer.setBody(ALICE, "{\"files\": [{\"id\": \"1\", \"filename\": \"alice.pdf\"}]}");
+        conditionalServer.setBody(BOB, "{\"files\": [{\"id\": \"2\", \"filename\": \"bob.pdf\"}]}");
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void unchangedResponseIsRevalidatedAndServedFromTheCache() throws IOException {
+        String first = get(ALICE, false);
+
+        try (Response response = execute(ALICE)) {
+            assertEquals(200, response.code());
+            assertNotNull(response.cacheResponse());
+            assertEquals(304, response.networkResponse().code());
+            assertEquals(first, response.body().string());
+        }
+        assertEquals(1, conditionalServer.getNotModified());
+        assertNull(conditionalServer.getIfNoneMatch().get(0));
+        assertNotNull(conditionalServer.getIfNoneMatch().get(1));
+    }
+
+    @Test
+    public void changedResponseReplacesTheCachedOne() throws IOException {
+        get(ALICE, false);
+        conditionalServer.setBody(ALICE, "{\"files\": []}");
+
+        assertEquals("{\"files\": []}", get(ALICE, false));
+        assertEquals("{\"files\": []}", get(ALICE, true));
+        assertEquals(1, conditionalServer.getNotModified());
+    }
+
+    @Test
+    public void usersNeverShareCachedResponses() throws IOException {
+        String alice = get(ALICE, false);
+        String bob = get(BOB, false);
+
+        assertTrue(alice.contains("alice.pdf"));
+        assertTrue(bob.contains("bob.pdf"));
+        // bob's first request had nothing to revalidate, though alice cached the same url
+        assertEquals(Arrays.asList(null, null), conditionalServer.getIfNoneMatch());
+        assertTrue(get(ALICE, true).contains("alice.pdf"));
+        assertTrue(get(BOB, true).contains("bob.pdf"));
+        assertNotSame(cache.clientFor(ALICE), cache.clientFor(BOB));
+        assertEquals(2, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void newLoginOfTheSameUserKeepsTheCache() throws IOException {
+        get(ALICE, false);
+        String newToken = token("alice") + "x";
+        conditionalServer.setBody(newToken, "{\"files\": [{\"id\": \"1\", \"filename\": \"alice.pdf\"}]}");
+
+        get(newToken, true);
+        assertSame(cache.clientFor(ALICE), cache.clientFor(newToken));
+    }
+
+    @Test
+    public void validatorWithoutAPolicyIsRevalidatedEveryTime() throws IOException {
+        conditionalServer.omitCacheControl();
+
+        get(ALICE, false);
+        get(ALICE, true);
+        get(ALICE, true);
+
+        assertEquals(2, conditionalServer.getNotModified());
+    }
+
+    @Test
+    public void responseWithoutValidatorsIsNotRevalidated() throws IOException {
+        conditionalServer.disableValidators();
+
+        get(ALICE, false);
+        get(ALICE, false);
+
+        assertEquals(Arrays.asList(null, null), conditionalServer.getIfNoneMatch());
+    }
+
+    private String get(String token, boolean fromCache) throws IOException {
+        try (Response response = execute(token)) {
+            assertEquals(200, response.code());
+            // a revalidated entry is still sent along with a changed body, only a 304 keeps it
+            boolean cached = response.networkResponse() == null || response.networkResponse().code() == 304;
+            assertEquals(fromCache, cached);
+            return response.body().string();
+        }
+    }
+
+    private Response execute(String token) throws IOException {
+        Request request = new Request.Builder()
+                .url(server.url("/files/"))
+                .addHeader("Authorization", "Bearer " + token)
+                .build();
+        return cache.clientFor(token).newCall(request).execute();
+    }
+
+    /**
+     * @return A JWT of the user, its signature isn't checked by the client.
+     */
+    private static String token(String user) {
+        String header = ByteString.encodeUtf8("{\"alg\":\"HS256\"}").base64Url();
+        String payload = ByteString.encodeUtf8("{\"sub\":\"" + user + "\"}").base64Url();
+        return header + "." + payload + ".signature";
+    }
+}
@@ -0,0 +1,43 @@
+import zlib
+from fastapi import HTTPException
+
+
+class GZipRequestMiddleware:
+    """
+    Decode request bodies the client sent with Content-Encoding: gzip as they are received,
+    so the routes read the plain content.
+    """
+
+    def __init__(self, app):
+        self.app = app
+
+    async def __call__(self, scope, receive, send):
+        if scope["type"] != "http":
+            await self.app(scope, receive, send)
+            return
+
+        headers = scope["headers"]
+        encoding = next((value for name, value in headers if name == b"content-encoding"), b"").lower()
+        if encoding != b"gzip":
+            await self.app(scope, receive, send)
+            return
+
+        # the decoded body has another length, the routes read it until the last message
+        scope = dict(scope)
+        scope["headers"] = [(name, value) for name, value in headers
+                            if name not in (b"content-encoding", b"content-length")]
+        decompressor = zlib.decompressobj(16 + zlib.MAX_WBITS)
+
+        async def decoded_receive():
+            message = await receive()
+            if message["type"] == "http.request":
+                try:
+                    body = decompressor.decompress(message.get("body", b""))
+                    if not message.get("more_body", False):
+                        body += decompressor.flush()
+                except zlib.error:
+                    raise HTTPException(status_code=400, detail="Invalid gzip body")
+                message = {**message, "body": body}
+            return message
+
+        await self.app(scope, decoded_receive, send)
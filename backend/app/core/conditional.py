@@ -0,0 +1,38 @@
+import hashlib
+
+from fastapi import Request
+from fastapi.responses import Response
+
+
+def conditional_response(request: Request, response: Response) -> Response:
+    """
+    Tag a response with a validator of its body, and answer a request that already holds the
+    same body with a 304 without one. The clients store the response and revalidate it every time.
+    The tag is weak, the gzip middleware changes the bytes but not the content.
+    """
+    etag = 'W/"' + hashlib.sha256(response.body).hexdigest()[:32] + '"'
+    headers = {"ETag": etag, "Cache-Control": "private, no-cache"}
+    vary = response.headers.get("vary")
+    if vary:
+        headers["Vary"] = vary
+
+    if _matches(request.headers.get("if-none-match"), etag):
+        return Response(status_code=304, headers=headers)
+    response.headers.update(headers)
+    return response
+
+
+def _matches(if_none_match, etag: str) -> bool:
+    if not if_none_match:
+        return False
+    if if_none_match.strip() == "*":
+        return True
+    # the weak comparison, a tag matches with or without its W/ prefix
+    opaque = etag[2:]
+    for candidate in if_none_match.split(","):
+        candidate = candidate.strip()
+        if candidate.startswith("W/"):
+            candidate = candidate[2:]
+        if candidate == opaque:
+            return True
+    return False
@@ -0,0 +1,125 @@
+import math
+import struct
+from datetime import datetime, timezone
+
+from fastapi import Request
+from fastapi.responses import JSONResponse, Response
+
+from core.conditional import conditional_response
+
+CBOR = "application/cbor"
+
+
+def prefers_cbor(request: Request) -> bool:
+    """
+    Whether the client ranks CBOR above JSON in its Accept header.
+    """
+    cbor_quality = 0.0
+    json_quality = 0.0
+    for part in request.headers.get("accept", "").split(","):
+        media_type, _, params = part.strip().partition(";")
+        quality = 1.0
+        for param in params.split(";"):
+            name, _, value = param.strip().partition("=")
+            if name == "q":
+                try:
+                    quality = float(value)
+                except ValueError:
+                    quality = 0.0
+        media_type = media_type.strip().lower()
+        if media_type == CBOR:
+            cbor_quality = max(cbor_quality, quality)
+        elif media_type in ("application/json", "application/*", "*/*"):
+            json_quality = max(json_quality, quality)
+    return cbor_quality > 0 and cbor_quality >= json_quality
+
+
+def negotiated_response(request: Request, content) -> Response:
+    """
+    Answer with CBOR when the client prefers it, otherwise with the usual JSON.
+    Datetimes are sent as tag 1 epoch seconds in CBOR and ISO strings in JSON.
+    The response carries an ETag, a client that holds the same body gets a 304.
+    """
+    headers = {"Vary": "Accept"}
+    if prefers_cbor(request):
+        response = Response(content=encode_cbor(content), media_type=CBOR, headers=headers)
+    else:
+        response = JSONResponse(content=_jsonable(content), headers=headers)
+    return conditional_response(request, response)
+
+
+def encode_cbor(value) -> bytes:
+    out = bytearray()
+    _write(out, value)
+    return bytes(out)
+
+
+def _head(out: bytearray, major: int, argument: int):
+    if argument < 24:
+        out.append(major << 5 | argument)
+    elif argument < 0x100:
+        out.append(major << 5 | 24)
+        out.append(argument)
+    elif argument < 0x10000:
+        out.append(major << 5 | 25)
+        out += struct.pack(">H", argument)
+    elif argument < 0x100000000:
+        out.append(major << 5 | 26)
+        out += struct.pack(">I", argument)
+    else:
+        out.append(major << 5 | 27)
+        out += struct.pack(">Q", argument)
+
+
+def _write(out: bytearray, value):
+    if value is None:
+        out.append(0xf6)
+    elif value is True:
+        out.append(0xf5)
+    elif value is False:
+        out.append(0xf4)
+    elif isinstance(value, int):
+        if value >= 0:
+            _head(out, 0, value)
+        else:
+            _head(out, 1, -1 - value)
+    elif isinstance(value, float):
+        if value.is_integer() and not math.isinf(value) and abs(value) < 2 ** 63:
+            _write(out, int(value))
+        else:
+            out.append(0xfb)
+            out += struct.pack(">d", value)
+    elif isinstance(value, str):
+        encoded = value.encode("utf-8")
+        _head(out, 3, len(encoded))
+        out += encoded
+    elif isinstance(value, (bytes, bytearray)):
+        _head(out, 2, len(value))
+        out += value
+    elif isinstance(value, datetime):
+        # naive datetimes are stored in UTC
+        if value.tzinfo is None:
+            value = value.replace(tzinfo=timezone.utc)
+        _head(out, 6, 1)
+        _write(out, value.timestamp())
+    elif isinstance(value, dict):
+        _head(out, 5, len(value))
+        for key, item in value.items():
+            _write(out, str(key))
+            _write(out, item)
+    elif isinstance(value, (list, tuple)):
+        _head(out, 4, len(value))
+        for item in value:
+            _write(out, item)
+    else:
+        _write(out, str(value))
+
+
+def _jsonable(value):
+    if isinstance(value, datetime):
+        return value.isoformat()
+    if isinstance(value, dict):
+        return {str(key): _jsonable(item) for key, item in value.items()}
+    if isinstance(value, (list, tuple)):
+        return [_jsonable(item) for item in value]
+    return value
@@ -1,8 +1,10 @@
 from fastapi import FastAPI
 from fastapi.middleware.cors import CORSMiddleware
+from fastapi.middleware.gzip import GZipMiddleware
 from contextlib import asynccontextmanager
 from motor.motor_asyncio import AsyncIOMotorClient
 from core.config import settings
+from core.compression import GZipRequestMiddleware
 from routes import auth, upload, summarize, files, chat
 import uvicorn
 
@@ -48,6 +50,11 @@ app.add_middleware(
     allow_headers=["*"],
 )
 
+# ----- Compression -----
+# responses are gzipped for clients that accept it, gzipped request bodies are decoded
+app.add_middleware(GZipMiddleware, minimum_size=1024)
+app.add_middleware(GZipRequestMiddleware)
+
 # Include routes
 app.include_router(auth.router)
 app.include_router(upload.router)
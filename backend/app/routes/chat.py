@@ -1,11 +1,12 @@
 from fastapi import APIRouter, Header, HTTPException, status, Request
-from typing import List
+from typing import List, Optional
 from bson import ObjectId
 from datetime import datetime
 from schemas.upload import UploadModel
 from schemas.chat_history import ChatHistoryModel
 from services.ai_service import ask_model
 from core.security import decode_access_token
+from core.wire_format import negotiated_response
 
 router = APIRouter(prefix="/chat", tags=["chat"])
 
@@ -68,6 +69,7 @@ async def ask_question(
 async def get_history(
     request: Request,
     context_file_id: str,
+    after: Optional[str] = None,
     authorization: str = Header(...)
 ):
     # ----- JWT verification -----
@@ -98,7 +100,14 @@ async def get_history(
     if not upload_doc:
         raise HTTPException(status_code=404, detail="Context file not found or unauthorized")
 
-    if not chat_history_doc:
-        return {"chat_history": []}
+    messages = parse_history(chat_history_doc["history_text"]) if chat_history_doc else []
 
-    return {"chat_history": parse_history(chat_history_doc["history_text"])}
+    # ----- Return only the messages after the client's cursor -----
+    # the cursor is the number of messages the client already has, the history only grows
+    start = 0
+    if after is not None:
+        if not after.isdigit() or int(after) > len(messages):
+            raise HTTPException(status_code=status.HTTP_410_GONE, detail="Unknown history cursor")
+        start = int(after)
+
+    return negotiated_response(request, {"chat_history": messages[start:], "cursor": str(len(messages))})
@@ -1,7 +1,7 @@
 from fastapi import APIRouter, Header, HTTPException, status, Request
 from schemas.upload import UploadModel
 from core.security import decode_access_token
-from datetime import datetime
+from core.wire_format import negotiated_response
 from bson import ObjectId
 from pathlib import Path
 
@@ -30,7 +30,7 @@ async def get_my_files(request: Request, authorization: str = Header(...)):
     cursor = db["uploads"].find({"user_id": current_user})
     user_uploads = await cursor.to_list(length=None)
 
-    # ----- Convert to dicts and serialize datetime -----
+    # ----- Convert to dicts, datetimes are serialized by the negotiated format -----
     uploads_dict = []
     for upload in user_uploads:
         uploads_dict.append({
@@ -38,12 +38,10 @@ async def get_my_files(request: Request, authorization: str = Header(...)):
             "user_id": str(upload["user_id"]),
             "filename": upload["filename"],
             "file_path": upload["file_path"],
-            "uploaded_at":
-                upload["uploaded_at"].isoformat() if
-                isinstance(upload["uploaded_at"], datetime) else upload["uploaded_at"]
+            "uploaded_at": upload["uploaded_at"]
         })
 
-    return {"files": uploads_dict}
+    return negotiated_response(request, {"files": uploads_dict})
 
 
 @router.delete("/{file_id}")
@@ -78,9 +76,10 @@ async def delete_file(file_id: str, request: Request, authorization: str = Heade
     if delete_result.deleted_count == 0:
         raise HTTPException(status_code=500, detail="Failed to delete file from database")
 
-    # ---- Delete file from disk ----
+    # ---- Delete file from disk, unless a linked file of the same content still uses it ----
     file_path = Path(upload_doc["file_path"])
-    if file_path.exists():
+    still_linked = await db["uploads"].find_one({"file_path": upload_doc["file_path"]})
+    if file_path.exists() and not still_linked:
         try:
             file_path.unlink()
         except Exception as e:
@@ -1,8 +1,14 @@
+import hashlib
 import os
+import uuid
 from datetime import datetime
-from fastapi import APIRouter, Request, UploadFile, File, Header, HTTPException, status
+from bson import ObjectId
+from bson.errors import InvalidId
+from fastapi import APIRouter, Request, Response, UploadFile, File, Header, HTTPException, status
+from starlette.concurrency import run_in_threadpool
 from core.security import decode_access_token
-from schemas.upload import UploadModel
+from schemas.upload import UploadModel, UploadProbe
+from services.delta_service import compute_signatures, apply_delta
 
 router = APIRouter(prefix="/upload", tags=["upload"])
 
@@ -10,9 +16,7 @@ BASE_UPLOAD_FOLDER = "uploads"
 os.makedirs(BASE_UPLOAD_FOLDER, exist_ok=True)
 
 
-@router.post("/")
-async def upload_file(file: UploadFile = File(...), request: Request = None, authorization: str = Header(...)):
-    # Check Authorization header
+def get_current_user(authorization: str) -> str:
     if not authorization.startswith("Bearer "):
         raise HTTPException(status_code=status.HTTP_401_UNAUTHORIZED, detail="Invalid auth header")
 
@@ -21,6 +25,127 @@ async def upload_file(file: UploadFile = File(...), request: Request = None, aut
     current_user = payload.get("sub")
     if not current_user:
         raise HTTPException(status_code=status.HTTP_401_UNAUTHORIZED, detail="Unauthorized")
+    return current_user
+
+
+def describe_file(record_id, record) -> dict:
+    return {
+        "id": str(record_id),
+        "filename": record["filename"],
+        "uploaded_at": record["uploaded_at"].isoformat()
+    }
+
+
+@router.post("/probe")
+async def probe_upload(probe: UploadProbe, request: Request, authorization: str = Header(...)):
+    """
+    Link a file whose content the user already uploaded, so the client doesn't send it again.
+    Only the user's own files are matched, a probe must not tell whether another user stores a file.
+    Returns 204 if the content isn't stored and the file must be uploaded.
+    """
+    current_user = get_current_user(authorization)
+    db = request.app.mongodb
+
+    same_content = await db["uploads"].find_one({"user_id": current_user, "sha256": probe.sha256.lower()})
+    if not same_content:
+        return Response(status_code=status.HTTP_204_NO_CONTENT)
+
+    same_name = await db["uploads"].find_one({"user_id": current_user, "filename": probe.filename})
+    if same_name:
+        if same_name.get("sha256") == same_content["sha256"]:
+            # the same file uploaded again
+            return {"message": "File already uploaded", "filename": probe.filename,
+                    "file": describe_file(same_name["_id"], same_name)}
+        # another content under this name, the client sends it as a delta against the stored version
+        return Response(status_code=status.HTTP_204_NO_CONTENT)
+
+    # the content is stored under another name, link a new file to it
+    upload_record = UploadModel(
+        user_id=current_user,
+        filename=probe.filename,
+        file_path=same_content["file_path"],
+        uploaded_at=datetime.utcnow(),
+        sha256=same_content["sha256"]
+    )
+    result = await db["uploads"].insert_one(upload_record.dict())
+    return {"message": "File linked successfully", "filename": probe.filename,
+            "file": describe_file(result.inserted_id, upload_record.dict())}
+
+
+@router.get("/signatures")
+async def get_signatures(filename: str, request: Request, block_size: int = 2048, authorization: str = Header(...)):
+    """
+    Block signatures of the user's file of this name, so the client can send a new version of it
+    as the differences from the stored version.
+    Returns 204 if the user has no file of this name.
+    """
+    current_user = get_current_user(authorization)
+    db = request.app.mongodb
+
+    existing_file = await db["uploads"].find_one({"user_id": current_user, "filename": filename})
+    if not existing_file or not os.path.exists(existing_file["file_path"]):
+        return Response(status_code=status.HTTP_204_NO_CONTENT)
+
+    signatures = await run_in_threadpool(compute_signatures, existing_file["file_path"], block_size)
+    signatures["file_id"] = str(existing_file["_id"])
+    return signatures
+
+
+@router.put("/delta/{file_id}")
+async def upload_delta(file_id: str, request: Request, authorization: str = Header(...),
+                       upload_sha256: str = Header(...), delta_block_size: int = Header(...)):
+    """
+    Replace the content of a file with the new version rebuilt from the stored one and a delta.
+    Returns 412 if the rebuilt content doesn't match the hash, the stored version changed since
+    the client read its signatures.
+    """
+    current_user = get_current_user(authorization)
+    db = request.app.mongodb
+
+    try:
+        object_id = ObjectId(file_id)
+    except InvalidId:
+        raise HTTPException(status_code=404, detail="Invalid file_id")
+    upload_doc = await db["uploads"].find_one({"_id": object_id, "user_id": current_user})
+    if not upload_doc:
+        raise HTTPException(status_code=404, detail="Invalid file_id")
+
+    with open(upload_doc["file_path"], "rb") as f:
+        basis = f.read()
+    delta = await request.body()
+    try:
+        content = await run_in_threadpool(apply_delta, basis, delta_block_size, delta)
+    except ValueError as e:
+        raise HTTPException(status_code=400, detail=str(e))
+
+    sha256 = hashlib.sha256(content).hexdigest()
+    if sha256 != upload_sha256.lower():
+        raise HTTPException(status_code=status.HTTP_412_PRECONDITION_FAILED, detail="Content doesn't match the hash")
+
+    # write the new version next to the stored one, a linked file may still use the stored content
+    user_folder = os.path.join(BASE_UPLOAD_FOLDER, str(current_user))
+    os.makedirs(user_folder, exist_ok=True)
+    file_path = os.path.join(user_folder, f"{uuid.uuid4().hex}_{upload_doc['filename']}")
+    with open(file_path, "wb") as f:
+        f.write(content)
+
+    uploaded_at = datetime.utcnow()
+    await db["uploads"].update_one(
+        {"_id": object_id},
+        {"$set": {"file_path": file_path, "sha256": sha256, "uploaded_at": uploaded_at}}
+    )
+    still_linked = await db["uploads"].find_one({"file_path": upload_doc["file_path"]})
+    if not still_linked and os.path.exists(upload_doc["file_path"]):
+        os.remove(upload_doc["file_path"])
+
+    upload_doc.update(file_path=file_path, sha256=sha256, uploaded_at=uploaded_at)
+    return {"message": "File updated successfully", "filename": upload_doc["filename"],
+            "file": describe_file(object_id, upload_doc)}
+
+
+@router.post("/")
+async def upload_file(file: UploadFile = File(...), request: Request = None, authorization: str = Header(...)):
+    current_user = get_current_user(authorization)
 
     filename = file.filename
     if not filename:
@@ -45,16 +170,30 @@ async def upload_file(file: UploadFile = File(...), request: Request = None, aut
     os.makedirs(user_folder, exist_ok=True)
 
     file_path = os.path.join(user_folder, filename)
+    if os.path.exists(file_path):
+        # the content of a deleted file of this name is still used by a linked file
+        file_path = os.path.join(user_folder, f"{uuid.uuid4().hex}_{filename}")
+    content = await file.read()
     with open(file_path, "wb") as f:
-        f.write(await file.read())
+        f.write(content)
 
     # Save record in MongoDB
     upload_record = UploadModel(
         user_id=current_user,
         filename=filename,
         file_path=file_path,
-        uploaded_at=datetime.utcnow()
+        uploaded_at=datetime.utcnow(),
+        sha256=hashlib.sha256(content).hexdigest()
     )
-    await db["uploads"].insert_one(upload_record.dict())
+    result = await db["uploads"].insert_one(upload_record.dict())
 
-    return {"message": "File uploaded successfully", "filename": filename}
+    # describe the new file like the files list does, so the client can show it without a refetch
+    return {
+        "message": "File uploaded successfully",
+        "filename": filename,
+        "file": {
+            "id": str(result.inserted_id),
+            "filename": filename,
+            "uploaded_at": upload_record.uploaded_at.isoformat()
+        }
+    }
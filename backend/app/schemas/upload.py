@@ -1,5 +1,6 @@
 from pydantic import BaseModel
 from datetime import datetime
+from typing import Optional
 
 
 class UploadModel(BaseModel):
@@ -7,3 +8,11 @@ class UploadModel(BaseModel):
     filename: str
     file_path: str
     uploaded_at: datetime
+    # hex SHA-256 of the content, lets a repeated upload be linked instead of sent
+    sha256: Optional[str] = None
+
+
+class UploadProbe(BaseModel):
+    sha256: str
+    filename: str
+    size: Optional[int] = None
@@ -0,0 +1,76 @@
+import base64
+import hashlib
+import struct
+
+MIN_BLOCK_SIZE = 512
+MAX_BLOCK_SIZE = 64 * 1024
+# bytes of the SHA-256 of a block that are kept as its strong hash
+STRONG_HASH_LENGTH = 8
+
+
+def weak_checksum(block: bytes) -> int:
+    """
+    The rsync weak checksum of a block, the client rolls it over the new version a byte at a time.
+    """
+    length = len(block)
+    a = sum(block)
+    b = sum((length - i) * value for i, value in enumerate(block))
+    return ((b & 0xffff) << 16) | (a & 0xffff)
+
+
+def compute_signatures(file_path: str, block_size: int) -> dict:
+    """
+    Compute the block signatures of a stored file, the blocks are the base64 of the weak checksum
+    and strong hash of every block, big endian.
+    """
+    block_size = max(MIN_BLOCK_SIZE, min(block_size, MAX_BLOCK_SIZE))
+    blocks = bytearray()
+    size = 0
+    with open(file_path, "rb") as f:
+        while True:
+            block = f.read(block_size)
+            if not block:
+                break
+            blocks += struct.pack(">I", weak_checksum(block))
+            blocks += hashlib.sha256(block).digest()[:STRONG_HASH_LENGTH]
+            size += len(block)
+    return {"block_size": block_size, "size": size, "blocks": base64.b64encode(bytes(blocks)).decode("ascii")}
+
+
+def apply_delta(basis: bytes, block_size: int, delta: bytes) -> bytes:
+    """
+    Rebuild the new version of a file from the stored version and a delta of 'C' (copy blocks),
+    'L' (literal bytes) and 'E' (end) instructions.
+    Raises ValueError if the delta is malformed.
+    """
+    if block_size <= 0:
+        raise ValueError("Invalid block size")
+
+    content = bytearray()
+    position = 0
+    while position < len(delta):
+        instruction = delta[position:position + 1]
+        position += 1
+        if instruction == b"E":
+            return bytes(content)
+        elif instruction == b"C":
+            if position + 8 > len(delta):
+                raise ValueError("Truncated copy instruction")
+            first, count = struct.unpack_from(">ii", delta, position)
+            position += 8
+            offset = first * block_size
+            if first < 0 or count <= 0 or offset + (count - 1) * block_size >= len(basis):
+                raise ValueError("Delta copies blocks that don't exist")
+            content += basis[offset:offset + count * block_size]
+        elif instruction == b"L":
+            if position + 4 > len(delta):
+                raise ValueError("Truncated literal instruction")
+            (length,) = struct.unpack_from(">i", delta, position)
+            position += 4
+            if length < 0 or position + length > len(delta):
+                raise ValueError("Truncated literal")
+            content += delta[position:position + length]
+            position += length
+        else:
+            raise ValueError("Unknown delta instruction")
+    raise ValueError("Delta ended without an end instruction")